@@ -0,0 +1,58 @@
+package com.example.email.bodies;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * <p>Deletes the bodies of "email_bodies" that no email references anymore.</p>
+ * <p>Bodies are deleted in chunks of {@code email.bodies.gc.chunk-size}, each in its own transaction. A body
+ * whose reference count is being increased by a concurrent write is locked by that write and skipped, and the
+ * reference count is checked again on the locked row, so a body reused while it is collected is never lost:
+ * either the write sees it deleted and inserts it again, or the collector sees it referenced and keeps it.
+ * Bodies of emails in detached partitions keep their references and are never collected.</p>
+ */
+@Component
+public class EmailBodyGarbageCollector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailBodyGarbageCollector.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${email.bodies.gc.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * <p>Deletes the unreferenced bodies.</p>
+     * <p>Runs every {@code email.bodies.gc.interval} milliseconds.</p>
+     *
+     * @return The number of bodies deleted.
+     */
+    @Scheduled(fixedDelayString = "${email.bodies.gc.interval:3600000}")
+    public int collectGarbage() {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> jdbcTemplate.update("""
+                    DELETE FROM email_bodies WHERE body_hash IN (
+                        SELECT body_hash FROM email_bodies WHERE ref_count <= 0
+                        LIMIT ? FOR UPDATE SKIP LOCKED)
+                    """, chunkSize));
+            total += deleted;
+        } while (deleted == chunkSize);
+
+        if (total > 0) {
+            LOGGER.info(String.format("Unreferenced email bodies deleted -> %d", total));
+        }
+        return total;
+    }
+}
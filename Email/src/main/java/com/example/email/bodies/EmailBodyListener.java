@@ -0,0 +1,92 @@
+package com.example.email.bodies;
+
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.entity.Email;
+import com.example.email.repositories.EmailBodyDao;
+import org.hibernate.event.spi.AbstractPreDatabaseOperationEvent;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.resource.beans.spi.ManagedBeanRegistry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Stores the body of every email written through Hibernate in "email_bodies", so that a plain
+ * {@code save} of an {@link Email} references its body like the batch writers do.</p>
+ * <p>The services store the bodies of their batches beforehand with {@link EmailBodyDao#storeBodies(List)},
+ * which sets the {@code bodyHash} of the emails: this listener then has nothing left to do for them. Any other
+ * write gets its body stored here, one email at a time, on the connection of the flushing session. The body
+ * column itself is not written by Hibernate, so {@link Email#setEmailBody(String)} clears the {@code bodyHash}
+ * to make a changed body reach this listener. On updates, the body is only checked when it was loaded, since
+ * an unloaded lazy body cannot have changed.</p>
+ * <p>Registered by the {@link EmailBodyIntegrator}.</p>
+ */
+public class EmailBodyListener implements PreInsertEventListener, PreUpdateEventListener {
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        if (event.getEntity() instanceof Email email) {
+            storeBody(event, email, event.getState(), null);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        if (event.getEntity() instanceof Email email) {
+            byte[] storedHash = event.getOldState() == null
+                    ? null
+                    : (byte[]) event.getOldState()[event.getPersister().getPropertyIndex("bodyHash")];
+            storeBody(event, email, event.getState(), storedHash);
+        }
+        return false;
+    }
+
+    /**
+     * <p>Stores the body of an email about to be written unless its {@code bodyHash} already references it, and
+     * writes the new hash to the entity and to the state Hibernate is about to write.</p>
+     *
+     * @param event The insert or update event.
+     * @param email The email about to be written.
+     * @param state The state of the email that Hibernate writes.
+     * @param storedHash The hash of the body currently referenced by the row, null for an insert.
+     */
+    private void storeBody(AbstractPreDatabaseOperationEvent event, Email email, Object[] state,
+                           byte[] storedHash) {
+        int bodyIndex = event.getPersister().getPropertyIndex("emailBody");
+        if (!(state[bodyIndex] instanceof String emailBody)) {
+            // no body, or a lazy body that was never loaded
+            return;
+        }
+        byte[] bodyHash = EmailBodyDao.hashOf(emailBody);
+        if (Arrays.equals(email.getBodyHash(), bodyHash)) {
+            return;
+        }
+        int hashIndex = event.getPersister().getPropertyIndex("bodyHash");
+        if (Arrays.equals(storedHash, bodyHash)) {
+            // the body was set again to the stored one, which already counts this reference
+            email.setBodyHash(storedHash);
+            state[hashIndex] = storedHash;
+            return;
+        }
+
+        Connection connection = event.getSession().getJdbcCoordinator().getLogicalConnection()
+                .getPhysicalConnection();
+        EmailBodyCodec emailBodyCodec = event.getSession().getFactory().getServiceRegistry()
+                .getService(ManagedBeanRegistry.class)
+                .getBean(EmailBodyCodec.class)
+                .getBeanInstance();
+        try {
+            EmailBodyDao.storeBodies(connection, emailBodyCodec, List.of(email));
+        } catch (SQLException e) {
+            throw event.getSession().getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "Could not store the body of an email");
+        }
+        state[hashIndex] = email.getBodyHash();
+    }
+}
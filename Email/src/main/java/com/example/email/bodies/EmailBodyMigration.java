@@ -0,0 +1,104 @@
+package com.example.email.bodies;
+
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.entity.Email;
+import com.example.email.repositories.EmailBodyDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Moves the bodies still stored on the email rows, in the legacy "email_body" column or in the
+ * "email_body_data" column, to the content-addressed "email_bodies" table, and fills their snippet.</p>
+ * <p>Rows are migrated in chunks of {@code email.body.migration.chunk-size}, each in its own short transaction,
+ * so the migration runs in the background next to the regular traffic. Rows locked by another transaction are
+ * skipped and picked up by a later chunk. Identical bodies of a chunk are stored once, like the ones of a
+ * created batch.</p>
+ */
+@Component
+public class EmailBodyMigration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailBodyMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EmailBodyCodec emailBodyCodec;
+
+    @Autowired
+    private EmailBodyDao emailBodyDao;
+
+    @Value("${email.body.migration.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * <p>Migrates chunks until no body is left on the email rows.</p>
+     * <p>Runs at startup and every {@code email.body.migration.interval} milliseconds; once every row is
+     * migrated a run costs one lookup of the partial index on the remaining rows.</p>
+     *
+     * @return The number of bodies migrated.
+     */
+    @Scheduled(fixedDelayString = "${email.body.migration.interval:60000}")
+    public int migrateBodies() {
+        int total = 0;
+        int migrated;
+        do {
+            migrated = migrateChunk();
+            total += migrated;
+        } while (migrated > 0);
+
+        if (total > 0) {
+            LOGGER.info(String.format("Email bodies migrated -> %d", total));
+        }
+        return total;
+    }
+
+    /**
+     * <p>Migrates the next chunk of bodies in one transaction.</p>
+     *
+     * @return The number of bodies migrated, 0 when none is left.
+     */
+    public int migrateChunk() {
+        Integer migrated = transactionTemplate.execute(status -> {
+            List<Email> emails = new ArrayList<>();
+            jdbcTemplate.query("""
+                    SELECT email_id, email_body_data, email_body FROM emails
+                    WHERE body_hash IS NULL AND (email_body_data IS NOT NULL OR email_body IS NOT NULL)
+                    ORDER BY email_id LIMIT ? FOR UPDATE SKIP LOCKED
+                    """, resultSet -> {
+                byte[] bodyData = resultSet.getBytes("email_body_data");
+                emails.add(Email.builder()
+                        .emailId(resultSet.getLong("email_id"))
+                        .emailBody(bodyData != null
+                                ? emailBodyCodec.decode(bodyData)
+                                : resultSet.getString("email_body"))
+                        .build());
+            }, chunkSize);
+
+            emailBodyDao.storeBodies(emails);
+            jdbcTemplate.batchUpdate("""
+                    UPDATE emails SET body_hash = ?, email_snippet = COALESCE(email_snippet, ?),
+                                      email_body_data = NULL, email_body = NULL
+                    WHERE email_id = ?
+                    """, emails.stream()
+                    .map(email -> new Object[]{email.getBodyHash(), Email.snippetOf(email.getEmailBody()),
+                            email.getEmailId()})
+                    .collect(Collectors.toList()));
+            return emails.size();
+        });
+        return migrated == null ? 0 : migrated;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.email.cache;
+
+import com.example.email.dto.EmailAddressDTO;
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.rabbitmq.EmailCacheInvalidationPublisher;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * <p>Bounded in-process cache of the emails returned by {@code GET /email/{id}}.</p>
+ * <p>The cache is a Caffeine cache, whose W-TinyLFU admission policy keeps the frequently read emails when
+ * a burst of one-off reads goes through. It is bounded by the approximate size of the cached emails, given
+ * in bytes by {@code email.cache.max-weight}, so a few very large bodies cannot push out every other email.
+ * Entries also expire {@code email.cache.ttl} milliseconds after they were loaded, which bounds the staleness
+ * of the changes made outside of this application.</p>
+ * <p>Writers invalidate the emails they change with {@link #invalidate(Collection)}: the entries are removed
+ * at once, removed again when the transaction completes, so a read racing with the write cannot cache the
+ * old version, and the invalidation is broadcast to the other nodes once committed. Hits, misses and
+ * evictions are published as the {@code cache.*} meters with the {@code cache=email.byId} tag.</p>
+ * <p>The entries are futures, and a miss runs its load on the calling thread outside of the map: a
+ * synchronous Caffeine cache would run it inside {@code ConcurrentHashMap.compute}, holding a monitor for the
+ * whole query, which pins the carrier of a virtual thread and blocks every other read of the same bin.</p>
+ */
+@Component
+public class EmailCache implements MeterBinder {
+
+    /**
+     * <p>The name of the cache in the published meters.</p>
+     */
+    public static final String NAME = "email.byId";
+
+    private final AsyncCache<Long, EmailResponseDTO> cache;
+
+    @Autowired
+    private EmailCacheInvalidationPublisher invalidationPublisher;
+
+    /**
+     * <p>Creates a cache bounded by the approximate size of its emails.</p>
+     *
+     * @param maxWeight The maximum approximate size of the cached emails, in bytes.
+     * @param ttl The time after which a cached email is loaded again, in milliseconds.
+     */
+    public EmailCache(@Value("${email.cache.max-weight:67108864}") long maxWeight,
+                      @Value("${email.cache.ttl:600000}") long ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Long emailId, EmailResponseDTO email) -> weigh(emailId, email))
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * <p>Returns the cached email, loading it on a miss.</p>
+     * <p>Concurrent misses on the same ID share a single load, run by the first of them. Exceptions of the
+     * loader, such as an email that does not exist, are propagated and nothing is cached. A load whose email is
+     * invalidated while it runs is returned to its callers but not cached.</p>
+     *
+     * @param emailId The ID of the email.
+     * @param loader Loads the email from the database.
+     * @return The email.
+     */
+    public EmailResponseDTO get(Long emailId, Function<Long, EmailResponseDTO> loader) {
+        CompletableFuture<EmailResponseDTO> load = new CompletableFuture<>();
+        CompletableFuture<EmailResponseDTO> email = cache.get(emailId, (key, executor) -> load);
+        if (email != load) {
+            return join(email);
+        }
+
+        try {
+            EmailResponseDTO loaded = loader.apply(emailId);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * <p>Invalidates emails changed by the current transaction, on this node and on the other nodes.</p>
+     *
+     * @param emailIds The IDs of the changed emails.
+     */
+    public void invalidate(Collection<Long> emailIds) {
+        if (emailIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(emailIds);
+        cache.synchronous().invalidateAll(ids);
+        afterCompletion(() -> cache.synchronous().invalidateAll(ids), () -> invalidationPublisher.publish(ids));
+    }
+
+    /**
+     * <p>Invalidates every email, on this node and on the other nodes, after changes that do not tell which
+     * emails they touched.</p>
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+        afterCompletion(() -> cache.synchronous().invalidateAll(), invalidationPublisher::publishAll);
+    }
+
+    /**
+     * <p>Removes emails from the cache of this node only, when another node changed them.</p>
+     *
+     * @param emailIds The IDs of the changed emails.
+     */
+    public void evict(Collection<Long> emailIds) {
+        cache.synchronous().invalidateAll(emailIds);
+    }
+
+    /**
+     * <p>Removes every email from the cache of this node only.</p>
+     */
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), NAME);
+    }
+
+    /**
+     * <p>Waits for a load run by another caller, rethrowing its exception as is.</p>
+     *
+     * @param email The load.
+     * @return The loaded email.
+     */
+    private static EmailResponseDTO join(CompletableFuture<EmailResponseDTO> email) {
+        try {
+            return email.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * <p>Runs the invalidation once the current transaction completed and the broadcast once it committed,
+     * or both at once outside of a transaction.</p>
+     *
+     * @param invalidation Invalidates the local entries.
+     * @param broadcast Broadcasts the invalidation to the other nodes.
+     */
+    private void afterCompletion(Runnable invalidation, Runnable broadcast) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidation.run();
+                if (status == STATUS_COMMITTED) {
+                    broadcast.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>Approximates the memory retained by a cached email, in bytes.</p>
+     *
+     * @param emailId The ID of the email.
+     * @param email The email.
+     * @return The approximate size.
+     */
+    static int weigh(Long emailId, EmailResponseDTO email) {
+        long weight = 64 + length(email.getEmailFrom()) + length(email.getEmailBody())
+                + weigh(email.getEmailTo()) + weigh(email.getEmailCC());
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long weigh(List<EmailAddressDTO> addresses) {
+        if (addresses == null) {
+            return 0;
+        }
+        return addresses.stream()
+                .mapToLong(address -> 48 + length(address.getEmail()))
+                .sum();
+    }
+
+    private static long length(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.email.compression;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Encodes email bodies into the "body_data" column of "email_bodies".</p>
+ * <p>Every encoded body starts with a one-byte format header:</p>
+ * <ul>
+ *     <li>{@link #FORMAT_PLAIN}, followed by the UTF-8 bytes of the body;</li>
+ *     <li>{@link #FORMAT_DEFLATE}, followed by the length of the UTF-8 body as a 4-byte integer and the
+ *     DEFLATE-compressed bytes.</li>
+ * </ul>
+ * <p>Bodies of at least {@code email.body.compression-threshold} UTF-8 bytes are compressed, unless the
+ * compressed form is not smaller. Decoding dispatches on the header, so the threshold and level can change
+ * at any time without rewriting stored rows.</p>
+ */
+@Component
+@Converter
+public class EmailBodyCodec implements AttributeConverter<String, byte[]> {
+
+    /**
+     * <p>Header of a body stored as plain UTF-8.</p>
+     */
+    public static final byte FORMAT_PLAIN = 0;
+
+    /**
+     * <p>Header of a body stored DEFLATE-compressed.</p>
+     */
+    public static final byte FORMAT_DEFLATE = 1;
+
+    /**
+     * <p>The threshold used when none is configured, in UTF-8 bytes.</p>
+     */
+    public static final int DEFAULT_THRESHOLD = 4096;
+
+    private static final int DEFLATE_HEADER_LENGTH = 1 + Integer.BYTES;
+
+    private final int threshold;
+
+    private final int level;
+
+    /**
+     * <p>Creates a codec with the default threshold and compression level.</p>
+     */
+    public EmailBodyCodec() {
+        this(DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * <p>Creates a codec compressing the bodies of at least {@code threshold} UTF-8 bytes.</p>
+     *
+     * @param threshold The minimum size of a compressed body, in UTF-8 bytes.
+     * @param level The DEFLATE level, from 1 (fastest) to 9 (smallest), or -1 for the default level.
+     */
+    @Autowired
+    public EmailBodyCodec(@Value("${email.body.compression-threshold:4096}") int threshold,
+                          @Value("${email.body.compression-level:-1}") int level) {
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String body) {
+        return body == null ? null : encode(body);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] data) {
+        return data == null ? null : decode(data);
+    }
+
+    /**
+     * <p>Encodes a body, compressing it when it reaches the threshold.</p>
+     *
+     * @param body The body.
+     * @return The encoded body, starting with its format header.
+     */
+    public byte[] encode(String body) {
+        byte[] utf8 = body.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= threshold) {
+            byte[] compressed = deflate(utf8);
+            if (compressed.length < utf8.length + 1) {
+                return compressed;
+            }
+        }
+        byte[] plain = new byte[utf8.length + 1];
+        plain[0] = FORMAT_PLAIN;
+        System.arraycopy(utf8, 0, plain, 1, utf8.length);
+        return plain;
+    }
+
+    /**
+     * <p>Decodes a body written by {@link #encode(String)}.</p>
+     *
+     * @param data The encoded body.
+     * @return The body.
+     * @throws IllegalArgumentException If the header is unknown or the data is corrupt.
+     */
+    public String decode(byte[] data) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("Invalid email body: missing format header");
+        }
+        return switch (data[0]) {
+            case FORMAT_PLAIN -> new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case FORMAT_DEFLATE -> new String(inflate(data), StandardCharsets.UTF_8);
+            default -> throw new IllegalArgumentException("Invalid email body: unknown format " + data[0]);
+        };
+    }
+
+    /**
+     * <p>Compresses UTF-8 bytes behind a {@link #FORMAT_DEFLATE} header.</p>
+     *
+     * @param utf8 The UTF-8 bytes of the body.
+     * @return The header followed by the compressed bytes.
+     */
+    private byte[] deflate(byte[] utf8) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(DEFLATE_HEADER_LENGTH + utf8.length / 4);
+            output.writeBytes(ByteBuffer.allocate(DEFLATE_HEADER_LENGTH).put(FORMAT_DEFLATE).putInt(utf8.length)
+                    .array());
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * <p>Decompresses a body written by {@link #deflate(byte[])}.</p>
+     *
+     * @param data The header followed by the compressed bytes.
+     * @return The UTF-8 bytes of the body.
+     */
+    private byte[] inflate(byte[] data) {
+        int length = ByteBuffer.wrap(data, 1, Integer.BYTES).getInt();
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, DEFLATE_HEADER_LENGTH, data.length - DEFLATE_HEADER_LENGTH);
+            byte[] utf8 = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int inflated = inflater.inflate(utf8, read, length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != length) {
+                throw new IllegalArgumentException("Invalid email body: truncated compressed data");
+            }
+            return utf8;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid email body: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * <p>Tells whether encoded data holds a compressed body.</p>
+     *
+     * @param data The encoded body.
+     * @return True if the body is compressed.
+     */
+    public static boolean isCompressed(byte[] data) {
+        return data.length > 0 && data[0] == FORMAT_DEFLATE;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.email.converter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Bounded cache that lets identical email addresses share one {@link String} instance.</p>
+ * <p>The cache is a fixed-size table indexed by the hash of the address. Each slot keeps the last address
+ * that hashed to it, so the memory used is bounded by the table size and lookups never lock; a colliding
+ * address simply replaces the previous one. Hits and misses are published as the
+ * {@code email.addresses.intern.hits} and {@code email.addresses.intern.misses} counters. Every hit is a
+ * duplicate {@link String} that is not retained.</p>
+ */
+@Component
+public class AddressInterner implements MeterBinder {
+
+    /**
+     * <p>The number of slots used when no size is configured.</p>
+     */
+    public static final int DEFAULT_SIZE = 4096;
+
+    private final AtomicReferenceArray<String> table;
+
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * <p>Creates an interner with {@value #DEFAULT_SIZE} slots.</p>
+     */
+    public AddressInterner() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * <p>Creates an interner with at least the given number of slots, rounded up to a power of two.</p>
+     *
+     * @param size The number of slots.
+     */
+    @Autowired
+    public AddressInterner(@Value("${email.addresses.intern-cache-size:4096}") int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * <p>Returns the cached instance equal to an address, or caches and returns the address itself.</p>
+     *
+     * @param address The address, may be null.
+     * @return An instance equal to {@code address}.
+     */
+    public String intern(String address) {
+        if (address == null) {
+            return null;
+        }
+        int hash = address.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = table.get(slot);
+        if (address.equals(cached)) {
+            hits.increment();
+            return cached;
+        }
+        table.set(slot, address);
+        misses.increment();
+        return address;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("email.addresses.intern.hits", hits, LongAdder::sum).register(registry);
+        FunctionCounter.builder("email.addresses.intern.misses", misses, LongAdder::sum).register(registry);
+    }
+}
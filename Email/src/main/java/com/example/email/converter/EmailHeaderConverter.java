@@ -0,0 +1,68 @@
+package com.example.email.converter;
+
+import com.example.email.dto.EmailAddressDTO;
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.entity.Email;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Converts {@link Email} entities to the {@link EmailHeaderDTO} objects of the list endpoints.</p>
+ * <p>Only the snippet computed by the database is read, so the lazy body of the email is never loaded.</p>
+ */
+@Component
+public class EmailHeaderConverter implements Converter<Email, EmailHeaderDTO> {
+
+    /**
+     * Makes the address DTOs of all converted emails share one instance per distinct address.
+     */
+    @Autowired
+    private AddressInterner addressInterner;
+
+    /**
+     * <p>Converts a {@link Email} entity to an {@link EmailHeaderDTO}.</p>
+     *
+     * @param email The {@link Email} entity to convert.
+     * @return The corresponding {@link EmailHeaderDTO} object.
+     */
+    @Override
+    public EmailHeaderDTO convert(Email email) {
+        EmailHeaderDTO headerDTO = new EmailHeaderDTO();
+        headerDTO.setEmailId(email.getEmailId());
+        headerDTO.setEmailFrom(email.getEmailFrom());
+        headerDTO.setSnippet(email.getEmailSnippet());
+        headerDTO.setState(email.getState().getStateCode());
+        headerDTO.setUpdatedAt(email.getUpdatedAt());
+
+        // emails stored in the array storage mode carry their addresses on the email row
+        headerDTO.setEmailTo(email.getEmailToAddresses() != null
+                ? toAddressDTOs(email.getEmailToAddresses())
+                : email.getEmailTo().stream()
+                        .map(emailTo -> new EmailAddressDTO(addressInterner.intern(emailTo.getEmailAddress())))
+                        .collect(Collectors.toList()));
+
+        headerDTO.setEmailCC(email.getEmailCCAddresses() != null
+                ? toAddressDTOs(email.getEmailCCAddresses())
+                : email.getEmailCC().stream()
+                        .map(emailCC -> new EmailAddressDTO(addressInterner.intern(emailCC.getEmailAddress())))
+                        .collect(Collectors.toList()));
+
+        return headerDTO;
+    }
+
+    /**
+     * <p>Converts email addresses to {@link EmailAddressDTO} objects.</p>
+     *
+     * @param addresses The email addresses.
+     * @return The corresponding {@link EmailAddressDTO} objects.
+     */
+    private List<EmailAddressDTO> toAddressDTOs(List<String> addresses) {
+        return addresses.stream()
+                .map(address -> new EmailAddressDTO(addressInterner.intern(address)))
+                .collect(Collectors.toList());
+    }
+}
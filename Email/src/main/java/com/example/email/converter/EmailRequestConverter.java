@@ -5,6 +5,7 @@ import com.example.email.entity.EmailCC;
 import com.example.email.entity.EmailStateEnum;
 import com.example.email.entity.EmailTo;
 import com.example.email.dto.EmailRequestDTO;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
@@ -17,6 +18,13 @@ import java.util.stream.Collectors;
  */
 @Component
 public class EmailRequestConverter implements Converter<EmailRequestDTO, Email> {
+
+    /**
+     * Makes the recipients of all converted emails share one instance per distinct address.
+     */
+    @Autowired
+    private AddressInterner addressInterner;
+
     /**
      * <p>Converts a {@link EmailRequestDTO} to an {@link Email} entity.</p>
      *
@@ -32,11 +40,11 @@ public class EmailRequestConverter implements Converter<EmailRequestDTO, Email>
         email.setState(EmailStateEnum.fromStateCode(emailRequestDTO.getState()));
 
         List<EmailTo> emailTos = emailRequestDTO.getEmailTo().stream()
-                .map(dto -> new EmailTo(email, dto.getEmail()))
+                .map(dto -> new EmailTo(email, addressInterner.intern(dto.getEmail())))
                 .collect(Collectors.toList());
 
         List<EmailCC> emailCCs = emailRequestDTO.getEmailCC().stream()
-                .map(dto -> new EmailCC(email, dto.getEmail()))
+                .map(dto -> new EmailCC(email, addressInterner.intern(dto.getEmail())))
                 .collect(Collectors.toList());
 
         email.setEmailTo(emailTos);
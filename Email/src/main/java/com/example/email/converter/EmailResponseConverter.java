@@ -4,9 +4,11 @@ import com.example.email.dto.EmailAddressDTO;
 import com.example.email.dto.EmailRequestDTO;
 import com.example.email.dto.EmailResponseDTO;
 import com.example.email.entity.Email;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -16,6 +18,12 @@ import java.util.stream.Collectors;
 @Component
 public class EmailResponseConverter implements Converter<Email, EmailResponseDTO> {
 
+    /**
+     * Makes the address DTOs of all converted emails share one instance per distinct address.
+     */
+    @Autowired
+    private AddressInterner addressInterner;
+
     /**
      * <p>Converts a {@link Email} entity to an {@link EmailResponseDTO}.</p>
      *
@@ -29,15 +37,34 @@ public class EmailResponseConverter implements Converter<Email, EmailResponseDTO
         responseDTO.setEmailFrom(email.getEmailFrom());
         responseDTO.setEmailBody(email.getEmailBody());
         responseDTO.setState(email.getState().getStateCode());
+        responseDTO.setUpdatedAt(email.getUpdatedAt());
 
-        responseDTO.setEmailTo(email.getEmailTo().stream()
-                .map(emailTo -> new EmailAddressDTO(emailTo.getEmailAddress()))
-                .collect(Collectors.toList()));
+        // emails stored in the array storage mode carry their addresses on the email row; an empty array reads the
+        // (then empty) rows, so an email whose mode is unknown is never returned without its recipients
+        responseDTO.setEmailTo(email.getEmailToAddresses() != null && !email.getEmailToAddresses().isEmpty()
+                ? toAddressDTOs(email.getEmailToAddresses())
+                : email.getEmailTo().stream()
+                        .map(emailTo -> new EmailAddressDTO(addressInterner.intern(emailTo.getEmailAddress())))
+                        .collect(Collectors.toList()));
 
-        responseDTO.setEmailCC(email.getEmailCC().stream()
-                .map(emailCC -> new EmailAddressDTO(emailCC.getEmailAddress()))
-                .collect(Collectors.toList()));
+        responseDTO.setEmailCC(email.getEmailCCAddresses() != null && !email.getEmailCCAddresses().isEmpty()
+                ? toAddressDTOs(email.getEmailCCAddresses())
+                : email.getEmailCC().stream()
+                        .map(emailCC -> new EmailAddressDTO(addressInterner.intern(emailCC.getEmailAddress())))
+                        .collect(Collectors.toList()));
 
         return responseDTO;
     }
+
+    /**
+     * <p>Converts email addresses to {@link EmailAddressDTO} objects.</p>
+     *
+     * @param addresses The email addresses.
+     * @return The corresponding {@link EmailAddressDTO} objects.
+     */
+    private List<EmailAddressDTO> toAddressDTOs(List<String> addresses) {
+        return addresses.stream()
+                .map(address -> new EmailAddressDTO(addressInterner.intern(address)))
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>Data Transfer Object (DTO) for the result of a batch delete.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailDeleteResultDTO {
+
+    /**
+     * <p>The number of emails that were deleted. IDs that did not exist are not counted.</p>
+     */
+    private int deleted;
+}
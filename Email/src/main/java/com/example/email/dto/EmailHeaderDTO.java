@@ -0,0 +1,59 @@
+package com.example.email.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * <p>Data Transfer Object (DTO) for an email in a list response.</p>
+ * <p>Carries the header fields and a snippet of the body; the full body is only returned by
+ * {@code GET /email/{id}}.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailHeaderDTO {
+
+    /**
+     * <p>The ID of the email.</p>
+     */
+    private Long emailId;
+
+    /**
+     * <p>The sender's email address.</p>
+     */
+    private String emailFrom;
+
+    /**
+     * <p>The beginning of the body content, at most {@code Email.SNIPPET_LENGTH} characters.</p>
+     */
+    private String snippet;
+
+    /**
+     * <p>The state of the email (e.g., 1 for Sent, 2 for Draft, etc.).</p>
+     */
+    private int state;
+
+    /**
+     * <p>A list of recipients in the "To" field.</p>
+     */
+    private List<EmailAddressDTO> emailTo;
+
+    /**
+     * <p>A list of recipients in the "CC" field.</p>
+     */
+    private List<EmailAddressDTO> emailCC;
+
+    /**
+     * <p>The time of the last update of the email, from which the ETag of the response is derived.</p>
+     * <p>Not serialized.</p>
+     */
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+}
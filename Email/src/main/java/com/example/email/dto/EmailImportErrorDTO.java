@@ -0,0 +1,26 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>Data Transfer Object (DTO) describing a line of an import that could not be imported.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailImportErrorDTO {
+
+    /**
+     * <p>The line number (starting at 1) of the rejected line.</p>
+     */
+    private long line;
+
+    /**
+     * <p>The reason why the line was rejected.</p>
+     */
+    private String message;
+}
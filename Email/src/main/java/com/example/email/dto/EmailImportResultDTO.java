@@ -0,0 +1,40 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Data Transfer Object (DTO) for the summary of a bulk import.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailImportResultDTO {
+
+    /**
+     * <p>The number of non-blank lines read from the upload.</p>
+     */
+    private long processed;
+
+    /**
+     * <p>The number of emails written to the database.</p>
+     */
+    private long imported;
+
+    /**
+     * <p>The number of lines that were rejected.</p>
+     */
+    private long failed;
+
+    /**
+     * <p>The rejected lines, capped at the configured maximum of reported errors.</p>
+     */
+    @Builder.Default
+    private List<EmailImportErrorDTO> errors = new ArrayList<>();
+}
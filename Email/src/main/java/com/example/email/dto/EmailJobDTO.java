@@ -0,0 +1,73 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Data Transfer Object (DTO) for the progress of an asynchronous batch job.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailJobDTO {
+
+    /**
+     * <p>The ID of the job.</p>
+     */
+    private Long jobId;
+
+    /**
+     * <p>The kind of job: CREATE or UPDATE.</p>
+     */
+    private String type;
+
+    /**
+     * <p>The status of the job: QUEUED, RUNNING or COMPLETED.</p>
+     */
+    private String status;
+
+    /**
+     * <p>The number of items of the batch.</p>
+     */
+    private int total;
+
+    /**
+     * <p>The number of items processed so far, successfully or not.</p>
+     */
+    private int processed;
+
+    /**
+     * <p>The number of items that were written.</p>
+     */
+    private int succeeded;
+
+    /**
+     * <p>The number of items that were rejected; they are listed by {@code GET /emails/jobs/{id}/failures}.</p>
+     */
+    private int failed;
+
+    /**
+     * <p>The number of items processed per second since the job started, or 0 before it started.</p>
+     */
+    private double itemsPerSecond;
+
+    /**
+     * <p>When the job was accepted.</p>
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * <p>When a worker first started the job, or null while it is queued.</p>
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * <p>When the job completed, or null while it is not completed.</p>
+     */
+    private LocalDateTime finishedAt;
+}
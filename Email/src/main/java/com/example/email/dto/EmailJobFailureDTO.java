@@ -0,0 +1,31 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>Data Transfer Object (DTO) describing an item of a batch job that could not be processed.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailJobFailureDTO {
+
+    /**
+     * <p>The position (starting at 0) of the item in the submitted batch.</p>
+     */
+    private int item;
+
+    /**
+     * <p>The ID of the email the item referred to, or null for items creating an email.</p>
+     */
+    private Long emailId;
+
+    /**
+     * <p>The reason why the item was rejected.</p>
+     */
+    private String message;
+}
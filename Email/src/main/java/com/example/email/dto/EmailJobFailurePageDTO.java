@@ -0,0 +1,28 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * <p>Data Transfer Object (DTO) for a page of the failed items of a batch job.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailJobFailurePageDTO {
+
+    /**
+     * <p>The failed items of the page, in batch order.</p>
+     */
+    private List<EmailJobFailureDTO> failures;
+
+    /**
+     * <p>Opaque cursor to pass as {@code cursor} to get the next page, or null if this is the last page.</p>
+     */
+    private String next;
+}
@@ -0,0 +1,28 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * <p>Data Transfer Object (DTO) for a page of emails.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailPageDTO {
+
+    /**
+     * <p>The emails of the page, in ascending ID order.</p>
+     */
+    private List<EmailHeaderDTO> emails;
+
+    /**
+     * <p>Opaque cursor to pass as {@code cursor} to get the next page, or null if this is the last page.</p>
+     */
+    private String next;
+}
@@ -1,10 +1,12 @@
 package com.example.email.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -47,4 +49,11 @@ public class EmailResponseDTO {
      * <p>Each CC recipient is represented by an {@link EmailAddressDTO} object.</p>
      */
     private List<EmailAddressDTO> emailCC;
+
+    /**
+     * <p>The time of the last update of the email, from which the ETag of the response is derived.</p>
+     * <p>Not serialized.</p>
+     */
+    @JsonIgnore
+    private LocalDateTime updatedAt;
 }
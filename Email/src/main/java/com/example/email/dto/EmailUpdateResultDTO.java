@@ -0,0 +1,36 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>Data Transfer Object (DTO) for the outcome of updating a single email in a batch update.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailUpdateResultDTO {
+
+    /**
+     * <p>The ID of the email the update was requested for.</p>
+     */
+    private Long emailId;
+
+    /**
+     * <p>The outcome of the update: UPDATED, NOT_FOUND or INVALID_STATE.</p>
+     */
+    private String status;
+
+    /**
+     * <p>The reason why the email was not updated, or null if it was.</p>
+     */
+    private String message;
+
+    /**
+     * <p>The updated email, or null if it was not updated.</p>
+     */
+    private EmailResponseDTO email;
+}
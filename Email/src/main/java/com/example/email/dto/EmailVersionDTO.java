@@ -0,0 +1,28 @@
+package com.example.email.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Data Transfer Object (DTO) for the version of an email, from which its ETag is derived.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailVersionDTO {
+
+    /**
+     * <p>The ID of the email.</p>
+     */
+    private Long emailId;
+
+    /**
+     * <p>The time of the last update of the email.</p>
+     */
+    private LocalDateTime updatedAt;
+}
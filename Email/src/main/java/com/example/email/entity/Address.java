@@ -0,0 +1,35 @@
+package com.example.email.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * <p>Represents an entry of the address dictionary.</p>
+ * <p>This class maps to the "addresses" table, which stores every distinct recipient address once. It is only
+ * read through the recipients, which join it when they are loaded; entries are added by the
+ * {@code address_id_of} function when recipients are written.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "addresses")
+public class Address {
+
+    /**
+     * <p>The unique ID of the address.</p>
+     */
+    @Id
+    @Column(name = "address_id")
+    private Long addressId;
+
+    /**
+     * <p>The email address.</p>
+     */
+    @Column(name = "address", nullable = false)
+    private String address;
+}
@@ -1,5 +1,6 @@
 package com.example.email.entity;
 
+import com.example.email.compression.EmailBodyCodec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
@@ -7,11 +8,17 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.JdbcType;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.dialect.PostgreSQLEnumJdbcType;
+import org.hibernate.type.SqlTypes;
 
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 /**
@@ -27,11 +34,23 @@ import java.util.List;
 @Table(name = "emails")
 public class Email {
 
+    /**
+     * <p>Number of emails whose recipient collections are loaded together in a single {@code IN} query
+     * when one of them is first accessed, which avoids one query per email on list reads.</p>
+     */
+    public static final int RECIPIENT_BATCH_SIZE = 100;
+
+    /**
+     * <p>Number of characters of the body returned as snippet by the list endpoints.</p>
+     */
+    public static final int SNIPPET_LENGTH = 200;
+
     /**
      * <p>The unique ID of the email.</p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_seq")
+    @SequenceGenerator(name = "email_seq", sequenceName = "emails_seq", allocationSize = 50)
     @Column(name = "email_id")
     private Long emailId;
 
@@ -43,10 +62,39 @@ public class Email {
 
     /**
      * <p>The body content of the email.</p>
+     * <p>Loaded lazily on first access, so list queries do not read it; requires the bytecode enhancement
+     * done by the {@code hibernate-enhance-maven-plugin}. Stored once per distinct content in "email_bodies",
+     * encoded by the {@link EmailBodyCodec}, so decompression also only happens on first access. The body is
+     * never written through this attribute: {@code EmailBodyDao.storeBodies} stores it and sets
+     * {@link #bodyHash}, either for a whole batch before it is written or, for any other write, from the
+     * {@code EmailBodyListener} when the email is flushed. Rows not migrated yet by the {@code EmailBodyMigration}
+     * are read from the legacy "email_body_data" and "email_body" columns.</p>
      */
-    @Column(name = "email_body", nullable = false)
+    @Basic(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @Convert(converter = EmailBodyCodec.class)
+    @ColumnTransformer(read = "coalesce(email_body_of(body_hash), email_body_data, "
+            + "decode('00', 'hex') || convert_to(email_body, 'UTF8'))")
+    @Column(name = "email_body_data", insertable = false, updatable = false)
     private String emailBody;
 
+    /**
+     * <p>The SHA-256 hash of the body, which references it in "email_bodies".</p>
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @Column(name = "body_hash")
+    private byte[] bodyHash;
+
+    /**
+     * <p>The first {@value #SNIPPET_LENGTH} characters of the body, kept in sync by
+     * {@link #setEmailBody(String)}.</p>
+     */
+    @JsonIgnore
+    @ColumnTransformer(read = "coalesce(email_snippet, left(email_body, " + SNIPPET_LENGTH + "))")
+    @Column(name = "email_snippet", length = SNIPPET_LENGTH)
+    private String emailSnippet;
+
     /**
      * <p>The state of the email (e.g., Sent, Draft, etc.).</p>
      */
@@ -55,6 +103,17 @@ public class Email {
     @JdbcType(PostgreSQLEnumJdbcType.class)
     private EmailStateEnum state;
 
+    /**
+     * <p>The number of times the email was updated.</p>
+     * <p>Incremented by every update, so that an update that only changes recipient rows still writes the email
+     * and {@link #updateTimestamp()} renews its update time at flush. New recipients copy the update time
+     * stored before that flush, which the partitioned schema requires, and the database cascades the new one to
+     * them.</p>
+     */
+    @JsonIgnore
+    @Column(name = "revision", nullable = false)
+    private int revision;
+
     /**
      * <p>The timestamp indicating the last update time of the email.</p>
      */
@@ -67,6 +126,7 @@ public class Email {
      * <p>Each recipient is an instance of {@link EmailTo}.</p>
      */
     @OneToMany(mappedBy = "email", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = RECIPIENT_BATCH_SIZE)
     @JsonManagedReference
     private List<EmailTo> emailTo;
 
@@ -75,16 +135,67 @@ public class Email {
      * <p>Each CC recipient is an instance of {@link EmailCC}.</p>
      */
     @OneToMany(mappedBy = "email", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = RECIPIENT_BATCH_SIZE)
     @JsonManagedReference
     private List<EmailCC> emailCC;
 
+    /**
+     * <p>Addresses of the "To" recipients when the email is stored with {@link RecipientStorageEnum#ARRAY}.</p>
+     * <p>Null when the recipients are stored as {@link EmailTo} rows.</p>
+     */
+    @JsonIgnore
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "email_to_addresses")
+    private List<String> emailToAddresses;
+
+    /**
+     * <p>Addresses of the CC recipients when the email is stored with {@link RecipientStorageEnum#ARRAY}.</p>
+     * <p>Null when the recipients are stored as {@link EmailCC} rows.</p>
+     */
+    @JsonIgnore
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "email_cc_addresses")
+    private List<String> emailCCAddresses;
+
+    /**
+     * <p>Sets the body of the email and its snippet, and clears {@link #bodyHash}.</p>
+     * <p>The body column is not written by Hibernate, so clearing the hash is what makes a changed body dirty:
+     * the {@code EmailBodyListener} then stores the new body when the email is flushed, unless
+     * {@code EmailBodyDao.storeBodies} already did.</p>
+     *
+     * @param emailBody The body content of the email.
+     */
+    public void setEmailBody(String emailBody) {
+        this.emailBody = emailBody;
+        this.emailSnippet = snippetOf(emailBody);
+        this.bodyHash = null;
+    }
+
     /**
      * <p>Updates the "updatedAt" field before persisting or updating the email.</p>
-     * <p>This method is automatically called before saving or updating the email in the database.</p>
+     * <p>This method is automatically called before saving or updating the email in the database. It also
+     * fills the snippet of emails created with the builder.</p>
      */
     @PrePersist
     @PreUpdate
     public void updateTimestamp() {
-        this.updatedAt = LocalDateTime.now();
+        // PostgreSQL keeps microseconds, so the in-memory value matches the stored one and the derived ETags
+        this.updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (this.emailSnippet == null && this.emailBody != null) {
+            this.emailSnippet = snippetOf(this.emailBody);
+        }
+    }
+
+    /**
+     * <p>Returns the snippet of a body: its first {@value #SNIPPET_LENGTH} characters.</p>
+     *
+     * @param emailBody The body, may be null.
+     * @return The snippet, or null if {@code emailBody} is null.
+     */
+    public static String snippetOf(String emailBody) {
+        if (emailBody == null || emailBody.length() <= SNIPPET_LENGTH) {
+            return emailBody;
+        }
+        return emailBody.substring(0, SNIPPET_LENGTH);
     }
 }
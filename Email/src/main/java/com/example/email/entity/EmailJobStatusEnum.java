@@ -0,0 +1,22 @@
+package com.example.email.entity;
+
+/**
+ * <p>Enum representing the lifecycle of an asynchronous batch job.</p>
+ */
+public enum EmailJobStatusEnum {
+
+    /**
+     * <p>Accepted and waiting for a worker.</p>
+     */
+    QUEUED,
+
+    /**
+     * <p>Being processed, chunk by chunk. A job whose worker stopped is picked up again by another worker.</p>
+     */
+    RUNNING,
+
+    /**
+     * <p>Every item was processed, successfully or not.</p>
+     */
+    COMPLETED
+}
@@ -0,0 +1,17 @@
+package com.example.email.entity;
+
+/**
+ * <p>Enum representing the kinds of asynchronous batch jobs.</p>
+ */
+public enum EmailJobTypeEnum {
+
+    /**
+     * <p>Creates the emails of the batch, like {@code POST /emails}.</p>
+     */
+    CREATE,
+
+    /**
+     * <p>Updates the draft emails of the batch, like {@code PUT /emails}.</p>
+     */
+    UPDATE
+}
@@ -7,6 +7,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnTransformer;
+
+import java.time.LocalDateTime;
 
 /**
  * <p>Represents an email recipient (To).</p>
@@ -25,7 +28,8 @@ public class EmailTo {
      * <p>The unique ID of the recipient in the "To" field.</p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_to_seq")
+    @SequenceGenerator(name = "email_to_seq", sequenceName = "email_to_seq", allocationSize = 50)
     @Column(name = "to_id")
     @JsonIgnore
     private Long toId;
@@ -41,10 +45,33 @@ public class EmailTo {
 
     /**
      * <p>The email address of the recipient in the "To" field.</p>
+     * <p>The row only stores the ID of the address in the "addresses" dictionary. The address is added to the
+     * dictionary by {@code address_id_of} when the recipient is inserted, and copied from {@link #address}
+     * when it is loaded; the column itself is not read back.</p>
      */
-    @Column(name = "email", nullable = false)
+    @Column(name = "address_id", nullable = false, updatable = false, columnDefinition = "int8")
+    @ColumnTransformer(read = "null", write = "address_id_of(?)")
     private String emailAddress;
 
+    /**
+     * <p>The dictionary entry of the address.</p>
+     * <p>Joined by the query loading the recipients, so the addresses of a batch of emails are read by that
+     * single query instead of one dictionary lookup per row.</p>
+     */
+    @ManyToOne(fetch = FetchType.EAGER, optional = false)
+    @JoinColumn(name = "address_id", insertable = false, updatable = false)
+    @JsonIgnore
+    private Address address;
+
+    /**
+     * <p>Copy of the update timestamp of the associated email, set when the recipient is inserted.</p>
+     * <p>In the partitioned schema it is the partition key, kept in sync by the database through
+     * {@code ON UPDATE CASCADE}, which is why it is never updated from here.</p>
+     */
+    @JsonIgnore
+    @Column(name = "updated_at", updatable = false)
+    private LocalDateTime updatedAt;
+
     /**
      * <p>Constructor to create a new {@link EmailTo} object with an email and an email address.</p>
      *
@@ -55,4 +82,35 @@ public class EmailTo {
         this.email = email;
         this.emailAddress = emailAddress;
     }
+
+    /**
+     * <p>Constructor to create a new {@link EmailTo} object with an ID, an email and an email address.</p>
+     *
+     * @param toId The ID of the recipient.
+     * @param email The associated email.
+     * @param emailAddress The email address of the recipient in the "To" field.
+     */
+    public EmailTo(Long toId, Email email, String emailAddress) {
+        this.toId = toId;
+        this.email = email;
+        this.emailAddress = emailAddress;
+    }
+
+    /**
+     * <p>Copies the address of the dictionary entry joined when the recipient is loaded.</p>
+     */
+    @PostLoad
+    public void copyAddress() {
+        this.emailAddress = address.getAddress();
+    }
+
+    /**
+     * <p>Copies the update timestamp of the associated email before the recipient is inserted.</p>
+     */
+    @PrePersist
+    public void copyEmailTimestamp() {
+        if (email != null) {
+            this.updatedAt = email.getUpdatedAt();
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package com.example.email.entity;
+
+/**
+ * <p>Enum representing how the To and CC recipients of new and updated emails are stored.</p>
+ * <p>Configured with {@code email.recipients.storage}. Emails keep the representation they were written
+ * with until they are updated, and both representations are read transparently.</p>
+ */
+public enum RecipientStorageEnum {
+
+    /**
+     * <p>One row per recipient in the "email_to" and "email_cc" tables.</p>
+     */
+    TABLE,
+
+    /**
+     * <p>The addresses are kept in the "email_to_addresses" and "email_cc_addresses" array columns of
+     * the "emails" table.</p>
+     */
+    ARRAY
+}
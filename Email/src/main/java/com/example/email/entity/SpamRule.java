@@ -0,0 +1,48 @@
+package com.example.email.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>Represents a spam rule.</p>
+ * <p>This class maps to the "spam_rules" table in the database. Enabled rules are compiled by the spam
+ * classifier and applied to every email when it is created.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "spam_rules")
+public class SpamRule {
+
+    /**
+     * <p>The unique ID of the rule.</p>
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rule_id")
+    private Long ruleId;
+
+    /**
+     * <p>The kind of rule, which defines what the pattern is matched against.</p>
+     */
+    @Column(name = "rule_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private SpamRuleTypeEnum ruleType;
+
+    /**
+     * <p>The sender address, domain or phrase of the rule.</p>
+     */
+    @Column(name = "pattern", nullable = false)
+    private String pattern;
+
+    /**
+     * <p>Whether the rule is applied.</p>
+     */
+    @Column(name = "enabled", nullable = false)
+    private boolean enabled;
+}
@@ -0,0 +1,22 @@
+package com.example.email.entity;
+
+/**
+ * <p>Enum representing the kinds of spam rules.</p>
+ */
+public enum SpamRuleTypeEnum {
+
+    /**
+     * <p>Matches the exact sender address (case-insensitive).</p>
+     */
+    SENDER,
+
+    /**
+     * <p>Matches the domain of the sender address, including its subdomains (case-insensitive).</p>
+     */
+    DOMAIN,
+
+    /**
+     * <p>Matches a phrase anywhere in the email body (case-insensitive).</p>
+     */
+    PHRASE
+}
@@ -0,0 +1,125 @@
+package com.example.email.facade;
+
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.dto.EmailPageDTO;
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.dto.EmailVersionDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Derives the strong ETags of the read endpoints from the update times of the emails.</p>
+ * <p>The ETag of an email is its ID and update time. The ETag of a page is a hash of the IDs and update times
+ * of its emails and of whether a next page exists, which is everything its representation depends on: any
+ * email of the page updated, deleted, added or moved to another state changes it. The same ETag is computed
+ * from a response and from the versions read by the version-only queries, so a conditional request can be
+ * answered without loading the emails.</p>
+ */
+public final class EmailETags {
+
+    private EmailETags() {
+    }
+
+    /**
+     * <p>Returns the ETag of an email response.</p>
+     *
+     * @param email The email.
+     * @return The quoted ETag.
+     */
+    public static String of(EmailResponseDTO email) {
+        return of(new EmailVersionDTO(email.getEmailId(), email.getUpdatedAt()));
+    }
+
+    /**
+     * <p>Returns the ETag of an email from its version.</p>
+     *
+     * @param version The version of the email.
+     * @return The quoted ETag.
+     */
+    public static String of(EmailVersionDTO version) {
+        return "\"" + version.getEmailId() + "-" + micros(version.getUpdatedAt()) + "\"";
+    }
+
+    /**
+     * <p>Returns the ETag of a page of emails.</p>
+     *
+     * @param page The page.
+     * @return The quoted ETag.
+     */
+    public static String of(EmailPageDTO page) {
+        List<EmailVersionDTO> versions = page.getEmails().stream()
+                .map(EmailETags::versionOf)
+                .collect(Collectors.toList());
+        return ofPage(versions, page.getNext() != null);
+    }
+
+    /**
+     * <p>Returns the ETag of a page of emails from the versions of its emails.</p>
+     *
+     * @param versions The versions of the emails of the page, in page order.
+     * @param hasNext Whether a next page exists.
+     * @return The quoted ETag.
+     */
+    public static String ofPage(List<EmailVersionDTO> versions, boolean hasNext) {
+        StringBuilder content = new StringBuilder();
+        versions.forEach(version -> content.append(version.getEmailId()).append(':')
+                .append(micros(version.getUpdatedAt())).append('\n'));
+        content.append(hasNext ? "next" : "last");
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.toString()
+                    .getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * <p>Tells whether an {@code If-None-Match} header matches an ETag, with the weak comparison required for
+     * {@code If-None-Match}.</p>
+     *
+     * @param ifNoneMatch The value of the header: {@code *} or a comma-separated list of ETags.
+     * @param eTag The quoted ETag of the current representation.
+     * @return True if the client already has the current representation.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        String current = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static EmailVersionDTO versionOf(EmailHeaderDTO header) {
+        return new EmailVersionDTO(header.getEmailId(), header.getUpdatedAt());
+    }
+
+    /**
+     * <p>Converts an update time to microseconds since the epoch, the precision stored by PostgreSQL.</p>
+     *
+     * @param updatedAt The update time, null for rows written before it was tracked.
+     * @return The microseconds, 0 for null.
+     */
+    private static long micros(LocalDateTime updatedAt) {
+        if (updatedAt == null) {
+            return 0;
+        }
+        return ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), updatedAt);
+    }
+}
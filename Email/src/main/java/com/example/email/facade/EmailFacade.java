@@ -1,17 +1,46 @@
 package com.example.email.facade;
 
+import com.example.email.cache.EmailCache;
+import com.example.email.converter.EmailHeaderConverter;
 import com.example.email.converter.EmailRequestConverter;
 import com.example.email.converter.EmailResponseConverter;
 import com.example.email.entity.Email;
+import com.example.email.dto.EmailDeleteResultDTO;
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.dto.EmailImportResultDTO;
+import com.example.email.dto.EmailJobDTO;
+import com.example.email.dto.EmailJobFailureDTO;
+import com.example.email.dto.EmailJobFailurePageDTO;
+import com.example.email.dto.EmailPageDTO;
 import com.example.email.dto.EmailRequestDTO;
 import com.example.email.dto.EmailResponseDTO;
+import com.example.email.dto.EmailUpdateResultDTO;
+import com.example.email.dto.EmailVersionDTO;
+import com.example.email.entity.EmailJobTypeEnum;
 import com.example.email.entity.EmailStateEnum;
+import com.example.email.service.EmailImportServiceImpl;
+import com.example.email.service.EmailJobServiceImpl;
+import com.example.email.service.EmailQueryServiceImpl;
 import com.example.email.service.EmailServiceImpl;
+import com.example.email.service.EmailUpdateResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -22,15 +51,50 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class EmailFacade {
 
+    /**
+     * <p>The maximum number of emails returned in a single page.</p>
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     private EmailServiceImpl emailService;
 
+    @Autowired
+    private EmailImportServiceImpl emailImportService;
+
+    @Autowired
+    private EmailQueryServiceImpl emailQueryService;
+
+    @Autowired
+    private EmailJobServiceImpl emailJobService;
+
     @Autowired
     private EmailRequestConverter emailRequestConverter;
 
     @Autowired
     private EmailResponseConverter emailResponseConverter;
 
+    @Autowired
+    private EmailHeaderConverter emailHeaderConverter;
+
+    @Autowired
+    private EmailCache emailCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Concurrent requests for the same page of a state share one query.
+     */
+    private final SingleFlight<StatePageKey, EmailPageDTO> statePageLoads = new SingleFlight<>();
+
+    /**
+     * Whether the read endpoints use the DTO projections of {@link EmailQueryServiceImpl} instead of
+     * converting managed entities.
+     */
+    @Value("${email.read.projection:true}")
+    private boolean projectionReads;
+
     /**
      * <p>Creates a new email.</p>
      *
@@ -65,41 +129,182 @@ public class EmailFacade {
     }
 
     /**
-     * <p>Retrieves all emails.</p>
+     * <p>Imports emails from a newline-delimited JSON stream.</p>
      *
-     * @return List<EmailResponseDTO> The list of all emails.
+     * @param inputStream The NDJSON stream, one {@link EmailRequestDTO} per line.
+     * @return EmailImportResultDTO The summary of the import.
+     * @throws IOException If the stream cannot be read.
      */
-    public List<EmailResponseDTO> getAllEmails() {
-        List<Email> emails = emailService.getAllEmails();
+    public EmailImportResultDTO importEmails(InputStream inputStream) throws IOException {
+        return emailImportService.importEmails(inputStream);
+    }
 
-        return emails.stream()
-                .map(emailResponseConverter::convert)
-                .collect(Collectors.toList());
+    /**
+     * <p>Retrieves a page of emails.</p>
+     *
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return EmailPageDTO The page of emails and the cursor of the next page.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    public EmailPageDTO getAllEmails(String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        long afterId = decodeCursor(cursor);
+        List<EmailHeaderDTO> emails = projectionReads
+                ? emailQueryService.getAllEmails(afterId, pageSize + 1)
+                : convertHeaders(emailService.getAllEmails(afterId, pageSize + 1));
+
+        return toPage(emails, pageSize);
+    }
+
+    /**
+     * <p>Writes emails as newline-delimited JSON, one {@link EmailResponseDTO} per line.</p>
+     * <p>Each email is converted and written as soon as it is read, so memory use does not depend on
+     * the number of emails. Unlike the pages, the export carries the full bodies.</p>
+     *
+     * @param state The state code of the emails to export, or null to export all emails.
+     * @param outputStream The stream to write to.
+     * @throws IOException If the output cannot be written.
+     * @throws IllegalArgumentException If the state code is unknown.
+     */
+    public void exportEmails(Integer state, OutputStream outputStream) throws IOException {
+        EmailStateEnum emailState = state == null ? null : EmailStateEnum.fromStateCode(state);
+        ObjectWriter writer = objectMapper.writerFor(EmailResponseDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Consumer<EmailResponseDTO> write = email -> {
+                try {
+                    writer.writeValue(generator, email);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            try {
+                if (projectionReads) {
+                    emailQueryService.streamEmails(emailState, write);
+                } else {
+                    // the lazy body of every email is loaded with its own statement on this path
+                    emailService.streamEmails(emailState, email -> write.accept(emailResponseConverter.convert(email)));
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
     }
 
     /**
      * <p>Retrieves an email by its ID.</p>
+     * <p>Served from the {@link EmailCache}; only a miss reads the database. The cache coalesces concurrent misses
+     * on the same ID, so a burst of requests for an email that is not cached yet costs one query.</p>
      *
      * @param emailId The ID of the email to retrieve.
      * @return EmailResponseDTO The email corresponding to the provided ID.
      */
     public EmailResponseDTO getEmailById(Long emailId) {
-        Email email = emailService.getEmailById(emailId);
-        return emailResponseConverter.convert(email);
+        return emailCache.get(emailId, this::loadEmail);
+    }
+
+    /**
+     * <p>Returns the ETag of an email, reading only its version.</p>
+     * <p>Used to answer conditional requests without loading the email; equal to the ETag derived from
+     * {@link #getEmailById(Long)} by {@link EmailETags#of(EmailResponseDTO)}.</p>
+     *
+     * @param emailId The ID of the email.
+     * @return The ETag, or null if the email does not exist.
+     */
+    public String getEmailETag(Long emailId) {
+        return emailQueryService.getEmailVersion(emailId)
+                .map(EmailETags::of)
+                .orElse(null);
+    }
+
+    /**
+     * <p>Returns the ETag of a page of emails with a specific state, reading only the versions of its emails.</p>
+     * <p>Used to answer conditional requests without loading the page; equal to the ETag derived from
+     * {@link #getEmailsByState(int, String, int)} by {@link EmailETags#of(EmailPageDTO)}.</p>
+     *
+     * @param state The state of the emails.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails in the page, capped at {@link #MAX_PAGE_SIZE}.
+     * @return The ETag.
+     * @throws IllegalArgumentException If the state or the cursor is not valid.
+     */
+    public String getEmailsByStateETag(int state, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        EmailStateEnum emailState = EmailStateEnum.fromStateCode(state);
+        long afterId = decodeCursor(cursor);
+        List<EmailVersionDTO> versions = emailQueryService.getEmailVersionsByState(emailState, afterId,
+                pageSize + 1);
+
+        boolean hasNext = versions.size() > pageSize;
+        return EmailETags.ofPage(hasNext ? versions.subList(0, pageSize) : versions, hasNext);
     }
 
     /**
-     * <p>Retrieves all emails with a specific state.</p>
+     * <p>Retrieves a page of emails with a specific state.</p>
+     * <p>Concurrent requests for the same page are coalesced into one query and share the returned page.</p>
      *
      * @param state The state of the emails to retrieve.
-     * @return List<EmailResponseDTO> The list of emails with the specified state.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return EmailPageDTO The page of emails and the cursor of the next page.
+     * @throws IllegalArgumentException If the state or the cursor is not valid.
      */
-    public List<EmailResponseDTO> getEmailsByState(int state) {
-        List<Email> emails = emailService.getEmailsByState(EmailStateEnum.fromStateCode(state));
+    public EmailPageDTO getEmailsByState(int state, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        EmailStateEnum emailState = EmailStateEnum.fromStateCode(state);
+        long afterId = decodeCursor(cursor);
 
-        return emails.stream()
-                .map(emailResponseConverter::convert)
-                .collect(Collectors.toList());
+        return statePageLoads.execute(new StatePageKey(emailState, afterId, pageSize), () -> {
+            List<EmailHeaderDTO> emails = projectionReads
+                    ? emailQueryService.getEmailsByState(emailState, afterId, pageSize + 1)
+                    : convertHeaders(emailService.getEmailsByState(emailState, afterId, pageSize + 1));
+            return toPage(emails, pageSize);
+        });
+    }
+
+    /**
+     * <p>Retrieves a page of the emails last updated within {@code [from, to)}.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return EmailPageDTO The page of emails and the cursor of the next page.
+     * @throws IllegalArgumentException If the range or the cursor is not valid.
+     */
+    public EmailPageDTO getEmailsUpdatedBetween(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Invalid range: from must be before to");
+        }
+        int pageSize = pageSize(limit);
+        long afterId = decodeCursor(cursor);
+        List<EmailHeaderDTO> emails = projectionReads
+                ? emailQueryService.getEmailsUpdatedBetween(from, to, afterId, pageSize + 1)
+                : convertHeaders(emailService.getEmailsUpdatedBetween(from, to, afterId, pageSize + 1));
+
+        return toPage(emails, pageSize);
+    }
+
+    /**
+     * <p>Retrieves a page of the emails sent to an address.</p>
+     * <p>Always served by the projections of {@link EmailQueryServiceImpl}.</p>
+     *
+     * @param address The "To" address.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return EmailPageDTO The page of emails and the cursor of the next page.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    public EmailPageDTO getEmailsByRecipient(String address, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        long afterId = decodeCursor(cursor);
+        List<EmailHeaderDTO> emails = emailQueryService.getEmailsByRecipient(address, afterId, pageSize + 1);
+
+        return toPage(emails, pageSize);
     }
 
     /**
@@ -128,20 +333,75 @@ public class EmailFacade {
      * <p>Updates multiple emails in batch.</p>
      *
      * @param emailsToUpdate List of {@link EmailRequestDTO} objects containing the emails to be updated.
-     * @return List<EmailResponseDTO> The list of updated emails.
+     * @return List<EmailUpdateResultDTO> The outcome of each update, in request order.
      */
-    public List<EmailResponseDTO> updateEmails(List<EmailRequestDTO> emailsToUpdate) {
+    public List<EmailUpdateResultDTO> updateEmails(List<EmailRequestDTO> emailsToUpdate) {
         List<Email> emails = emailsToUpdate.stream()
                 .map(emailRequestConverter::convert)
                 .collect(Collectors.toList());
 
-        List<Email> updatedEmails = emailService.updateEmails(emails);
+        List<EmailUpdateResult> results = emailService.updateEmails(emails);
 
-        return updatedEmails.stream()
-                .map(emailResponseConverter::convert)
+        return results.stream()
+                .map(result -> new EmailUpdateResultDTO(
+                        result.getEmailId(),
+                        result.getStatus().name(),
+                        result.getMessage(),
+                        result.getEmail() == null ? null : emailResponseConverter.convert(result.getEmail())))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * <p>Submits a batch of emails to be created in the background.</p>
+     *
+     * @param emailsToCreate The details of the emails to be created.
+     * @return EmailJobDTO The queued job.
+     */
+    public EmailJobDTO submitCreateJob(List<EmailRequestDTO> emailsToCreate) {
+        return emailJobService.submitJob(EmailJobTypeEnum.CREATE, emailsToCreate);
+    }
+
+    /**
+     * <p>Submits a batch of emails to be updated in the background.</p>
+     *
+     * @param emailsToUpdate The details of the emails to be updated, including their IDs.
+     * @return EmailJobDTO The queued job.
+     */
+    public EmailJobDTO submitUpdateJob(List<EmailRequestDTO> emailsToUpdate) {
+        return emailJobService.submitJob(EmailJobTypeEnum.UPDATE, emailsToUpdate);
+    }
+
+    /**
+     * <p>Retrieves the progress of a batch job.</p>
+     *
+     * @param jobId The ID of the job.
+     * @return EmailJobDTO The job.
+     */
+    public EmailJobDTO getJob(Long jobId) {
+        return emailJobService.getJob(jobId);
+    }
+
+    /**
+     * <p>Retrieves a page of the failed items of a batch job.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of failed items to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return EmailJobFailurePageDTO The page of failed items and the cursor of the next page.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    public EmailJobFailurePageDTO getJobFailures(Long jobId, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        // item indexes start at 0, so the first page starts after -1
+        long afterItem = cursor == null || cursor.isBlank() ? -1 : decodeCursor(cursor);
+        List<EmailJobFailureDTO> failures = emailJobService.getJobFailures(jobId, afterItem, pageSize + 1);
+
+        boolean hasNext = failures.size() > pageSize;
+        List<EmailJobFailureDTO> page = hasNext ? failures.subList(0, pageSize) : failures;
+        String next = hasNext ? encodeCursor(page.get(page.size() - 1).getItem()) : null;
+        return new EmailJobFailurePageDTO(page, next);
+    }
+
     /**
      * <p>Deletes an email by its ID.</p>
      *
@@ -155,8 +415,100 @@ public class EmailFacade {
      * <p>Deletes multiple emails in batch.</p>
      *
      * @param emailIds List of IDs of the emails to delete.
+     * @return EmailDeleteResultDTO The number of deleted emails.
+     */
+    public EmailDeleteResultDTO deleteEmails(List<Long> emailIds) {
+        return new EmailDeleteResultDTO(emailService.deleteEmails(emailIds));
+    }
+
+    /**
+     * <p>Loads an email from the database.</p>
+     *
+     * @param emailId The ID of the email to load.
+     * @return EmailResponseDTO The email.
+     * @throws com.example.email.service.exceptions.ResourceNotFoundException If the email does not exist.
+     */
+    private EmailResponseDTO loadEmail(Long emailId) {
+        if (projectionReads) {
+            return emailQueryService.getEmailById(emailId);
+        }
+        Email email = emailService.getEmailById(emailId);
+        return emailResponseConverter.convert(email);
+    }
+
+    /**
+     * <p>Converts managed entities to {@link EmailHeaderDTO} objects, without loading their bodies.</p>
+     *
+     * @param emails The entities to convert.
+     * @return List<EmailHeaderDTO> The converted emails.
+     */
+    private List<EmailHeaderDTO> convertHeaders(List<Email> emails) {
+        return emails.stream()
+                .map(emailHeaderConverter::convert)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * <p>Builds a page from a result fetched with one extra row, which tells whether a next page exists.</p>
+     *
+     * @param emails The emails fetched, at most {@code pageSize + 1}.
+     * @param pageSize The requested page size.
+     * @return EmailPageDTO The page of emails and the cursor of the next page.
+     */
+    private EmailPageDTO toPage(List<EmailHeaderDTO> emails, int pageSize) {
+        boolean hasNext = emails.size() > pageSize;
+        List<EmailHeaderDTO> page = hasNext ? emails.subList(0, pageSize) : emails;
+
+        String next = hasNext ? encodeCursor(page.get(page.size() - 1).getEmailId()) : null;
+        return new EmailPageDTO(page, next);
+    }
+
+    /**
+     * <p>Clamps the requested page size to {@code [1, MAX_PAGE_SIZE]}.</p>
+     *
+     * @param limit The requested page size.
+     * @return The page size to use.
+     */
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * <p>Encodes the last email ID of a page as an opaque cursor.</p>
+     *
+     * @param emailId The last email ID of the page.
+     * @return The cursor.
+     */
+    private String encodeCursor(long emailId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(emailId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * <p>Decodes a cursor created by {@link #encodeCursor(long)}.</p>
+     *
+     * @param cursor The cursor, or null for the first page.
+     * @return The last email ID of the previous page, or 0 for the first page.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    private long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * <p>Identifies a page of emails with a specific state.</p>
+     *
+     * @param state The state of the emails.
+     * @param afterId The last ID of the previous page.
+     * @param pageSize The page size.
      */
-    public void deleteEmails(List<Long> emailIds) {
-        emailService.deleteEmails(emailIds);
+    private record StatePageKey(EmailStateEnum state, long afterId, int pageSize) {
     }
 }
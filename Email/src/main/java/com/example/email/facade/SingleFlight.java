@@ -0,0 +1,68 @@
+package com.example.email.facade;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * <p>Coalesces concurrent loads of the same key into a single in-flight load.</p>
+ * <p>The first caller of a key runs the load on its own thread; the callers arriving while it runs wait for
+ * it and receive the same result, or the same exception. Nothing is kept once the load completed, so a
+ * later call loads again: this only removes the duplicate work of simultaneous requests, caching is left to
+ * the callers.</p>
+ *
+ * @param <K> The key type.
+ * @param <V> The result type.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Runs the load of a key, or waits for the load of the same key already in flight.</p>
+     *
+     * @param key The key.
+     * @param load Loads the result of the key.
+     * @return The result of the load.
+     */
+    public V execute(K key, Supplier<V> load) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return join(running);
+        }
+
+        try {
+            V value = load.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * <p>Waits for a load in flight, rethrowing its exception as is.</p>
+     *
+     * @param flight The load in flight.
+     * @return The result of the load.
+     */
+    private V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
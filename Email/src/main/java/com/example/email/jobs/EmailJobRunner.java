@@ -0,0 +1,489 @@
+package com.example.email.jobs;
+
+import com.example.email.converter.EmailRequestConverter;
+import com.example.email.dto.EmailJobDTO;
+import com.example.email.dto.EmailJobFailureDTO;
+import com.example.email.dto.EmailRequestDTO;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailJobTypeEnum;
+import com.example.email.repositories.EmailJobDao;
+import com.example.email.service.EmailServiceImpl;
+import com.example.email.service.EmailUpdateResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>Processes the asynchronous batch jobs on a pool of {@code email.jobs.workers} threads.</p>
+ * <p>Idle workers claim the oldest queued job every {@code email.jobs.poll-interval} milliseconds and as soon as
+ * a job is submitted or finished. A job is processed in chunks of {@code email.jobs.chunk-size} items, each in
+ * its own transaction that writes the emails, records the failed items and moves the job to the next chunk, so
+ * a chunk is either fully applied or not at all. Items that cannot be parsed or are rejected by the service are
+ * recorded as failed. A chunk whose write fails transiently is retried; one whose write fails otherwise is
+ * split until the items that cannot be written are isolated and recorded as failed, and the job goes on.</p>
+ * <p>On shutdown the workers stop after their current chunk and put their job back in the queue. A job left
+ * running by a node that stopped without shutting down is claimed again once it has not sent a heartbeat for
+ * {@code email.jobs.stale-after} milliseconds. Either way it resumes at its first unprocessed chunk. The busy
+ * workers and the processed items are published as the {@code email.jobs.active} and {@code email.jobs.items}
+ * meters.</p>
+ */
+@Component
+public class EmailJobRunner implements MeterBinder, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailJobRunner.class);
+
+    private final int workers;
+
+    private final ExecutorService executor;
+
+    private final Semaphore idleWorkers;
+
+    private final LongAdder succeededItems = new LongAdder();
+
+    private final LongAdder failedItems = new LongAdder();
+
+    private volatile boolean stopping;
+
+    @Autowired
+    private EmailJobDao emailJobDao;
+
+    @Autowired
+    private EmailServiceImpl emailService;
+
+    @Autowired
+    private EmailRequestConverter emailRequestConverter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * The number of items processed per transaction.
+     */
+    @Value("${email.jobs.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * The time after which a running job without a heartbeat is claimed again, in milliseconds. Must be longer
+     * than the slowest chunk.
+     */
+    @Value("${email.jobs.stale-after:60000}")
+    private long staleAfter;
+
+    /**
+     * The number of times a transaction of a job is attempted when it fails transiently.
+     */
+    @Value("${email.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * The pause before the first retry of a transaction that failed transiently, in milliseconds. It grows with
+     * each attempt.
+     */
+    @Value("${email.jobs.retry-backoff:200}")
+    private long retryBackoff;
+
+    /**
+     * <p>Creates the pool of workers.</p>
+     * <p>The workers are virtual threads when {@code spring.threads.virtual.enabled} is set on Java 21 or later,
+     * like the other asynchronous work of the application, so a chunk blocked on the database does not hold a
+     * platform thread. Their number still bounds the jobs processed concurrently.</p>
+     *
+     * @param workers The number of jobs processed concurrently by this node.
+     * @param environment The environment, which tells whether virtual threads are enabled.
+     */
+    public EmailJobRunner(@Value("${email.jobs.workers:2}") int workers, Environment environment) {
+        this.workers = workers;
+        ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("email-job-").getVirtualThreadFactory()
+                : new CustomizableThreadFactory("email-job-");
+        this.executor = Executors.newFixedThreadPool(workers, threadFactory);
+        this.idleWorkers = new Semaphore(workers);
+    }
+
+    /**
+     * <p>Hands queued and abandoned jobs to the idle workers.</p>
+     * <p>A job claimed while the workers shut down is put back in the queue, so another node can claim it
+     * without waiting for its heartbeat to become stale.</p>
+     */
+    @Scheduled(fixedDelayString = "${email.jobs.poll-interval:1000}")
+    public void dispatch() {
+        while (!stopping && idleWorkers.tryAcquire()) {
+            Optional<Long> jobId;
+            try {
+                jobId = emailJobDao.claimJob(staleAfter);
+            } catch (RuntimeException e) {
+                idleWorkers.release();
+                throw e;
+            }
+            if (jobId.isEmpty()) {
+                idleWorkers.release();
+                return;
+            }
+
+            try {
+                executor.execute(() -> {
+                    try {
+                        runJob(jobId.get());
+                    } finally {
+                        idleWorkers.release();
+                    }
+                    dispatch();
+                });
+            } catch (RejectedExecutionException e) {
+                // claimed while the workers were shutting down
+                idleWorkers.release();
+                emailJobDao.requeueJob(jobId.get());
+                LOGGER.info(String.format("Job requeued on shutdown -> %d", jobId.get()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * <p>Processes the chunks of a claimed job until it is completed or this node shuts down.</p>
+     * <p>A chunk that cannot be committed nor recorded as failed, for example because the database is
+     * unreachable, leaves the job running; it is claimed again once its heartbeat is stale.</p>
+     *
+     * @param jobId The ID of the job.
+     */
+    public void runJob(long jobId) {
+        LOGGER.info(String.format("Job started -> %d", jobId));
+        try {
+            while (processChunk(jobId)) {
+                if (stopping) {
+                    emailJobDao.requeueJob(jobId);
+                    LOGGER.info(String.format("Job requeued on shutdown -> %d", jobId));
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Job interrupted, it will be resumed -> %d", jobId), e);
+            return;
+        }
+        LOGGER.info(String.format("Job finished -> %d", jobId));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("email.jobs.active", idleWorkers, idle -> workers - idle.availablePermits())
+                .description("Workers processing a batch job")
+                .register(registry);
+        FunctionCounter.builder("email.jobs.items", succeededItems, LongAdder::sum)
+                .description("Items of batch jobs that were processed")
+                .tag("outcome", "succeeded")
+                .register(registry);
+        FunctionCounter.builder("email.jobs.items", failedItems, LongAdder::sum)
+                .description("Items of batch jobs that were processed")
+                .tag("outcome", "failed")
+                .register(registry);
+    }
+
+    /**
+     * <p>Stops claiming jobs and waits for the workers to finish their current chunk.</p>
+     *
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(staleAfter, TimeUnit.MILLISECONDS)) {
+            LOGGER.warn("Batch job workers did not stop in time");
+        }
+    }
+
+    /**
+     * <p>Processes the next chunk of a job.</p>
+     *
+     * @param jobId The ID of the job.
+     * @return Whether the job has chunks left.
+     */
+    private boolean processChunk(long jobId) {
+        return processItems(jobId, chunkSize);
+    }
+
+    /**
+     * <p>Processes the next {@code count} items of a job in one transaction.</p>
+     * <p>A transient failure, such as a deadlock, a serialization failure or a lost connection, is retried up
+     * to {@code email.jobs.max-attempts} times; if it persists, it is thrown and the job is resumed later. Any
+     * other failure rolls the items back and splits them in two halves, each processed in its own transaction,
+     * until the item that cannot be written is alone: it is then recorded as failed, with the message of the
+     * failure, and the other items are written.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param count The number of items to process.
+     * @return Whether the job has items left.
+     */
+    private boolean processItems(long jobId, int count) {
+        try {
+            return withRetries(jobId, () -> writeItems(jobId, count));
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+
+            int size = emailJobDao.findById(jobId)
+                    .map(job -> Math.min(count, job.getTotal() - job.getProcessed()))
+                    .orElse(0);
+            if (size <= 1) {
+                LOGGER.error(String.format("Job item failed, reporting it as failed -> %d", jobId), e);
+                return withRetries(jobId, () -> failItem(jobId, e));
+            }
+
+            LOGGER.warn(String.format("Job chunk failed, splitting it -> %d: %d items", jobId, size), e);
+            int half = size / 2;
+            return processItems(jobId, half) && processItems(jobId, size - half);
+        }
+    }
+
+    /**
+     * <p>Writes the next items of a job, records the failed ones and moves the job past them, in one
+     * transaction.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param count The number of items to write.
+     * @return Whether the job has items left.
+     */
+    private boolean writeItems(long jobId, int count) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Optional<EmailJobDTO> job = emailJobDao.lockRunningJob(jobId);
+            if (job.isEmpty()) {
+                return false;
+            }
+
+            int fromItem = job.get().getProcessed();
+            List<String> items = emailJobDao.findItems(jobId, fromItem, count);
+            List<EmailJobFailureDTO> failures = new ArrayList<>();
+            int succeeded = EmailJobTypeEnum.valueOf(job.get().getType()) == EmailJobTypeEnum.CREATE
+                    ? createEmails(fromItem, items, failures)
+                    : updateEmails(fromItem, items, failures);
+            return completeChunk(job.get(), items, succeeded, failures);
+        }));
+    }
+
+    /**
+     * <p>Records the next item of a job as failed and moves the job past it, in one transaction.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param failure The failure of the item.
+     * @return Whether the job has items left.
+     */
+    private boolean failItem(long jobId, RuntimeException failure) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Optional<EmailJobDTO> job = emailJobDao.lockRunningJob(jobId);
+            if (job.isEmpty()) {
+                return false;
+            }
+
+            int fromItem = job.get().getProcessed();
+            List<String> items = emailJobDao.findItems(jobId, fromItem, 1);
+            List<EmailJobFailureDTO> failures = items.stream()
+                    .map(item -> new EmailJobFailureDTO(fromItem, emailIdOf(item), failure.getMessage()))
+                    .toList();
+            return completeChunk(job.get(), items, 0, failures);
+        }));
+    }
+
+    /**
+     * <p>Runs a transaction, and runs it again after a growing pause while it fails transiently.</p>
+     *
+     * @param jobId The ID of the job, for the logs.
+     * @param transaction The transaction.
+     * @return The result of the transaction.
+     * @throws RuntimeException The failure of the last attempt, or any failure that is not transient.
+     */
+    private boolean withRetries(long jobId, BooleanSupplier transaction) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.getAsBoolean();
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                LOGGER.warn(String.format("Job chunk failed transiently, retrying -> %d: attempt %d of %d",
+                        jobId, attempt, maxAttempts), e);
+                try {
+                    Thread.sleep(retryBackoff * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Tells whether a failure may not happen again, such as a deadlock, a serialization failure, a lock
+     * timeout or a lost connection.</p>
+     *
+     * @param failure The failure.
+     * @return Whether the failure, or one of its causes, is transient.
+     */
+    private static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>Records the outcome of a chunk and moves the job to the next one.</p>
+     *
+     * @param job The job.
+     * @param items The items of the chunk.
+     * @param succeeded The number of items of the chunk that were written.
+     * @param failures The failed items of the chunk.
+     * @return Whether the job has chunks left.
+     */
+    private boolean completeChunk(EmailJobDTO job, List<String> items, int succeeded,
+                                  List<EmailJobFailureDTO> failures) {
+        // a job without pending items is completed even if its counters are behind, instead of looping on it
+        int nextItem = items.isEmpty() ? job.getTotal() : job.getProcessed() + items.size();
+        emailJobDao.completeChunk(job.getJobId(), nextItem, succeeded, failures);
+        succeededItems.add(succeeded);
+        failedItems.add(failures.size());
+
+        LOGGER.info(String.format("Job progress -> %d: %d of %d processed",
+                job.getJobId(), nextItem, job.getTotal()));
+        return nextItem < job.getTotal();
+    }
+
+    /**
+     * <p>Creates the emails of a chunk in the current transaction.</p>
+     *
+     * @param fromItem The index of the first item of the chunk.
+     * @param items The items of the chunk.
+     * @param failures Receives the items that cannot be parsed.
+     * @return The number of created emails.
+     */
+    private int createEmails(int fromItem, List<String> items, List<EmailJobFailureDTO> failures) {
+        List<Email> emails = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                EmailRequestDTO emailRequestDTO = parseItem(items.get(i));
+                emailRequestDTO.setEmailId(null);
+                emails.add(emailRequestConverter.convert(emailRequestDTO));
+            } catch (IOException | IllegalArgumentException e) {
+                failures.add(new EmailJobFailureDTO(fromItem + i, null, e.getMessage()));
+            }
+        }
+
+        if (!emails.isEmpty()) {
+            emailService.createEmails(emails);
+        }
+        return emails.size();
+    }
+
+    /**
+     * <p>Updates the emails of a chunk in the current transaction.</p>
+     *
+     * @param fromItem The index of the first item of the chunk.
+     * @param items The items of the chunk.
+     * @param failures Receives the items that cannot be parsed, and the emails that do not exist or are not
+     * drafts.
+     * @return The number of updated emails.
+     */
+    private int updateEmails(int fromItem, List<String> items, List<EmailJobFailureDTO> failures) {
+        List<Email> emails = new ArrayList<>(items.size());
+        List<Integer> emailItems = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                EmailRequestDTO emailRequestDTO = parseItem(items.get(i));
+                if (emailRequestDTO.getEmailId() == null) {
+                    throw new IllegalArgumentException("emailId is required");
+                }
+                emails.add(emailRequestConverter.convert(emailRequestDTO));
+                emailItems.add(fromItem + i);
+            } catch (IOException | IllegalArgumentException e) {
+                failures.add(new EmailJobFailureDTO(fromItem + i, emailIdOf(items.get(i)), e.getMessage()));
+            }
+        }
+
+        List<EmailUpdateResult> results = emails.isEmpty() ? List.of() : emailService.updateEmails(emails);
+        int updated = 0;
+        for (int i = 0; i < results.size(); i++) {
+            EmailUpdateResult result = results.get(i);
+            if (result.getStatus() == EmailUpdateResult.Status.UPDATED) {
+                updated++;
+            } else {
+                failures.add(new EmailJobFailureDTO(emailItems.get(i), result.getEmailId(), result.getMessage()));
+            }
+        }
+        failures.sort(Comparator.comparingInt(EmailJobFailureDTO::getItem));
+        return updated;
+    }
+
+    /**
+     * <p>Parses and validates an item.</p>
+     *
+     * @param item The item, as JSON.
+     * @return The request of the item, with empty recipient lists if they were missing.
+     * @throws IOException If the item is not valid JSON.
+     * @throws IllegalArgumentException If a required field is missing.
+     */
+    private EmailRequestDTO parseItem(String item) throws IOException {
+        EmailRequestDTO emailRequestDTO = objectMapper.readValue(item, EmailRequestDTO.class);
+
+        if (emailRequestDTO.getEmailFrom() == null || emailRequestDTO.getEmailBody() == null) {
+            throw new IllegalArgumentException("emailFrom and emailBody are required");
+        }
+        if (emailRequestDTO.getEmailTo() == null) {
+            emailRequestDTO.setEmailTo(List.of());
+        }
+        if (emailRequestDTO.getEmailCC() == null) {
+            emailRequestDTO.setEmailCC(List.of());
+        }
+        return emailRequestDTO;
+    }
+
+    /**
+     * <p>Reads the email ID of an item, to report it with a failure.</p>
+     *
+     * @param item The item, as JSON.
+     * @return The email ID, or null if the item has none or cannot be parsed.
+     */
+    private Long emailIdOf(String item) {
+        try {
+            return objectMapper.readValue(item, EmailRequestDTO.class).getEmailId();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.email.partitioning;
+
+import com.example.email.cache.EmailCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * <p>Keeps the monthly partitions of the partitioned schema up to date.</p>
+ * <p>Partitions are created {@code email.partitions.months-ahead} months in advance, so new rows never land
+ * in the default partition. When {@code email.partitions.retention-months} is set, months older than the
+ * retention are detached from "emails", "email_to" and "email_cc". Detaching only changes the catalog, so
+ * the rows of a whole month leave the tables at once instead of being deleted one by one; the detached
+ * tables are kept and can be archived or dropped.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "email.schema.partitioned", havingValue = "true")
+public class EmailPartitionMaintenance {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailPartitionMaintenance.class);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EmailCache emailCache;
+
+    @Value("${email.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    /**
+     * The number of months kept attached, including the current one, or 0 to keep every month.
+     */
+    @Value("${email.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * <p>Creates the missing partitions and detaches the expired ones.</p>
+     * <p>Runs at startup and every {@code email.partitions.maintenance-interval} milliseconds.</p>
+     */
+    @Scheduled(fixedDelayString = "${email.partitions.maintenance-interval:86400000}")
+    public void maintainPartitions() {
+        LocalDate today = LocalDate.now();
+        createPartitions(today, today.plusMonths(monthsAhead));
+        if (retentionMonths > 0) {
+            detachPartitionsBefore(today.withDayOfMonth(1).minusMonths(retentionMonths - 1L));
+        }
+    }
+
+    /**
+     * <p>Creates the partitions of every month between two dates, if they do not exist yet.</p>
+     *
+     * @param from A date in the first month.
+     * @param to A date in the last month.
+     */
+    public void createPartitions(LocalDate from, LocalDate to) {
+        jdbcTemplate.queryForList("SELECT create_email_partitions(?, ?)", from, to);
+        LOGGER.info(String.format("Email partitions ensured -> %s to %s",
+                from.format(PARTITION_SUFFIX), to.format(PARTITION_SUFFIX)));
+    }
+
+    /**
+     * <p>Detaches the partitions of every month before the given date.</p>
+     * <p>The recipient partitions of a month are detached before the email partition they reference, in one
+     * transaction per month. Detached tables keep their rows but no longer reference "emails", so the email
+     * cache is invalidated.</p>
+     *
+     * @param cutoff The first day of the oldest month to keep.
+     * @return The number of months detached.
+     */
+    public int detachPartitionsBefore(LocalDate cutoff) {
+        List<String> expired = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'emails'::regclass AND c.relname ~ '^emails_p[0-9]{6}$' AND c.relname < ?
+                ORDER BY c.relname
+                """, String.class, "emails_p" + cutoff.format(PARTITION_SUFFIX));
+
+        for (String partition : expired) {
+            String suffix = partition.substring("emails_p".length());
+            transactionTemplate.executeWithoutResult(status -> {
+                detachRecipients("email_to", "email_to_p" + suffix);
+                detachRecipients("email_cc", "email_cc_p" + suffix);
+                jdbcTemplate.execute("ALTER TABLE emails DETACH PARTITION emails_p" + suffix);
+            });
+            LOGGER.info(String.format("Email partitions detached -> %s", suffix));
+        }
+        if (!expired.isEmpty()) {
+            emailCache.invalidateAll();
+        }
+        return expired.size();
+    }
+
+    /**
+     * <p>Detaches a recipient partition and drops the foreign keys it keeps to "emails" once detached, which
+     * would otherwise block the detachment of the referenced email partition.</p>
+     *
+     * @param table The partitioned recipient table.
+     * @param partition The partition to detach.
+     */
+    private void detachRecipients(String table, String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT conname FROM pg_constraint WHERE conrelid = ?::regclass AND contype = 'f'",
+                String.class, partition);
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + partition + " DROP CONSTRAINT \"" + foreignKey + "\"");
+        }
+    }
+}
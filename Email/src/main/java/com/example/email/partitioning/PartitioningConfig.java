@@ -0,0 +1,73 @@
+package com.example.email.partitioning;
+
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationVersion;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * <p>Enables the partitioned schema when {@code email.schema.partitioned=true}.</p>
+ * <p>The migrations in {@code db/partitioning} are added to the Flyway locations. They convert "emails",
+ * "email_to" and "email_cc" into tables range-partitioned by month of "updated_at".</p>
+ * <p>The mode is for fresh installs only: the conversion runs between V6 and V7 and rebuilds the tables as they
+ * are at V6, so it cannot be applied to a database already migrated past V6 without losing the later columns.
+ * The application refuses to start on such a database instead of letting Flyway fail or drop data.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "email.schema.partitioned", havingValue = "true")
+public class PartitioningConfig {
+
+    /**
+     * <p>Location of the migrations that create the partitioned schema.</p>
+     */
+    public static final String PARTITIONING_LOCATION = "classpath:db/partitioning";
+
+    /**
+     * <p>The version of the migration that converts the tables.</p>
+     */
+    public static final MigrationVersion PARTITIONING_VERSION = MigrationVersion.fromVersion("6.1");
+
+    /**
+     * <p>Adds {@link #PARTITIONING_LOCATION} to the configured Flyway locations.</p>
+     *
+     * @return The Flyway customizer.
+     */
+    @Bean
+    public FlywayConfigurationCustomizer partitioningFlywayCustomizer() {
+        return configuration -> configuration.locations(Stream.concat(
+                        Arrays.stream(configuration.getLocations()).map(Location::getDescriptor),
+                        Stream.of(PARTITIONING_LOCATION))
+                .toArray(String[]::new));
+    }
+
+    /**
+     * <p>Migrates the schema, unless it was migrated past {@link #PARTITIONING_VERSION} without the partitioned
+     * schema.</p>
+     *
+     * @return The Flyway migration strategy.
+     * @throws IllegalStateException If the partitioned schema is enabled on an existing unpartitioned database.
+     */
+    @Bean
+    public FlywayMigrationStrategy partitioningMigrationStrategy() {
+        return flyway -> {
+            MigrationInfo[] applied = flyway.info().applied();
+            boolean partitioned = Arrays.stream(applied)
+                    .anyMatch(migration -> PARTITIONING_VERSION.equals(migration.getVersion()));
+            boolean pastPartitioning = Arrays.stream(applied)
+                    .anyMatch(migration -> migration.getVersion() != null
+                            && migration.getVersion().compareTo(PARTITIONING_VERSION) > 0);
+            if (pastPartitioning && !partitioned) {
+                throw new IllegalStateException("email.schema.partitioned=true requires a fresh database: this one "
+                        + "was migrated past V6 without the partitioned schema");
+            }
+            flyway.migrate();
+        };
+    }
+}
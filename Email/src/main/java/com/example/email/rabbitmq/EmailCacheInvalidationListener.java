@@ -0,0 +1,53 @@
+package com.example.email.rabbitmq;
+
+import com.example.email.cache.EmailCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Applies the email cache invalidations broadcast by the other nodes to the cache of this node.</p>
+ * <p>The number of applied invalidations is published as the {@code email.cache.invalidations.received}
+ * counter.</p>
+ */
+@Component
+public class EmailCacheInvalidationListener {
+
+    @Autowired
+    private EmailCache emailCache;
+
+    @Autowired
+    private EmailCacheInvalidationPublisher invalidationPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * <p>Evicts the emails named by an invalidation message, unless this node sent it.</p>
+     *
+     * @param message The invalidation message.
+     */
+    @RabbitListener(queues = "#{emailCacheInvalidationQueue.name}")
+    public void receive(Message message) {
+        if (invalidationPublisher.isOwnMessage(message.getMessageProperties().getAppId())) {
+            return;
+        }
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (EmailCacheInvalidationPublisher.ALL.equals(body)) {
+            emailCache.evictAll();
+        } else if (!body.isEmpty()) {
+            List<Long> emailIds = Arrays.stream(body.split(","))
+                    .map(Long::valueOf)
+                    .collect(Collectors.toList());
+            emailCache.evict(emailIds);
+        }
+        meterRegistry.counter("email.cache.invalidations.received").increment();
+    }
+}
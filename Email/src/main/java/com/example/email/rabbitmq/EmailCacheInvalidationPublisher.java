@@ -0,0 +1,103 @@
+package com.example.email.rabbitmq;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Service broadcasting the invalidations of the email cache to the other nodes.</p>
+ * <p>A message carries the comma-separated IDs of the changed emails, or {@value #ALL} when every email
+ * must be invalidated. Its application ID is the ID of the sending node, so a node ignores its own
+ * invalidations, which it already applied.</p>
+ */
+@Service
+public class EmailCacheInvalidationPublisher {
+
+    /**
+     * <p>The message invalidating every email.</p>
+     */
+    public static final String ALL = "*";
+
+    /**
+     * Logger instance for logging information related to message production.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailCacheInvalidationPublisher.class);
+
+    /**
+     * The ID of this node in the invalidation messages.
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * The name of the fanout exchange of the cache invalidations, injected from the application properties.
+     */
+    @Value("${rabbitmq.cache.exchange.name:email_cache_invalidation}")
+    private String exchange;
+
+    /**
+     * The {@link RabbitTemplate} used for interacting with RabbitMQ.
+     */
+    private RabbitTemplate rabbitTemplate;
+
+    /**
+     * Constructor for injecting the RabbitTemplate dependency.
+     *
+     * @param rabbitTemplate the {@link RabbitTemplate} to use for sending messages.
+     */
+    public EmailCacheInvalidationPublisher(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    /**
+     * Broadcasts the invalidation of emails.
+     *
+     * @param emailIds the IDs of the changed emails.
+     */
+    public void publish(Collection<Long> emailIds) {
+        send(emailIds.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+    }
+
+    /**
+     * Broadcasts the invalidation of every email.
+     */
+    public void publishAll() {
+        send(ALL);
+    }
+
+    /**
+     * Tells whether this node sent a message.
+     *
+     * @param appId the application ID of the message.
+     * @return true if the message was sent by this node.
+     */
+    public boolean isOwnMessage(String appId) {
+        return nodeId.equals(appId);
+    }
+
+    /**
+     * Sends an invalidation to the fanout exchange.
+     * <p>The database change is already committed, so a broker failure is logged and not propagated; the
+     * other nodes then serve the old version until their entry expires.</p>
+     *
+     * @param message the invalidation message.
+     */
+    private void send(String message) {
+        try {
+            rabbitTemplate.convertAndSend(exchange, "", message, amqpMessage -> {
+                amqpMessage.getMessageProperties().setAppId(nodeId);
+                return amqpMessage;
+            });
+        } catch (AmqpException e) {
+            LOGGER.warn(String.format("Email cache invalidation not sent -> %s", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.email.rabbitmq;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * <p>Configuration of the RabbitMQ messaging that keeps the email caches of the nodes consistent.</p>
+ * <p>Invalidations are published to a fanout exchange. Every node binds its own queue to it, so each
+ * invalidation reaches every node. The queues are exclusive and deleted with their connection, so a stopped
+ * node leaves no queue behind, and a restarted node starts with an empty cache anyway.</p>
+ */
+@Configuration
+public class EmailCacheRabbitMQConfig {
+
+    /**
+     * The name of the fanout exchange of the cache invalidations, injected from the application properties.
+     */
+    @Value("${rabbitmq.cache.exchange.name:email_cache_invalidation}")
+    private String exchange;
+
+    /**
+     * Defines the queue of this node.
+     *
+     * @return an exclusive, auto-delete {@link Queue} with a generated name.
+     */
+    @Bean
+    public Queue emailCacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    /**
+     * Defines the fanout exchange of the cache invalidations.
+     *
+     * @return a {@link FanoutExchange} object representing the configured exchange.
+     */
+    @Bean
+    public FanoutExchange emailCacheInvalidationExchange() {
+        return new FanoutExchange(exchange);
+    }
+
+    /**
+     * Defines the binding between the queue of this node and the fanout exchange.
+     *
+     * @return a {@link Binding} object representing the binding configuration.
+     */
+    @Bean
+    public Binding emailCacheInvalidationBinding() {
+        return BindingBuilder.bind(emailCacheInvalidationQueue())
+                .to(emailCacheInvalidationExchange());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.email.replicas;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Routes the read-only transactions to read replicas when {@code email.replicas.enabled=true}.</p>
+ * <p>The primary pool is configured by the {@code spring.datasource.*} properties and runs the Flyway
+ * migrations. One pool is created per URL of {@code email.replicas.urls}; the replicas are expected to be
+ * replicated from the primary, or migrated separately. The data source used by JPA and the
+ * {@link org.springframework.jdbc.core.JdbcTemplate}s is a {@link ReplicaRoutingDataSource} behind a
+ * {@link LazyConnectionDataSourceProxy}.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "email.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    /**
+     * <p>Creates the pool of the primary, configured like the pool Spring Boot creates without replicas.</p>
+     *
+     * @param properties The {@code spring.datasource.*} properties.
+     * @return The pool of the primary.
+     */
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * <p>Creates the pools of the replicas and the data source routing between them and the primary.</p>
+     * <p>A replica that is down at startup does not fail it: its pool keeps trying to connect while the reads
+     * fall back to the primary.</p>
+     *
+     * @param primaryDataSource The pool of the primary.
+     * @param urls The JDBC URLs of the replicas.
+     * @param username The user of the replicas.
+     * @param password The password of the replicas.
+     * @param poolSize The maximum number of connections per replica.
+     * @param connectionTimeout The time to wait for a replica connection before falling back, in milliseconds.
+     * @param maxLag The maximum replication lag of a usable replica, in milliseconds.
+     * @return The routing data source.
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            @Value("${email.replicas.urls}") List<String> urls,
+            @Value("${email.replicas.username:${spring.datasource.username}}") String username,
+            @Value("${email.replicas.password:${spring.datasource.password}}") String password,
+            @Value("${email.replicas.pool-size:10}") int poolSize,
+            @Value("${email.replicas.connection-timeout:1000}") long connectionTimeout,
+            @Value("${email.replicas.max-lag:5000}") long maxLag) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            config.setConnectionTimeout(connectionTimeout);
+            config.setInitializationFailTimeout(-1);
+            config.setReadOnly(true);
+            replicas.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag);
+    }
+
+    /**
+     * <p>Exposes the routing data source, deferring the choice of the route to the first statement of a
+     * transaction, once it is known to be read-only.</p>
+     *
+     * @param replicaRoutingDataSource The routing data source.
+     * @return The data source of the application.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * <p>Releases the connection of a persistence context at the end of each transaction instead of holding it
+     * until the context is closed.</p>
+     * <p>With the open-in-view context of a web request, a held connection would carry the route of the first
+     * transaction of the request to the next ones: a write following a read-only transaction would be sent to
+     * a replica.</p>
+     *
+     * @return The Hibernate properties customizer.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandlingCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.email.replicas;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Routes the connections of read-only transactions to the replicas and every other connection to the
+ * primary.</p>
+ * <p>A read-only transaction gets its connection from the next replica, in round-robin order, whose
+ * replication lag is at most {@code email.replicas.max-lag} milliseconds. The lag of every replica is measured
+ * every {@code email.replicas.lag-check-interval} milliseconds; a replica that cannot be reached, whose lag is
+ * unknown or too high is skipped until a later check finds it usable again. When no replica is usable, or the
+ * chosen replica refuses the connection, the transaction falls back to the primary.</p>
+ * <p>The route is decided when the connection is requested, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager asks for
+ * the connection before the transaction is marked read-only, and the proxy only fetches it on the first
+ * statement. The lag of every replica and the number of fallbacks are published as the
+ * {@code email.replica.lag} and {@code email.replica.fallbacks} meters.</p>
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements MeterBinder, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * <p>Measures the replication lag in milliseconds: 0 for a server that is not a standby or has replayed
+     * everything it received, the age of the last replayed transaction otherwise.</p>
+     */
+    private static final String LAG_QUERY = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint END
+            """;
+
+    private final DataSource primary;
+
+    private final Map<String, DataSource> replicas;
+
+    private final Map<String, JdbcTemplate> lagQueries = new LinkedHashMap<>();
+
+    private final List<String> replicaNames;
+
+    private final long maxLag;
+
+    /**
+     * <p>The last measured lag of each usable replica; the replicas that are not usable are absent.</p>
+     */
+    private final Map<String, Long> lags = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * <p>Creates a data source routing between a primary and its replicas.</p>
+     * <p>No replica is used before the first {@link #checkLag()}.</p>
+     *
+     * @param primary The primary.
+     * @param replicas The replicas by name.
+     * @param maxLag The maximum replication lag of a usable replica, in milliseconds.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLag) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.replicaNames = new ArrayList<>(replicas.keySet());
+        this.maxLag = maxLag;
+        replicas.forEach((name, replica) -> lagQueries.put(name, new JdbcTemplate(replica)));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String replica = chooseReplica();
+        if (replica != null) {
+            try {
+                return replicas.get(replica).getConnection();
+            } catch (SQLException e) {
+                lags.remove(replica);
+                fallbacks.increment();
+                LOGGER.warn(String.format("Replica %s refused a connection, reading from the primary -> %s",
+                        replica, e.getMessage()));
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * <p>Returns a connection of the primary; connections with explicit credentials are never routed.</p>
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * <p>Measures the replication lag of every replica.</p>
+     */
+    @Scheduled(fixedDelayString = "${email.replicas.lag-check-interval:1000}")
+    public void checkLag() {
+        lagQueries.forEach((name, lagQuery) -> {
+            try {
+                Long lag = lagQuery.queryForObject(LAG_QUERY, Long.class);
+                if (lag == null) {
+                    lags.remove(name);
+                } else {
+                    lags.put(name, lag);
+                }
+            } catch (DataAccessException e) {
+                if (lags.remove(name) != null) {
+                    LOGGER.warn(String.format("Replica %s is unavailable -> %s", name, e.getMessage()));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        replicaNames.forEach(name -> Gauge.builder("email.replica.lag", lags,
+                        measured -> measured.getOrDefault(name, -1L))
+                .description("Replication lag of the replica, -1 while it is not usable")
+                .baseUnit("milliseconds")
+                .tag("replica", name)
+                .register(registry));
+        FunctionCounter.builder("email.replica.fallbacks", fallbacks, LongAdder::sum)
+                .description("Read-only transactions that fell back to the primary")
+                .register(registry);
+    }
+
+    /**
+     * <p>Closes the replicas that hold resources, such as connection pools.</p>
+     *
+     * @throws Exception If a replica cannot be closed.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * <p>Chooses the replica of the current connection.</p>
+     *
+     * @return The name of the replica, or null to use the primary.
+     */
+    private String chooseReplica() {
+        if (replicaNames.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicaNames.size());
+        for (int i = 0; i < replicaNames.size(); i++) {
+            String name = replicaNames.get((first + i) % replicaNames.size());
+            Long lag = lags.get(name);
+            if (lag != null && lag <= maxLag) {
+                return name;
+            }
+        }
+        fallbacks.increment();
+        return null;
+    }
+}
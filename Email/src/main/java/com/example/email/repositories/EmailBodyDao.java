@@ -0,0 +1,187 @@
+package com.example.email.repositories;
+
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.entity.Email;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * <p>Writes the content-addressed "email_bodies" table.</p>
+ * <p>Every distinct body is stored once, keyed by the SHA-256 hash of its UTF-8 bytes and encoded with the
+ * {@link EmailBodyCodec}. Emails reference their body by hash, and "ref_count" counts the references: they are
+ * added here when emails are written, and released by the triggers of "emails" when emails are deleted or their
+ * body is replaced. Bodies left without references are deleted by the {@code EmailBodyGarbageCollector}.</p>
+ */
+@Repository
+public class EmailBodyDao {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmailBodyCodec emailBodyCodec;
+
+    /**
+     * <p>Stores the bodies of emails about to be written in the current transaction, and sets their
+     * {@code bodyHash}.</p>
+     *
+     * @param emails The emails about to be written.
+     * @see #storeBodies(Connection, List)
+     */
+    public void storeBodies(List<Email> emails) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            storeBodies(connection, emails);
+            return null;
+        });
+    }
+
+    /**
+     * <p>Stores the bodies of emails about to be written, and sets their {@code bodyHash}.</p>
+     * <p>Each distinct body of the batch is handled once, whatever the number of emails sharing it. Bodies
+     * already stored only get their reference count increased, so they are not sent again; the others are
+     * inserted, in hash order so that concurrent batches lock them in the same order.</p>
+     *
+     * @param connection The connection of the transaction writing the emails.
+     * @param emails The emails about to be written.
+     * @throws SQLException If the bodies cannot be written.
+     */
+    public void storeBodies(Connection connection, List<Email> emails) throws SQLException {
+        storeBodies(connection, emailBodyCodec, emails);
+    }
+
+    /**
+     * <p>Stores the bodies of emails about to be written, encoded with the given codec, and sets their
+     * {@code bodyHash}. Used by the {@code EmailBodyListener}, which runs inside Hibernate.</p>
+     *
+     * @param connection The connection of the transaction writing the emails.
+     * @param emailBodyCodec The codec encoding the bodies.
+     * @param emails The emails about to be written.
+     * @throws SQLException If the bodies cannot be written.
+     * @see #storeBodies(Connection, List)
+     */
+    public static void storeBodies(Connection connection, EmailBodyCodec emailBodyCodec, List<Email> emails)
+            throws SQLException {
+        Map<String, StoredBody> bodies = new TreeMap<>();
+        for (Email email : emails) {
+            if (email.getEmailBody() == null) {
+                continue;
+            }
+            byte[] bodyHash = hashOf(email.getEmailBody());
+            email.setBodyHash(bodyHash);
+            bodies.computeIfAbsent(HexFormat.of().formatHex(bodyHash),
+                    key -> new StoredBody(bodyHash, email.getEmailBody())).references++;
+        }
+        if (bodies.isEmpty()) {
+            return;
+        }
+
+        Set<String> existing = addReferences(connection, bodies);
+
+        try (PreparedStatement insert = connection.prepareStatement("""
+                INSERT INTO email_bodies (body_hash, body_data, ref_count) VALUES (?, ?, ?)
+                ON CONFLICT (body_hash) DO UPDATE SET ref_count = email_bodies.ref_count + EXCLUDED.ref_count
+                """)) {
+            int inserted = 0;
+            for (Map.Entry<String, StoredBody> body : bodies.entrySet()) {
+                if (existing.contains(body.getKey())) {
+                    continue;
+                }
+                insert.setBytes(1, body.getValue().hash);
+                insert.setBytes(2, emailBodyCodec.encode(body.getValue().body));
+                insert.setInt(3, body.getValue().references);
+                insert.addBatch();
+                inserted++;
+            }
+            if (inserted > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * <p>Returns the SHA-256 hash of the UTF-8 bytes of a body, which identifies it in "email_bodies".</p>
+     *
+     * @param body The body.
+     * @return The hash.
+     */
+    public static byte[] hashOf(String body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * <p>Adds the references of a batch to the bodies already stored, with a single statement.</p>
+     *
+     * @param connection The connection to use.
+     * @param bodies The distinct bodies of the batch, by hex hash.
+     * @return The hex hashes of the bodies that were already stored.
+     * @throws SQLException If the reference counts cannot be updated.
+     */
+    private static Set<String> addReferences(Connection connection, Map<String, StoredBody> bodies) throws SQLException {
+        List<byte[]> hashes = new ArrayList<>(bodies.size());
+        List<Integer> references = new ArrayList<>(bodies.size());
+        bodies.values().forEach(body -> {
+            hashes.add(body.hash);
+            references.add(body.references);
+        });
+
+        Set<String> existing = new HashSet<>();
+        Array hashArray = connection.createArrayOf("bytea", hashes.toArray(new byte[0][]));
+        Array referenceArray = connection.createArrayOf("int4", references.toArray());
+        try (PreparedStatement update = connection.prepareStatement("""
+                UPDATE email_bodies b SET ref_count = b.ref_count + r.refs
+                FROM unnest(?::bytea[], ?::int4[]) AS r(body_hash, refs)
+                WHERE b.body_hash = r.body_hash
+                RETURNING b.body_hash
+                """)) {
+            update.setArray(1, hashArray);
+            update.setArray(2, referenceArray);
+            try (ResultSet resultSet = update.executeQuery()) {
+                while (resultSet.next()) {
+                    existing.add(HexFormat.of().formatHex(resultSet.getBytes(1)));
+                }
+            }
+        }
+        hashArray.free();
+        referenceArray.free();
+        return existing;
+    }
+
+    /**
+     * <p>A distinct body of a batch and the number of its emails.</p>
+     */
+    private static final class StoredBody {
+
+        private final byte[] hash;
+
+        private final String body;
+
+        private int references;
+
+        private StoredBody(byte[] hash, String body) {
+            this.hash = hash;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.email.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * <p>Set-based write statements on the {@code emails} table, executed with plain JDBC.</p>
+ * <p>These statements bypass the persistence context, so callers must not rely on managed {@code Email}
+ * instances of the affected rows afterwards.</p>
+ */
+@Repository
+public class EmailBulkDao {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * <p>Deletes the given emails with a single statement.</p>
+     * <p>Their recipients are removed by the {@code ON DELETE CASCADE} of {@code email_to} and {@code email_cc}.</p>
+     *
+     * @param emailIds The IDs of the emails to delete.
+     * @return The number of deleted emails.
+     */
+    public int deleteByIds(List<Long> emailIds) {
+        return jdbcTemplate.update("DELETE FROM emails WHERE email_id = ANY(?)",
+                statement -> statement.setArray(1,
+                        statement.getConnection().createArrayOf("bigint", emailIds.toArray())));
+    }
+
+    /**
+     * <p>Marks a bounded chunk of the emails sent by the given senders as spam.</p>
+     * <p>Emails already marked as spam are skipped. With {@code skipLocked}, rows locked by other transactions
+     * are skipped instead of waited for, so a chunk never blocks on a concurrent writer but may leave such rows
+     * unmarked; without it, the statement waits for those transactions and then marks the rows that still
+     * match.</p>
+     *
+     * @param senders The sender addresses whose emails are spam.
+     * @param limit The maximum number of emails to update.
+     * @param skipLocked Whether to skip the rows locked by other transactions.
+     * @return The number of emails marked as spam.
+     */
+    public int markAsSpam(List<String> senders, int limit, boolean skipLocked) {
+        return jdbcTemplate.update("""
+                        UPDATE emails SET state = 'SPAM', updated_at = now()
+                        WHERE email_id IN (
+                            SELECT email_id FROM emails
+                            WHERE email_from = ANY(?) AND state IS DISTINCT FROM 'SPAM'
+                            LIMIT ? FOR UPDATE%s)
+                        """.formatted(skipLocked ? " SKIP LOCKED" : ""),
+                statement -> {
+                    statement.setArray(1, statement.getConnection().createArrayOf("varchar", senders.toArray()));
+                    statement.setInt(2, limit);
+                });
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.email.repositories;
+
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailTo;
+import com.example.email.entity.RecipientStorageEnum;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Writes emails and their recipients with the PostgreSQL {@code COPY} protocol.</p>
+ * <p>Ids are taken from the same pooled sequences used by Hibernate, so copied rows never collide
+ * with rows inserted through JPA. Bodies are stored once per distinct content by the {@link EmailBodyDao}.
+ * In the array storage mode the recipients are copied into the array columns of "emails" instead of
+ * "email_to" and "email_cc".</p>
+ */
+@Repository
+public class EmailCopyDao {
+
+    /**
+     * <p>Increment of the {@code emails_seq}, {@code email_to_seq} and {@code email_cc_seq} sequences.</p>
+     */
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EmailBodyDao emailBodyDao;
+
+    /**
+     * How the recipients of the copied emails are stored.
+     */
+    @Value("${email.recipients.storage:table}")
+    private RecipientStorageEnum recipientStorage;
+
+    /**
+     * <p>Copies a chunk of emails, together with their To and CC recipients, in a single transaction.</p>
+     * <p>The generated ids are set on the given entities.</p>
+     *
+     * @param emails The emails to copy.
+     * @throws SQLException If the copy fails; nothing of the chunk is committed in that case.
+     * @throws IOException If the copy data cannot be streamed to the server.
+     */
+    public void copyEmails(List<Email> emails) throws SQLException, IOException {
+        if (emails.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                LocalDateTime now = LocalDateTime.now();
+
+                emailBodyDao.storeBodies(connection, emails);
+                long[] emailIds = allocateIds(connection, "emails_seq", emails.size());
+                StringBuilder emailRows = new StringBuilder();
+                StringBuilder toRows = new StringBuilder();
+                StringBuilder ccRows = new StringBuilder();
+                int toCount = 0;
+                int ccCount = 0;
+
+                boolean arrayStorage = recipientStorage == RecipientStorageEnum.ARRAY;
+                for (int i = 0; i < emails.size(); i++) {
+                    Email email = emails.get(i);
+                    email.setEmailId(emailIds[i]);
+                    email.setUpdatedAt(now);
+                    if (arrayStorage) {
+                        moveToArrays(email);
+                    }
+                    appendRow(emailRows, email.getEmailId(), email.getEmailFrom(),
+                            toByteaLiteral(email.getBodyHash()), Email.snippetOf(email.getEmailBody()),
+                            email.getState().name(), now,
+                            toArrayLiteral(email.getEmailToAddresses()), toArrayLiteral(email.getEmailCCAddresses()));
+                    toCount += email.getEmailTo().size();
+                    ccCount += email.getEmailCC().size();
+                }
+
+                Map<String, Long> addressIds = resolveAddressIds(connection, emails);
+                long[] toIds = allocateIds(connection, "email_to_seq", toCount);
+                long[] ccIds = allocateIds(connection, "email_cc_seq", ccCount);
+                int toIndex = 0;
+                int ccIndex = 0;
+                for (Email email : emails) {
+                    for (EmailTo emailTo : email.getEmailTo()) {
+                        emailTo.setToId(toIds[toIndex++]);
+                        emailTo.setUpdatedAt(now);
+                        appendRow(toRows, emailTo.getToId(), email.getEmailId(),
+                                addressIds.get(emailTo.getEmailAddress()), now);
+                    }
+                    for (EmailCC emailCC : email.getEmailCC()) {
+                        emailCC.setCcId(ccIds[ccIndex++]);
+                        emailCC.setUpdatedAt(now);
+                        appendRow(ccRows, emailCC.getCcId(), email.getEmailId(),
+                                addressIds.get(emailCC.getEmailAddress()), now);
+                    }
+                }
+
+                copyManager.copyIn("COPY emails (email_id, email_from, body_hash, email_snippet, state, updated_at, "
+                        + "email_to_addresses, email_cc_addresses) "
+                        + "FROM STDIN WITH (FORMAT csv)", new StringReader(emailRows.toString()));
+                if (toCount > 0) {
+                    copyManager.copyIn("COPY email_to (to_id, email_id, address_id, updated_at) "
+                            + "FROM STDIN WITH (FORMAT csv)", new StringReader(toRows.toString()));
+                }
+                if (ccCount > 0) {
+                    copyManager.copyIn("COPY email_cc (cc_id, email_id, address_id, updated_at) "
+                            + "FROM STDIN WITH (FORMAT csv)", new StringReader(ccRows.toString()));
+                }
+
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * <p>Looks up the dictionary IDs of the recipient addresses of a chunk, adding the missing addresses to
+     * the "addresses" table first.</p>
+     * <p>The addresses are inserted in sorted order, so concurrent imports lock them in the same order.</p>
+     *
+     * @param connection The connection to use.
+     * @param emails The emails of the chunk.
+     * @return The ID of every recipient address of the chunk.
+     * @throws SQLException If the dictionary cannot be read or written.
+     */
+    private Map<String, Long> resolveAddressIds(Connection connection, List<Email> emails) throws SQLException {
+        Set<String> addresses = new TreeSet<>();
+        for (Email email : emails) {
+            email.getEmailTo().forEach(emailTo -> addresses.add(emailTo.getEmailAddress()));
+            email.getEmailCC().forEach(emailCC -> addresses.add(emailCC.getEmailAddress()));
+        }
+
+        Map<String, Long> addressIds = new HashMap<>();
+        if (addresses.isEmpty()) {
+            return addressIds;
+        }
+
+        Array array = connection.createArrayOf("varchar", addresses.toArray());
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO addresses (address) SELECT unnest(?::varchar[]) ON CONFLICT (address) DO NOTHING")) {
+            insert.setArray(1, array);
+            insert.executeUpdate();
+        }
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT address, address_id FROM addresses WHERE address = ANY(?::varchar[])")) {
+            select.setArray(1, array);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    addressIds.put(resultSet.getString(1), resultSet.getLong(2));
+                }
+            }
+        }
+        array.free();
+        return addressIds;
+    }
+
+    /**
+     * <p>Reserves {@code count} ids from a pooled sequence.</p>
+     * <p>Every {@code nextval} reserves the block of {@value #SEQUENCE_INCREMENT} ids ending at the returned
+     * value, which is the same contract Hibernate's pooled optimizer relies on.</p>
+     *
+     * @param connection The connection to use.
+     * @param sequence The name of the sequence.
+     * @param count The number of ids needed.
+     * @return The reserved ids.
+     * @throws SQLException If the sequence cannot be read.
+     */
+    private long[] allocateIds(Connection connection, String sequence, int count) throws SQLException {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+
+        int blocks = (count + SEQUENCE_INCREMENT - 1) / SEQUENCE_INCREMENT;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)")) {
+            statement.setInt(1, blocks);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int index = 0;
+                while (resultSet.next() && index < count) {
+                    long first = resultSet.getLong(1) - SEQUENCE_INCREMENT + 1;
+                    for (int i = 0; i < SEQUENCE_INCREMENT && index < count; i++) {
+                        ids[index++] = first + i;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * <p>Moves the recipients of an email into its address arrays, so no recipient rows are copied for it.</p>
+     *
+     * @param email The email to copy.
+     */
+    private void moveToArrays(Email email) {
+        email.setEmailToAddresses(email.getEmailTo().stream()
+                .map(EmailTo::getEmailAddress)
+                .collect(Collectors.toList()));
+        email.setEmailCCAddresses(email.getEmailCC().stream()
+                .map(EmailCC::getEmailAddress)
+                .collect(Collectors.toList()));
+        email.setEmailTo(new ArrayList<>());
+        email.setEmailCC(new ArrayList<>());
+    }
+
+    /**
+     * <p>Formats addresses as a PostgreSQL array literal, e.g. {@code {"a@gbtec.com","b@gbtec.com"}}.</p>
+     *
+     * @param addresses The addresses, or null.
+     * @return The array literal, or null if {@code addresses} is null.
+     */
+    private String toArrayLiteral(List<String> addresses) {
+        if (addresses == null) {
+            return null;
+        }
+        return addresses.stream()
+                .map(address -> '"' + address.replace("\\", "\\\\").replace("\"", "\\\"") + '"')
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    /**
+     * <p>Formats bytes as a PostgreSQL {@code bytea} literal in hex format, e.g. {@code \x00ff}.</p>
+     *
+     * @param bytes The bytes, or null.
+     * @return The bytea literal, or null if {@code bytes} is null.
+     */
+    private String toByteaLiteral(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return "\\x" + HexFormat.of().formatHex(bytes);
+    }
+
+    /**
+     * <p>Appends a CSV row to the copy buffer, quoting every value.</p>
+     *
+     * @param buffer The buffer to append to.
+     * @param values The column values of the row.
+     */
+    private void appendRow(StringBuilder buffer, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            if (values[i] != null) {
+                buffer.append('"').append(values[i].toString().replace("\"", "\"\"")).append('"');
+            }
+        }
+        buffer.append('\n');
+    }
+}
@@ -2,10 +2,18 @@ package com.example.email.repositories;
 
 import com.example.email.entity.Email;
 import com.example.email.entity.EmailStateEnum;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * <p>Repository interface for managing {@link Email} entities.</p>
@@ -30,4 +38,66 @@ public interface EmailDao extends JpaRepository<Email, Long> {
      */
     List<Email> findByEmailFrom(String emailFrom);
 
+    /**
+     * <p>Finds the next page of emails in ID order, starting after the given ID (keyset pagination).</p>
+     *
+     * @param emailId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with an ID greater than {@code emailId}, in ascending ID order.
+     */
+    List<Email> findByEmailIdGreaterThanOrderByEmailIdAsc(Long emailId, Limit limit);
+
+    /**
+     * <p>Finds the next page of emails with a specific state in ID order, starting after the given ID
+     * (keyset pagination).</p>
+     *
+     * @param state The state of the emails to retrieve.
+     * @param emailId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with the state and an ID greater than {@code emailId}, in ascending ID order.
+     */
+    List<Email> findByStateAndEmailIdGreaterThanOrderByEmailIdAsc(EmailStateEnum state, Long emailId, Limit limit);
+
+    /**
+     * <p>Finds the next page of emails last updated within {@code [from, to)}, in ID order, starting after
+     * the given ID (keyset pagination).</p>
+     * <p>The bounds on {@code updatedAt} let PostgreSQL skip the monthly partitions outside of the range
+     * when the partitioned schema is enabled.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param emailId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails updated within the range with an ID greater than {@code emailId}, in ascending ID order.
+     */
+    @Query("SELECT e FROM Email e WHERE e.updatedAt >= :from AND e.updatedAt < :to AND e.emailId > :emailId "
+            + "ORDER BY e.emailId")
+    List<Email> findUpdatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                   @Param("emailId") Long emailId, Limit limit);
+
+    /**
+     * <p>Streams all emails in ID order through a server-side cursor.</p>
+     * <p>Must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @return A stream of all emails.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Email> streamAllByOrderByEmailIdAsc();
+
+    /**
+     * <p>Streams the emails with a specific state in ID order through a server-side cursor.</p>
+     * <p>Must be consumed inside a transaction and closed afterwards.</p>
+     *
+     * @param state The state of the emails to stream.
+     * @return A stream of the emails with the specified state.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Email> streamByStateOrderByEmailIdAsc(EmailStateEnum state);
+
 }
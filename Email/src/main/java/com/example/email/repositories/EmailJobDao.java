@@ -0,0 +1,211 @@
+package com.example.email.repositories;
+
+import com.example.email.dto.EmailJobDTO;
+import com.example.email.dto.EmailJobFailureDTO;
+import com.example.email.entity.EmailJobStatusEnum;
+import com.example.email.entity.EmailJobTypeEnum;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>Stores the asynchronous batch jobs, their pending items and their failed items, with plain JDBC.</p>
+ * <p>A job is claimed by a worker with {@code FOR UPDATE SKIP LOCKED}, and its row stays locked while a chunk is
+ * processed, so two workers never process the same chunk even when a slow job is claimed again.</p>
+ */
+@Repository
+public class EmailJobDao {
+
+    /**
+     * <p>The maximum number of items inserted by a single statement when a job is created.</p>
+     */
+    private static final int INSERT_CHUNK_SIZE = 10000;
+
+    private static final String SELECT_JOBS = """
+            SELECT job_id, job_type, status, total_items, next_item, succeeded_items, failed_items,
+                   created_at, started_at, finished_at,
+                   CASE WHEN started_at IS NULL THEN 0
+                        ELSE next_item / GREATEST(EXTRACT(EPOCH FROM COALESCE(finished_at, now()) - started_at),
+                                                  0.001)
+                   END AS items_per_second
+            FROM email_jobs
+            """;
+
+    private final RowMapper<EmailJobDTO> jobRowMapper = (resultSet, rowNum) -> new EmailJobDTO(
+            resultSet.getLong("job_id"),
+            resultSet.getString("job_type"),
+            resultSet.getString("status"),
+            resultSet.getInt("total_items"),
+            resultSet.getInt("next_item"),
+            resultSet.getInt("succeeded_items"),
+            resultSet.getInt("failed_items"),
+            resultSet.getDouble("items_per_second"),
+            resultSet.getObject("created_at", LocalDateTime.class),
+            resultSet.getObject("started_at", LocalDateTime.class),
+            resultSet.getObject("finished_at", LocalDateTime.class));
+
+    private final RowMapper<EmailJobFailureDTO> failureRowMapper = (resultSet, rowNum) -> new EmailJobFailureDTO(
+            resultSet.getInt("item_index"),
+            resultSet.getObject("email_id", Long.class),
+            resultSet.getString("message"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * <p>Creates a job and stores its items. Must run in a transaction, so the job is never picked up without
+     * all of its items.</p>
+     * <p>A job without items is created as completed.</p>
+     *
+     * @param type The kind of job.
+     * @param payloads The request of each item, as JSON, in batch order.
+     * @return The ID of the job.
+     */
+    public long createJob(EmailJobTypeEnum type, List<String> payloads) {
+        EmailJobStatusEnum status = payloads.isEmpty() ? EmailJobStatusEnum.COMPLETED : EmailJobStatusEnum.QUEUED;
+        Long jobId = jdbcTemplate.queryForObject("""
+                INSERT INTO email_jobs (job_type, status, total_items, finished_at)
+                VALUES (?, ?, ?, CASE WHEN ? THEN now() END)
+                RETURNING job_id
+                """, Long.class, type.name(), status.name(), payloads.size(), payloads.isEmpty());
+
+        for (int from = 0; from < payloads.size(); from += INSERT_CHUNK_SIZE) {
+            int offset = from;
+            List<String> chunk = payloads.subList(from, Math.min(from + INSERT_CHUNK_SIZE, payloads.size()));
+            jdbcTemplate.update("""
+                            INSERT INTO email_job_items (job_id, item_index, payload)
+                            SELECT ?, ? + t.ordinality::int - 1, t.payload
+                            FROM unnest(?::text[]) WITH ORDINALITY AS t(payload, ordinality)
+                            """,
+                    statement -> {
+                        statement.setLong(1, jobId);
+                        statement.setInt(2, offset);
+                        statement.setArray(3, statement.getConnection().createArrayOf("text", chunk.toArray()));
+                    });
+        }
+        return jobId;
+    }
+
+    /**
+     * <p>Finds a job by its ID.</p>
+     *
+     * @param jobId The ID of the job.
+     * @return The job, or an empty {@link Optional} if it does not exist.
+     */
+    public Optional<EmailJobDTO> findById(long jobId) {
+        return jdbcTemplate.query(SELECT_JOBS + "WHERE job_id = ?", jobRowMapper, jobId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * <p>Claims the oldest job that is queued, or running without a heartbeat for {@code staleAfter}
+     * milliseconds because its worker stopped.</p>
+     *
+     * @param staleAfter The time after which a running job without a heartbeat is claimed again, in milliseconds.
+     * @return The ID of the claimed job, or an empty {@link Optional} if there is none.
+     */
+    public Optional<Long> claimJob(long staleAfter) {
+        return jdbcTemplate.queryForList("""
+                        UPDATE email_jobs SET status = 'RUNNING', started_at = COALESCE(started_at, now()),
+                                              heartbeat_at = now()
+                        WHERE job_id = (
+                            SELECT job_id FROM email_jobs
+                            WHERE status = 'QUEUED'
+                               OR (status = 'RUNNING' AND heartbeat_at < now() - ? * interval '1 millisecond')
+                            ORDER BY job_id LIMIT 1 FOR UPDATE SKIP LOCKED)
+                        RETURNING job_id
+                        """, Long.class, staleAfter)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * <p>Locks a running job until the end of the current transaction.</p>
+     *
+     * @param jobId The ID of the job.
+     * @return The job, or an empty {@link Optional} if it is not running anymore.
+     */
+    public Optional<EmailJobDTO> lockRunningJob(long jobId) {
+        return jdbcTemplate.query(SELECT_JOBS + "WHERE job_id = ? AND status = 'RUNNING' FOR UPDATE",
+                        jobRowMapper, jobId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * <p>Puts a running job back in the queue, to be resumed by the next idle worker.</p>
+     *
+     * @param jobId The ID of the job.
+     */
+    public void requeueJob(long jobId) {
+        jdbcTemplate.update("UPDATE email_jobs SET status = 'QUEUED' WHERE job_id = ? AND status = 'RUNNING'", jobId);
+    }
+
+    /**
+     * <p>Finds the pending items of a job, starting at an item.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param fromItem The index of the first item.
+     * @param limit The maximum number of items to return.
+     * @return The request of each item, as JSON, in batch order.
+     */
+    public List<String> findItems(long jobId, int fromItem, int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT payload FROM email_job_items
+                WHERE job_id = ? AND item_index >= ? ORDER BY item_index LIMIT ?
+                """, String.class, jobId, fromItem, limit);
+    }
+
+    /**
+     * <p>Records the outcome of a chunk: stores its failed items, deletes its items, moves the job to the next
+     * chunk and renews its heartbeat. The job is completed once every item is processed.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param nextItem The index of the first item of the next chunk.
+     * @param succeeded The number of items of the chunk that were written.
+     * @param failures The failed items of the chunk.
+     */
+    public void completeChunk(long jobId, int nextItem, int succeeded, List<EmailJobFailureDTO> failures) {
+        if (!failures.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                            INSERT INTO email_job_failures (job_id, item_index, email_id, message)
+                            VALUES (?, ?, ?, ?)
+                            """, failures, failures.size(),
+                    (statement, failure) -> {
+                        statement.setLong(1, jobId);
+                        statement.setInt(2, failure.getItem());
+                        statement.setObject(3, failure.getEmailId());
+                        statement.setString(4, failure.getMessage());
+                    });
+        }
+        jdbcTemplate.update("DELETE FROM email_job_items WHERE job_id = ? AND item_index < ?", jobId, nextItem);
+        jdbcTemplate.update("""
+                UPDATE email_jobs SET next_item = ?, succeeded_items = succeeded_items + ?,
+                                      failed_items = failed_items + ?, heartbeat_at = now(),
+                                      status = CASE WHEN ? >= total_items THEN 'COMPLETED' ELSE status END,
+                                      finished_at = CASE WHEN ? >= total_items THEN now() END
+                WHERE job_id = ?
+                """, nextItem, succeeded, failures.size(), nextItem, nextItem, jobId);
+    }
+
+    /**
+     * <p>Finds the next page of the failed items of a job, in batch order.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param afterItem The last item of the previous page, or -1 for the first page.
+     * @param limit The maximum number of failed items to return.
+     * @return The failed items after {@code afterItem}.
+     */
+    public List<EmailJobFailureDTO> findFailures(long jobId, long afterItem, int limit) {
+        return jdbcTemplate.query("""
+                SELECT item_index, email_id, message FROM email_job_failures
+                WHERE job_id = ? AND item_index > ? ORDER BY item_index LIMIT ?
+                """, failureRowMapper, jobId, afterItem, limit);
+    }
+}
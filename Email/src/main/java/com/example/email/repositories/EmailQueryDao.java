@@ -0,0 +1,275 @@
+package com.example.email.repositories;
+
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.converter.AddressInterner;
+import com.example.email.dto.EmailAddressDTO;
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.dto.EmailVersionDTO;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailStateEnum;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * <p>Read-only queries that build {@link EmailResponseDTO} and {@link EmailHeaderDTO} objects straight from
+ * JDBC rows.</p>
+ * <p>The recipients are aggregated in SQL with {@code array_agg}, so every email is read in a single row
+ * and no managed entity, dirty-checking snapshot or lazy collection is created. Emails stored in the array
+ * storage mode return their array columns and skip the recipient tables. Pages only carry the stored snippet
+ * of the body; full bodies are read from "email_bodies" and decoded with the {@link EmailBodyCodec}.</p>
+ */
+@Repository
+public class EmailQueryDao {
+
+    private static final String RECIPIENT_COLUMNS = """
+                   COALESCE(e.email_to_addresses, (SELECT array_agg(a.address ORDER BY t.to_id)::text[]
+                                                   FROM email_to t JOIN addresses a ON a.address_id = t.address_id
+                                                   WHERE t.email_id = e.email_id)) AS email_to,
+                   COALESCE(e.email_cc_addresses, (SELECT array_agg(a.address ORDER BY c.cc_id)::text[]
+                                                   FROM email_cc c JOIN addresses a ON a.address_id = c.address_id
+                                                   WHERE c.email_id = e.email_id)) AS email_cc
+            """;
+
+    private static final String SELECT_EMAILS = "SELECT e.email_id, e.email_from, e.state, e.updated_at,\n"
+            + "COALESCE(b.body_data, e.email_body_data) AS email_body_data, e.email_body,\n"
+            + RECIPIENT_COLUMNS + "FROM emails e LEFT JOIN email_bodies b ON b.body_hash = e.body_hash\n";
+
+    /**
+     * <p>Selects the list columns: only a snippet of the body is read, so large bodies are never transferred.</p>
+     */
+    private static final String SELECT_HEADERS = "SELECT e.email_id, e.email_from, e.state, e.updated_at,\n"
+            + "COALESCE(e.email_snippet, left(e.email_body, " + Email.SNIPPET_LENGTH + ")) AS snippet,\n"
+            + RECIPIENT_COLUMNS + "FROM emails e\n";
+
+    /**
+     * <p>The number of rows fetched per round trip when streaming.</p>
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final RowMapper<EmailResponseDTO> emailRowMapper = this::mapEmail;
+
+    private final RowMapper<EmailHeaderDTO> headerRowMapper = this::mapHeader;
+
+    private final RowMapper<EmailVersionDTO> versionRowMapper = (resultSet, rowNum) -> new EmailVersionDTO(
+            resultSet.getLong("email_id"), resultSet.getObject("updated_at", LocalDateTime.class));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AddressInterner addressInterner;
+
+    @Autowired
+    private EmailBodyCodec emailBodyCodec;
+
+    /**
+     * <p>Finds an email by its ID.</p>
+     *
+     * @param emailId The ID of the email.
+     * @return The email, or an empty {@link Optional} if it does not exist.
+     */
+    public Optional<EmailResponseDTO> findById(Long emailId) {
+        return jdbcTemplate.query(SELECT_EMAILS + "WHERE e.email_id = ?", emailRowMapper, emailId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * <p>Finds the version of an email, without reading its body or recipients.</p>
+     *
+     * @param emailId The ID of the email.
+     * @return The version, or an empty {@link Optional} if the email does not exist.
+     */
+    public Optional<EmailVersionDTO> findVersion(Long emailId) {
+        return jdbcTemplate.query("SELECT email_id, updated_at FROM emails WHERE email_id = ?",
+                        versionRowMapper, emailId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * <p>Finds the versions of the emails of {@link #findPageByState(EmailStateEnum, long, int)}, without
+     * reading their bodies or recipients.</p>
+     * <p>Answered by an index-only scan of the state keyset index.</p>
+     *
+     * @param state The state of the emails.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of versions to return.
+     * @return The versions of the emails of the page, in ascending ID order.
+     */
+    public List<EmailVersionDTO> findPageVersionsByState(EmailStateEnum state, long afterId, int limit) {
+        return jdbcTemplate.query("""
+                SELECT email_id, updated_at FROM emails
+                WHERE state = ?::state_enum AND email_id > ? ORDER BY email_id LIMIT ?
+                """, versionRowMapper, state.name(), afterId, limit);
+    }
+
+    /**
+     * <p>Finds the next page of emails in ID order, starting after the given ID (keyset pagination).</p>
+     *
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public List<EmailHeaderDTO> findPage(long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_HEADERS + "WHERE e.email_id > ? ORDER BY e.email_id LIMIT ?",
+                headerRowMapper, afterId, limit);
+    }
+
+    /**
+     * <p>Finds the next page of emails with a specific state in ID order, starting after the given ID
+     * (keyset pagination).</p>
+     *
+     * @param state The state of the emails to retrieve.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with the state and an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public List<EmailHeaderDTO> findPageByState(EmailStateEnum state, long afterId, int limit) {
+        return jdbcTemplate.query(
+                SELECT_HEADERS + "WHERE e.state = ?::state_enum AND e.email_id > ? ORDER BY e.email_id LIMIT ?",
+                headerRowMapper, state.name(), afterId, limit);
+    }
+
+    /**
+     * <p>Finds the next page of emails last updated within {@code [from, to)}, in ID order, starting after
+     * the given ID (keyset pagination).</p>
+     * <p>The bounds on {@code updated_at} let PostgreSQL skip the monthly partitions outside of the range
+     * when the partitioned schema is enabled.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails updated within the range with an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public List<EmailHeaderDTO> findPageUpdatedBetween(LocalDateTime from, LocalDateTime to, long afterId, int limit) {
+        return jdbcTemplate.query(
+                SELECT_HEADERS + "WHERE e.updated_at >= ? AND e.updated_at < ? AND e.email_id > ? "
+                        + "ORDER BY e.email_id LIMIT ?",
+                headerRowMapper, from, to, afterId, limit);
+    }
+
+    /**
+     * <p>Finds the next page of emails sent to an address, in ID order, starting after the given ID
+     * (keyset pagination).</p>
+     * <p>Both storage modes are searched, so emails stored before a change of mode are still found: the GIN
+     * index on "email_to_addresses" and the primary key, probed with the IDs of the matching "email_to" rows,
+     * are combined with a {@code BitmapOr}.</p>
+     *
+     * @param address The "To" address.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails sent to the address with an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public List<EmailHeaderDTO> findPageByRecipient(String address, long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_HEADERS + """
+                        WHERE (e.email_to_addresses @> ARRAY[?]::text[]
+                               OR e.email_id = ANY(ARRAY(SELECT r.email_id FROM email_to r
+                                                         JOIN addresses a ON a.address_id = r.address_id
+                                                         WHERE a.address = ?)))
+                          AND e.email_id > ? ORDER BY e.email_id LIMIT ?
+                        """,
+                headerRowMapper, address, address, afterId, limit);
+    }
+
+    /**
+     * <p>Streams emails in ID order to a consumer, optionally filtered by state.</p>
+     * <p>Rows are fetched {@value #STREAM_FETCH_SIZE} at a time through a server-side cursor, so memory use does
+     * not depend on the number of emails. Must be called inside a transaction.</p>
+     *
+     * @param state The state of the emails to stream, or null to stream all emails.
+     * @param consumer The consumer receiving each email.
+     */
+    public void streamEmails(EmailStateEnum state, Consumer<EmailResponseDTO> consumer) {
+        String sql = state == null
+                ? SELECT_EMAILS + "ORDER BY e.email_id"
+                : SELECT_EMAILS + "WHERE e.state = ?::state_enum ORDER BY e.email_id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            if (state != null) {
+                statement.setString(1, state.name());
+            }
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(mapEmail(resultSet, resultSet.getRow())));
+    }
+
+    /**
+     * <p>Maps a row of {@link #SELECT_EMAILS} to an {@link EmailResponseDTO}.</p>
+     *
+     * @param resultSet The result set positioned on the row.
+     * @param rowNum The number of the row.
+     * @return The email.
+     * @throws SQLException If a column cannot be read.
+     */
+    private EmailResponseDTO mapEmail(ResultSet resultSet, int rowNum) throws SQLException {
+        EmailResponseDTO responseDTO = new EmailResponseDTO();
+        responseDTO.setEmailId(resultSet.getLong("email_id"));
+        responseDTO.setEmailFrom(resultSet.getString("email_from"));
+        byte[] bodyData = resultSet.getBytes("email_body_data");
+        // rows not migrated yet by the EmailBodyMigration still have their body on the email row
+        responseDTO.setEmailBody(bodyData != null
+                ? emailBodyCodec.decode(bodyData)
+                : resultSet.getString("email_body"));
+        responseDTO.setState(EmailStateEnum.valueOf(resultSet.getString("state")).getStateCode());
+        responseDTO.setUpdatedAt(resultSet.getObject("updated_at", LocalDateTime.class));
+        responseDTO.setEmailTo(toAddresses(resultSet.getArray("email_to")));
+        responseDTO.setEmailCC(toAddresses(resultSet.getArray("email_cc")));
+        return responseDTO;
+    }
+
+    /**
+     * <p>Maps a row of {@link #SELECT_HEADERS} to an {@link EmailHeaderDTO}.</p>
+     *
+     * @param resultSet The result set positioned on the row.
+     * @param rowNum The number of the row.
+     * @return The email header.
+     * @throws SQLException If a column cannot be read.
+     */
+    private EmailHeaderDTO mapHeader(ResultSet resultSet, int rowNum) throws SQLException {
+        EmailHeaderDTO headerDTO = new EmailHeaderDTO();
+        headerDTO.setEmailId(resultSet.getLong("email_id"));
+        headerDTO.setEmailFrom(resultSet.getString("email_from"));
+        headerDTO.setSnippet(resultSet.getString("snippet"));
+        headerDTO.setState(EmailStateEnum.valueOf(resultSet.getString("state")).getStateCode());
+        headerDTO.setUpdatedAt(resultSet.getObject("updated_at", LocalDateTime.class));
+        headerDTO.setEmailTo(toAddresses(resultSet.getArray("email_to")));
+        headerDTO.setEmailCC(toAddresses(resultSet.getArray("email_cc")));
+        return headerDTO;
+    }
+
+    /**
+     * <p>Converts an aggregated SQL array of addresses to {@link EmailAddressDTO} objects, sharing one instance
+     * per distinct address through the {@link AddressInterner}.</p>
+     *
+     * @param array The array, or null if the email has no recipients of that kind.
+     * @return The addresses, never null.
+     * @throws SQLException If the array cannot be read.
+     */
+    private List<EmailAddressDTO> toAddresses(Array array) throws SQLException {
+        List<EmailAddressDTO> addresses = new ArrayList<>();
+        if (array == null) {
+            return addresses;
+        }
+        for (Object address : (Object[]) array.getArray()) {
+            addresses.add(new EmailAddressDTO(addressInterner.intern((String) address)));
+        }
+        array.free();
+        return addresses;
+    }
+}
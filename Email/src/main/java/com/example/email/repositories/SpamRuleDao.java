@@ -0,0 +1,22 @@
+package com.example.email.repositories;
+
+import com.example.email.entity.SpamRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * <p>Repository interface for managing {@link SpamRule} entities.</p>
+ * <p>This interface provides CRUD operations for the {@link SpamRule} entity, using {@link JpaRepository}.</p>
+ */
+@Repository
+public interface SpamRuleDao extends JpaRepository<SpamRule, Long> {
+
+    /**
+     * <p>Finds all the rules that are enabled.</p>
+     *
+     * @return The enabled rules.
+     */
+    List<SpamRule> findByEnabledTrue();
+}
@@ -1,14 +1,29 @@
 package com.example.email.rest.controller;
 
+import com.example.email.facade.EmailETags;
 import com.example.email.facade.EmailFacade;
+import com.example.email.dto.EmailDeleteResultDTO;
+import com.example.email.dto.EmailImportResultDTO;
+import com.example.email.dto.EmailJobDTO;
+import com.example.email.dto.EmailJobFailurePageDTO;
+import com.example.email.dto.EmailPageDTO;
 import com.example.email.dto.EmailRequestDTO;
 import com.example.email.dto.EmailResponseDTO;
+import com.example.email.dto.EmailUpdateResultDTO;
+import com.example.email.entity.EmailStateEnum;
 import com.example.email.rabbitmq.RabbitMQProducer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -47,6 +62,8 @@ public class EmailController {
 
     /**
      * <p>Creates multiple emails in batch.</p>
+     * <p>The whole batch is written in one transaction within the request; large batches should be submitted to
+     * {@code POST /emails/jobs} instead.</p>
      *
      * @param emailRequestDTOs List of {@link EmailRequestDTO} objects containing the emails to be created.
      * @return ResponseEntity<List<EmailResponseDTO>> The list of created emails.
@@ -63,26 +80,118 @@ public class EmailController {
     }
 
     /**
-     * <p>Retrieves all emails.</p>
+     * <p>Imports emails from a newline-delimited JSON upload.</p>
+     * <p>The body is read incrementally and written in chunks, so uploads of any size can be imported.</p>
      *
-     * @return ResponseEntity<List<EmailResponseDTO>> List of all stored emails.
+     * @param inputStream The request body, one {@link EmailRequestDTO} per line.
+     * @return ResponseEntity<EmailImportResultDTO> The summary of the import, including the rejected lines.
+     */
+    @PostMapping(value = "/emails/import", consumes = "application/x-ndjson")
+    public ResponseEntity<EmailImportResultDTO> importEmails(InputStream inputStream) {
+        try {
+            EmailImportResultDTO result = emailFacade.importEmails(inputStream);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * <p>Retrieves a page of the stored emails, ordered by ID.</p>
+     * <p>Pages carry a snippet of each body; the full body is returned by {@code GET /email/{id}}.</p>
+     *
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @return ResponseEntity<EmailPageDTO> The page of emails and the cursor of the next page.
      */
     @GetMapping("/emails")
-    public ResponseEntity<List<EmailResponseDTO>> getAllEmails() {
-        List<EmailResponseDTO> emails = emailFacade.getAllEmails();
+    public ResponseEntity<EmailPageDTO> getAllEmails(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "100") int limit) {
+        EmailPageDTO emails = emailFacade.getAllEmails(cursor, limit);
+        return ResponseEntity.ok(emails);
+    }
+
+    /**
+     * <p>Retrieves a page of the emails last updated within a time range, ordered by ID.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp, as ISO date-time.
+     * @param to The exclusive upper bound of the update timestamp, as ISO date-time.
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @return ResponseEntity<EmailPageDTO> The page of emails and the cursor of the next page.
+     */
+    @GetMapping("/emails/updated")
+    public ResponseEntity<EmailPageDTO> getEmailsUpdatedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        EmailPageDTO emails = emailFacade.getEmailsUpdatedBetween(from, to, cursor, limit);
+        return ResponseEntity.ok(emails);
+    }
+
+    /**
+     * <p>Retrieves a page of the emails sent to an address, ordered by ID.</p>
+     *
+     * @param address The "To" address.
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @return ResponseEntity<EmailPageDTO> The page of emails and the cursor of the next page.
+     */
+    @GetMapping("/emails/recipient")
+    public ResponseEntity<EmailPageDTO> getEmailsByRecipient(@RequestParam String address,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "100") int limit) {
+        EmailPageDTO emails = emailFacade.getEmailsByRecipient(address, cursor, limit);
         return ResponseEntity.ok(emails);
     }
 
     /**
-     * <p>Retrieves an email by its ID.</p>
+     * <p>Streams every stored email as newline-delimited JSON, ordered by ID.</p>
+     *
+     * @return ResponseEntity<StreamingResponseBody> The emails, one {@link EmailResponseDTO} per line.
+     */
+    @GetMapping(value = "/emails/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportEmails() {
+        return ResponseEntity.ok(outputStream -> emailFacade.exportEmails(null, outputStream));
+    }
+
+    /**
+     * <p>Streams every email with a specific state as newline-delimited JSON, ordered by ID.</p>
+     *
+     * @param state The state of the emails to export.
+     * @return ResponseEntity<StreamingResponseBody> The emails, one {@link EmailResponseDTO} per line.
+     */
+    @GetMapping(value = "/emails/state/{state}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportEmailsByState(@PathVariable int state) {
+        // validates the state before the response is committed
+        EmailStateEnum.fromStateCode(state);
+        return ResponseEntity.ok(outputStream -> emailFacade.exportEmails(state, outputStream));
+    }
+
+    /**
+     * <p>Retrieves an email by its ID, including its full body.</p>
+     * <p>The response carries a strong ETag derived from the update time of the email. A request whose
+     * {@code If-None-Match} matches the current version is answered with 304 (Not Modified) after a
+     * version-only query, without loading the body or the recipients.</p>
      *
      * @param id The ID of the email to retrieve.
+     * @param ifNoneMatch The ETags of the representations held by the client, if any.
      * @return ResponseEntity<EmailResponseDTO> The email corresponding to the provided ID.
      */
     @GetMapping("/email/{id}")
-    public ResponseEntity<EmailResponseDTO> getEmailById(@PathVariable Long id) {
+    public ResponseEntity<EmailResponseDTO> getEmailById(@PathVariable Long id,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                 required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String eTag = emailFacade.getEmailETag(id);
+            if (eTag != null && EmailETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
         EmailResponseDTO email = emailFacade.getEmailById(id);
-        return ResponseEntity.ok(email);
+        return ResponseEntity.ok().eTag(EmailETags.of(email)).body(email);
     }
 
     /**
@@ -105,14 +214,70 @@ public class EmailController {
 
     /**
      * <p>Updates multiple emails in batch.</p>
+     * <p>The whole batch is written in one transaction within the request; large batches should be submitted to
+     * {@code PUT /emails/jobs} instead.</p>
      *
      * @param emailRequestDTOs List of {@link EmailRequestDTO} objects containing the emails to be updated.
-     * @return ResponseEntity<List<EmailResponseDTO>> The list of updated emails.
+     * @return ResponseEntity<List<EmailUpdateResultDTO>> The outcome of each update, in request order.
      */
     @PutMapping("/emails")
-    public ResponseEntity<List<EmailResponseDTO>> updateEmails(@RequestBody List<EmailRequestDTO> emailRequestDTOs) {
-        List<EmailResponseDTO> updatedEmails = emailFacade.updateEmails(emailRequestDTOs);
-        return ResponseEntity.ok(updatedEmails);
+    public ResponseEntity<List<EmailUpdateResultDTO>> updateEmails(@RequestBody List<EmailRequestDTO> emailRequestDTOs) {
+        List<EmailUpdateResultDTO> results = emailFacade.updateEmails(emailRequestDTOs);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * <p>Creates multiple emails in the background.</p>
+     * <p>The batch is stored and processed in chunks, each in its own transaction; follow its progress at the
+     * returned location.</p>
+     *
+     * @param emailRequestDTOs List of {@link EmailRequestDTO} objects containing the emails to be created.
+     * @return ResponseEntity<EmailJobDTO> Response with status 202 (Accepted) and the queued job.
+     */
+    @PostMapping("/emails/jobs")
+    public ResponseEntity<EmailJobDTO> submitCreateJob(@RequestBody List<EmailRequestDTO> emailRequestDTOs) {
+        EmailJobDTO job = emailFacade.submitCreateJob(emailRequestDTOs);
+        return ResponseEntity.accepted().location(URI.create("/emails/jobs/" + job.getJobId())).body(job);
+    }
+
+    /**
+     * <p>Updates multiple emails in the background.</p>
+     * <p>The batch is stored and processed in chunks, each in its own transaction; follow its progress at the
+     * returned location. Emails that do not exist or are not drafts are reported as failed items.</p>
+     *
+     * @param emailRequestDTOs List of {@link EmailRequestDTO} objects containing the emails to be updated.
+     * @return ResponseEntity<EmailJobDTO> Response with status 202 (Accepted) and the queued job.
+     */
+    @PutMapping("/emails/jobs")
+    public ResponseEntity<EmailJobDTO> submitUpdateJob(@RequestBody List<EmailRequestDTO> emailRequestDTOs) {
+        EmailJobDTO job = emailFacade.submitUpdateJob(emailRequestDTOs);
+        return ResponseEntity.accepted().location(URI.create("/emails/jobs/" + job.getJobId())).body(job);
+    }
+
+    /**
+     * <p>Retrieves the progress and throughput of a batch job.</p>
+     *
+     * @param id The ID of the job.
+     * @return ResponseEntity<EmailJobDTO> The job.
+     */
+    @GetMapping("/emails/jobs/{id}")
+    public ResponseEntity<EmailJobDTO> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(emailFacade.getJob(id));
+    }
+
+    /**
+     * <p>Retrieves a page of the failed items of a batch job, in batch order.</p>
+     *
+     * @param id The ID of the job.
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of failed items in the page.
+     * @return ResponseEntity<EmailJobFailurePageDTO> The page of failed items and the cursor of the next page.
+     */
+    @GetMapping("/emails/jobs/{id}/failures")
+    public ResponseEntity<EmailJobFailurePageDTO> getJobFailures(@PathVariable Long id,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(emailFacade.getJobFailures(id, cursor, limit));
     }
 
     /**
@@ -131,23 +296,40 @@ public class EmailController {
      * <p>Deletes multiple emails in batch.</p>
      *
      * @param ids List of IDs of the emails to delete.
-     * @return ResponseEntity<Void> Response with status 204 (No Content) if deletion is successful.
+     * @return ResponseEntity<EmailDeleteResultDTO> The number of deleted emails.
      */
     @DeleteMapping("/emails/{ids}")
-    public ResponseEntity<Void> deleteEmails(@PathVariable List<Long> ids) {
-        emailFacade.deleteEmails(ids);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<EmailDeleteResultDTO> deleteEmails(@PathVariable List<Long> ids) {
+        EmailDeleteResultDTO result = emailFacade.deleteEmails(ids);
+        return ResponseEntity.ok(result);
     }
 
     /**
-     * <p>Retrieves all emails with a specific state.</p>
+     * <p>Retrieves a page of the emails with a specific state, ordered by ID.</p>
+     *
+     * <p>The response carries a strong ETag derived from the IDs and update times of the emails of the page.
+     * A request whose {@code If-None-Match} matches it is answered with 304 (Not Modified) after a
+     * version-only query, an index-only scan that reads neither snippets nor recipients.</p>
      *
      * @param state The state of the emails to retrieve.
-     * @return ResponseEntity<List<EmailResponseDTO>> List of emails with the specified state.
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @param ifNoneMatch The ETags of the representations held by the client, if any.
+     * @return ResponseEntity<EmailPageDTO> The page of emails and the cursor of the next page.
      */
     @GetMapping("/emails/state/{state}")
-    public ResponseEntity<List<EmailResponseDTO>> getEmailsByState(@PathVariable int state) {
-        List<EmailResponseDTO> emails = emailFacade.getEmailsByState(state);
-        return ResponseEntity.ok(emails);
+    public ResponseEntity<EmailPageDTO> getEmailsByState(@PathVariable int state,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "100") int limit,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                 required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String eTag = emailFacade.getEmailsByStateETag(state, cursor, limit);
+            if (EmailETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
+        EmailPageDTO emails = emailFacade.getEmailsByState(state, cursor, limit);
+        return ResponseEntity.ok().eTag(EmailETags.of(emails)).body(emails);
     }
 }
@@ -37,6 +37,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    /**
+     * <p>Handles {@link IllegalArgumentException}, such as an unknown state code or an invalid page cursor,
+     * and returns a 400 response with the error message.</p>
+     *
+     * @param ex The {@link IllegalArgumentException} to handle.
+     * @return A {@link ResponseEntity} with a 400 status and the exception's message.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
     /**
      * <p>Handles any other generic exceptions and returns a 500 response with a generic error message.</p>
      *
@@ -0,0 +1,189 @@
+package com.example.email.service;
+
+import com.example.email.converter.EmailRequestConverter;
+import com.example.email.dto.EmailAddressDTO;
+import com.example.email.dto.EmailImportErrorDTO;
+import com.example.email.dto.EmailImportResultDTO;
+import com.example.email.dto.EmailRequestDTO;
+import com.example.email.entity.Email;
+import com.example.email.repositories.EmailCopyDao;
+import com.example.email.spam.SpamClassifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Service for importing large amounts of emails from newline-delimited JSON.</p>
+ * <p>The upload is read line by line and written in bounded chunks through {@link EmailCopyDao}, so the
+ * memory used does not depend on the size of the upload.</p>
+ */
+@Service
+public class EmailImportServiceImpl {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailImportServiceImpl.class);
+
+    @Autowired
+    private EmailCopyDao emailCopyDao;
+
+    @Autowired
+    private EmailRequestConverter emailRequestConverter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SpamClassifier spamClassifier;
+
+    /**
+     * The number of emails written per {@code COPY} transaction.
+     */
+    @Value("${email.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * The maximum number of rejected lines reported back to the client.
+     */
+    @Value("${email.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    /**
+     * <p>Imports the emails contained in an NDJSON stream, one {@link EmailRequestDTO} per line.</p>
+     * <p>Blank lines are skipped. Lines that cannot be parsed or validated are reported and skipped.
+     * Each chunk is committed on its own; if a chunk fails, all of its lines are reported as failed.</p>
+     *
+     * @param inputStream The NDJSON stream.
+     * @return The summary of the import.
+     * @throws IOException If the stream cannot be read.
+     */
+    public EmailImportResultDTO importEmails(InputStream inputStream) throws IOException {
+        EmailImportResultDTO result = new EmailImportResultDTO();
+        List<Email> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                result.setProcessed(result.getProcessed() + 1);
+
+                try {
+                    chunk.add(parseLine(line));
+                    chunkLines.add(lineNumber);
+                } catch (IOException | IllegalArgumentException e) {
+                    reportError(result, lineNumber, e.getMessage());
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    flushChunk(chunk, chunkLines, result);
+                }
+            }
+        }
+        flushChunk(chunk, chunkLines, result);
+
+        LOGGER.info(String.format("Import finished -> %d processed, %d imported, %d failed",
+                result.getProcessed(), result.getImported(), result.getFailed()));
+        return result;
+    }
+
+    /**
+     * <p>Parses and validates a single NDJSON line.</p>
+     *
+     * @param line The line to parse.
+     * @return The email ready to be copied, marked as spam if it matches a spam rule.
+     * @throws IOException If the line is not valid JSON.
+     * @throws IllegalArgumentException If a required field is missing, a recipient or its address is null, or
+     * the state is unknown.
+     */
+    private Email parseLine(String line) throws IOException {
+        EmailRequestDTO emailRequestDTO = objectMapper.readValue(line, EmailRequestDTO.class);
+
+        if (emailRequestDTO.getEmailFrom() == null || emailRequestDTO.getEmailBody() == null) {
+            throw new IllegalArgumentException("emailFrom and emailBody are required");
+        }
+        if (emailRequestDTO.getEmailTo() == null) {
+            emailRequestDTO.setEmailTo(List.of());
+        }
+        if (emailRequestDTO.getEmailCC() == null) {
+            emailRequestDTO.setEmailCC(List.of());
+        }
+        requireAddresses("emailTo", emailRequestDTO.getEmailTo());
+        requireAddresses("emailCC", emailRequestDTO.getEmailCC());
+        emailRequestDTO.setEmailId(null);
+
+        Email email = emailRequestConverter.convert(emailRequestDTO);
+        spamClassifier.markIfSpam(email);
+        return email;
+    }
+
+    /**
+     * <p>Checks that every recipient of a line has an address, so a malformed line is reported instead of
+     * failing the conversion.</p>
+     *
+     * @param field The name of the recipient field, for the error message.
+     * @param recipients The recipients of the line.
+     * @throws IllegalArgumentException If a recipient or its address is null.
+     */
+    private void requireAddresses(String field, List<EmailAddressDTO> recipients) {
+        for (EmailAddressDTO recipient : recipients) {
+            if (recipient == null || recipient.getEmail() == null) {
+                throw new IllegalArgumentException(field + " must only contain recipients with an email");
+            }
+        }
+    }
+
+    /**
+     * <p>Writes the pending chunk and clears it.</p>
+     *
+     * @param chunk The pending emails.
+     * @param chunkLines The line numbers of the pending emails.
+     * @param result The import summary to update.
+     */
+    private void flushChunk(List<Email> chunk, List<Long> chunkLines, EmailImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            emailCopyDao.copyEmails(chunk);
+            result.setImported(result.getImported() + chunk.size());
+        } catch (SQLException | IOException e) {
+            LOGGER.error("Import chunk failed", e);
+            chunkLines.forEach(lineNumber -> reportError(result, lineNumber, e.getMessage()));
+        }
+
+        LOGGER.info(String.format("Import progress -> %d processed, %d imported, %d failed",
+                result.getProcessed(), result.getImported(), result.getFailed()));
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * <p>Counts a rejected line and records it while the error report is not full.</p>
+     *
+     * @param result The import summary to update.
+     * @param lineNumber The rejected line.
+     * @param message The reason of the rejection.
+     */
+    private void reportError(EmailImportResultDTO result, long lineNumber, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new EmailImportErrorDTO(lineNumber, message));
+        }
+    }
+}
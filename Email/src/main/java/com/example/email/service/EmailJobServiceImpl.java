@@ -0,0 +1,105 @@
+package com.example.email.service;
+
+import com.example.email.dto.EmailJobDTO;
+import com.example.email.dto.EmailJobFailureDTO;
+import com.example.email.dto.EmailRequestDTO;
+import com.example.email.entity.EmailJobTypeEnum;
+import com.example.email.jobs.EmailJobRunner;
+import com.example.email.repositories.EmailJobDao;
+import com.example.email.service.exceptions.ResourceNotFoundException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Service for submitting and following asynchronous batch jobs.</p>
+ * <p>Submitting a job only stores its items, so it returns quickly and holds no lock on the emails; the items
+ * are written in the background by the {@link EmailJobRunner}.</p>
+ */
+@Service
+public class EmailJobServiceImpl {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailJobServiceImpl.class);
+
+    @Autowired
+    private EmailJobDao emailJobDao;
+
+    @Autowired
+    private EmailJobRunner emailJobRunner;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * <p>Stores a batch as a new job, and hands it to an idle worker once committed.</p>
+     *
+     * @param type The kind of job.
+     * @param emailRequestDTOs The items of the batch.
+     * @return The queued job.
+     */
+    @Transactional
+    public EmailJobDTO submitJob(EmailJobTypeEnum type, List<EmailRequestDTO> emailRequestDTOs) {
+        ObjectWriter writer = objectMapper.writerFor(EmailRequestDTO.class);
+        List<String> payloads = new ArrayList<>(emailRequestDTOs.size());
+        try {
+            for (EmailRequestDTO emailRequestDTO : emailRequestDTOs) {
+                payloads.add(writer.writeValueAsString(emailRequestDTO));
+            }
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long jobId = emailJobDao.createJob(type, payloads);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    emailJobRunner.dispatch();
+                } catch (RuntimeException e) {
+                    // picked up by the next poll of the runner
+                    LOGGER.warn(String.format("Job not dispatched at once -> %d: %s", jobId, e.getMessage()));
+                }
+            }
+        });
+
+        LOGGER.info(String.format("Job submitted -> %d: %s of %d items", jobId, type, payloads.size()));
+        return getJob(jobId);
+    }
+
+    /**
+     * <p>Retrieves the progress of a job.</p>
+     *
+     * @param jobId The ID of the job.
+     * @return The job.
+     * @throws ResourceNotFoundException If no job is found with the specified ID.
+     */
+    public EmailJobDTO getJob(Long jobId) {
+        return emailJobDao.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Job with jobId " + jobId + " was not found"));
+    }
+
+    /**
+     * <p>Retrieves a page of the failed items of a job, in batch order.</p>
+     *
+     * @param jobId The ID of the job.
+     * @param afterItem The last item of the previous page, or -1 for the first page.
+     * @param limit The maximum number of failed items to return.
+     * @return The failed items after {@code afterItem}.
+     * @throws ResourceNotFoundException If no job is found with the specified ID.
+     */
+    public List<EmailJobFailureDTO> getJobFailures(Long jobId, long afterItem, int limit) {
+        getJob(jobId);
+        return emailJobDao.findFailures(jobId, afterItem, limit);
+    }
+}
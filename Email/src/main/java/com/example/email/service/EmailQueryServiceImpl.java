@@ -0,0 +1,130 @@
+package com.example.email.service;
+
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.dto.EmailVersionDTO;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.repositories.EmailQueryDao;
+import com.example.email.service.exceptions.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * <p>Read-only service that returns emails as {@link EmailResponseDTO} and {@link EmailHeaderDTO} projections.</p>
+ * <p>Unlike {@link EmailServiceImpl}, no entity is hydrated, which lowers the allocation rate and
+ * latency of the read endpoints.</p>
+ * <p>The pages and the export run in read-only transactions, which are routed to a read replica when
+ * {@code email.replicas.enabled=true}. The single-email reads stay on the primary, since they back the email
+ * cache and its conditional requests.</p>
+ */
+@Service
+public class EmailQueryServiceImpl {
+
+    @Autowired
+    private EmailQueryDao emailQueryDao;
+
+    /**
+     * <p>Retrieves an email by its ID.</p>
+     *
+     * @param emailId The ID of the email to retrieve.
+     * @return The email with the specified ID.
+     * @throws ResourceNotFoundException If no email is found with the specified ID.
+     */
+    public EmailResponseDTO getEmailById(Long emailId) {
+        return emailQueryDao.findById(emailId)
+                .orElseThrow(() -> new ResourceNotFoundException("Email with emailId " + emailId + " was not found"));
+    }
+
+    /**
+     * <p>Retrieves a page of emails in ID order.</p>
+     *
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with an ID greater than {@code afterId}.
+     */
+    @Transactional(readOnly = true)
+    public List<EmailHeaderDTO> getAllEmails(long afterId, int limit) {
+        return emailQueryDao.findPage(afterId, limit);
+    }
+
+    /**
+     * <p>Retrieves the version of an email, without loading it.</p>
+     *
+     * @param emailId The ID of the email.
+     * @return The version, or an empty {@link Optional} if the email does not exist.
+     */
+    public Optional<EmailVersionDTO> getEmailVersion(Long emailId) {
+        return emailQueryDao.findVersion(emailId);
+    }
+
+    /**
+     * <p>Retrieves the versions of a page of emails filtered by their state, without loading the emails.</p>
+     *
+     * @param state The state of the emails.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of versions to return.
+     * @return The versions of the emails of {@link #getEmailsByState(EmailStateEnum, long, int)}.
+     */
+    @Transactional(readOnly = true)
+    public List<EmailVersionDTO> getEmailVersionsByState(EmailStateEnum state, long afterId, int limit) {
+        return emailQueryDao.findPageVersionsByState(state, afterId, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of emails filtered by their state, in ID order.</p>
+     *
+     * @param state The state of the emails to retrieve.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with the specified state and an ID greater than {@code afterId}.
+     */
+    @Transactional(readOnly = true)
+    public List<EmailHeaderDTO> getEmailsByState(EmailStateEnum state, long afterId, int limit) {
+        return emailQueryDao.findPageByState(state, afterId, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of emails last updated within {@code [from, to)}, in ID order.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails updated within the range with an ID greater than {@code afterId}.
+     */
+    @Transactional(readOnly = true)
+    public List<EmailHeaderDTO> getEmailsUpdatedBetween(LocalDateTime from, LocalDateTime to, long afterId,
+                                                          int limit) {
+        return emailQueryDao.findPageUpdatedBetween(from, to, afterId, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of emails sent to an address, in ID order.</p>
+     *
+     * @param address The "To" address.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails sent to the address with an ID greater than {@code afterId}.
+     */
+    @Transactional(readOnly = true)
+    public List<EmailHeaderDTO> getEmailsByRecipient(String address, long afterId, int limit) {
+        return emailQueryDao.findPageByRecipient(address, afterId, limit);
+    }
+
+    /**
+     * <p>Streams emails to a consumer in ID order, optionally filtered by state, with constant memory.</p>
+     *
+     * @param state The state of the emails to stream, or null to stream all emails.
+     * @param consumer The consumer receiving each email.
+     */
+    @Transactional(readOnly = true)
+    public void streamEmails(EmailStateEnum state, Consumer<EmailResponseDTO> consumer) {
+        emailQueryDao.streamEmails(state, consumer);
+    }
+}
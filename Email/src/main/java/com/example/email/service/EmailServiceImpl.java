@@ -1,29 +1,67 @@
 package com.example.email.service;
 
+import com.example.email.cache.EmailCache;
 import com.example.email.entity.*;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailBulkDao;
 import com.example.email.repositories.EmailCCDao;
 import com.example.email.repositories.EmailDao;
 import com.example.email.repositories.EmailToDao;
 import com.example.email.service.exceptions.InvalidEmailStateException;
 import com.example.email.service.exceptions.ResourceNotFoundException;
-import jakarta.transaction.Transactional;
+import com.example.email.spam.SpamClassifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * <p>Service for managing email-related operations.</p>
  * <p>This service handles tasks such as creating, updating, retrieving, and deleting emails,
  * as well as marking emails as spam.</p>
+ * <p>The listing and streaming methods run in read-only transactions: Hibernate does not flush them nor keep
+ * snapshots of the loaded emails for dirty checking, and they are routed to a read replica when
+ * {@code email.replicas.enabled=true}.</p>
  */
 @Service
 @Transactional
 public class EmailServiceImpl {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailServiceImpl.class);
+
+    /**
+     * <p>The maximum number of IDs bound to a single statement in batch operations.</p>
+     */
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
+    /**
+     * <p>The maximum number of IDs sent in a single array-bound bulk delete.</p>
+     */
+    private static final int DELETE_CHUNK_SIZE = 10000;
+
     @Autowired
     private EmailDao emailDao;
 
@@ -33,19 +71,70 @@ public class EmailServiceImpl {
     @Autowired
     private EmailToDao emailToDao;
 
+    @Autowired
+    private EmailBulkDao emailBulkDao;
+
+    @Autowired
+    private EmailBodyDao emailBodyDao;
+
+    @Autowired
+    private EmailCache emailCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SpamClassifier spamClassifier;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * The number of streamed emails after which the persistence context is cleared. Zero or less never clears
+     * it, which keeps every streamed email in memory until the end of the export.
+     */
+    @Value("${email.export.clear-interval:500}")
+    private int exportClearInterval;
+
+    /**
+     * The sender addresses whose emails are marked as spam by the daily sweep.
+     */
+    @Value("${email.spam.senders:carl@gbtec.com}")
+    private List<String> spamSenders;
+
+    /**
+     * The maximum number of emails marked as spam per statement of the daily sweep.
+     */
+    @Value("${email.spam.chunk-size:1000}")
+    private int spamChunkSize;
+
+    /**
+     * How the recipients of created and updated emails are stored.
+     */
+    @Value("${email.recipients.storage:table}")
+    private RecipientStorageEnum recipientStorage;
+
     /**
      * <p>Creates a new email.</p>
+     * <p>Emails matching a spam rule are stored with the {@link EmailStateEnum#SPAM} state.</p>
      *
      * @param email Email data to create a new email.
      * @return The created email.
      */
     public Email createEmail(Email email) {
+        spamClassifier.markIfSpam(email);
+        applyRecipientStorage(email);
+        emailBodyDao.storeBodies(List.of(email));
 
         return emailDao.save(email);
     }
 
     /**
      * <p>Creates multiple emails in batch.</p>
+     * <p>Ids are pre-allocated from pooled sequences, so the inserts of the emails and their recipients
+     * are ordered and sent to the database as JDBC batches. Each distinct body of the batch is stored once, so a
+     * mailing sending the same body to many recipients stores it a single time. Emails matching a spam rule are
+     * stored with the {@link EmailStateEnum#SPAM} state.</p>
      *
      * @param emailsToCreate List of email objects to create.
      * @return List of created email objects.
@@ -53,15 +142,20 @@ public class EmailServiceImpl {
     @Transactional
     public List<Email> createEmails(List<Email> emailsToCreate) {
         emailsToCreate.forEach(email -> {
+            spamClassifier.markIfSpam(email);
             email.getEmailTo().forEach(emailTo -> emailTo.setEmail(email));
             email.getEmailCC().forEach(emailCC -> emailCC.setEmail(email));
+            applyRecipientStorage(email);
         });
+        emailBodyDao.storeBodies(emailsToCreate);
 
         return emailDao.saveAll(emailsToCreate);
     }
 
     /**
      * <p>Retrieves an email by its ID.</p>
+     * <p>Reads from the primary: the email is cached by the facade, and a version loaded from a lagging replica
+     * right after an update would stay cached until it expires.</p>
      *
      * @param emailId The ID of the email to retrieve.
      * @return The email with the specified ID.
@@ -74,6 +168,8 @@ public class EmailServiceImpl {
 
     /**
      * <p>Updates an existing email.</p>
+     * <p>Only the recipients that changed are written: removed addresses are deleted, new addresses are
+     * inserted and unchanged recipient rows are left untouched.</p>
      *
      * @param emailId The ID of the email to update.
      * @param emailFrom Sender's email address.
@@ -96,50 +192,257 @@ public class EmailServiceImpl {
             throw new InvalidEmailStateException("Email state is not valid to update");
         }
 
-        email.setEmailFrom(emailFrom);
-        email.setEmailBody(emailBody);
-        email.setState(EmailStateEnum.fromStateCode(state));
+        Email update = Email.builder()
+                .emailFrom(emailFrom)
+                .emailBody(emailBody)
+                .state(EmailStateEnum.fromStateCode(state))
+                .emailTo(emailToAddresses)
+                .emailCC(emailCCAddresses)
+                .build();
 
-        emailToDao.deleteAll(email.getEmailTo());
-        emailCCDao.deleteAll(email.getEmailCC());
-
-        emailToAddresses.forEach(emailTo -> emailTo.setEmail(email));
-        emailCCAddresses.forEach(emailCC -> emailCC.setEmail(email));
-
-        email.setEmailTo(emailToAddresses);
-        email.setEmailCC(emailCCAddresses);
+        List<Long> removedToIds = new ArrayList<>();
+        List<Long> removedCCIds = new ArrayList<>();
+        List<Email> changedBodies = new ArrayList<>();
+        applyUpdate(email, update, removedToIds, removedCCIds, changedBodies);
+        emailBodyDao.storeBodies(changedBodies);
+        deleteRecipients(removedToIds, removedCCIds);
+        emailCache.invalidate(List.of(emailId));
 
         return emailDao.save(email);
     }
 
     /**
      * <p>Updates multiple emails in batch.</p>
+     * <p>The targets are loaded with one query per chunk of {@value #BATCH_CHUNK_SIZE} IDs and validated together.
+     * The recipients are diffed against the stored ones: removed recipients are deleted with one statement per
+     * table and chunk, and the email rows and added recipients are written as JDBC batches when the transaction
+     * is flushed. Unchanged recipient rows are left untouched.
+     * Emails that do not exist or are not drafts are skipped and reported in the results.</p>
      *
      * @param emailsToUpdate List of email objects to update.
-     * @return List of updated email objects.
+     * @return The outcome of each update, in the order of {@code emailsToUpdate}.
      */
     @Transactional
-    public List<Email> updateEmails(List<Email> emailsToUpdate) {
-        return emailsToUpdate.stream()
-                .map(email -> updateEmail(
-                        email.getEmailId(),
-                        email.getEmailFrom(),
-                        email.getEmailBody(),
-                        email.getState().getStateCode(),
-                        email.getEmailTo(),
-                        email.getEmailCC()
-                ))
+    public List<EmailUpdateResult> updateEmails(List<Email> emailsToUpdate) {
+        Map<Long, Email> storedEmails = new HashMap<>();
+        List<Long> requestedIds = emailsToUpdate.stream()
+                .map(Email::getEmailId)
+                .filter(Objects::nonNull)
+                .distinct()
                 .collect(Collectors.toList());
+        for (List<Long> chunk : chunks(requestedIds, BATCH_CHUNK_SIZE)) {
+            emailDao.findAllById(chunk).forEach(email -> storedEmails.put(email.getEmailId(), email));
+        }
+
+        List<EmailUpdateResult> results = new ArrayList<>(emailsToUpdate.size());
+        for (Email update : emailsToUpdate) {
+            Email email = storedEmails.get(update.getEmailId());
+            if (email == null) {
+                results.add(new EmailUpdateResult(update.getEmailId(), EmailUpdateResult.Status.NOT_FOUND,
+                        "Email with emailId " + update.getEmailId() + " was not found", null));
+            } else if (email.getState() != EmailStateEnum.DRAFT) {
+                results.add(new EmailUpdateResult(update.getEmailId(), EmailUpdateResult.Status.INVALID_STATE,
+                        "Email state is not valid to update", null));
+            } else {
+                results.add(new EmailUpdateResult(update.getEmailId(), EmailUpdateResult.Status.UPDATED, null, email));
+            }
+        }
+
+        List<Long> removedToIds = new ArrayList<>();
+        List<Long> removedCCIds = new ArrayList<>();
+        List<Email> changedBodies = new ArrayList<>();
+        List<Long> updatedIds = new ArrayList<>();
+        for (int i = 0; i < emailsToUpdate.size(); i++) {
+            EmailUpdateResult result = results.get(i);
+            if (result.getStatus() == EmailUpdateResult.Status.UPDATED) {
+                applyUpdate(result.getEmail(), emailsToUpdate.get(i), removedToIds, removedCCIds, changedBodies);
+                updatedIds.add(result.getEmailId());
+            }
+        }
+        emailBodyDao.storeBodies(changedBodies);
+        deleteRecipients(removedToIds, removedCCIds);
+        emailCache.invalidate(updatedIds);
+
+        return results;
     }
 
     /**
-     * <p>Retrieves all emails.</p>
+     * <p>Copies the updatable fields of a request onto a managed email and diffs its recipients.</p>
+     * <p>The recipients are written in the configured storage mode; an email stored in the other mode is
+     * moved over. The body is only replaced when its content changed, which the hashes tell without loading
+     * the stored body. The revision is always incremented, so the email is written and its update time
+     * renewed, which changes its ETag, even when only its recipient rows change. The update time itself is
+     * left to the flush: new recipients copy the stored one, which the partitioned schema requires.</p>
      *
-     * @return List of all emails.
+     * @param email The managed email.
+     * @param update The requested values.
+     * @param removedToIds Receives the IDs of the "To" recipients that are no longer present.
+     * @param removedCCIds Receives the IDs of the CC recipients that are no longer present.
+     * @param changedBodies Receives the emails whose body must be stored.
      */
-    @Transactional
-    public List<Email> getAllEmails() {
-        return emailDao.findAll();
+    private void applyUpdate(Email email, Email update, List<Long> removedToIds, List<Long> removedCCIds,
+                             List<Email> changedBodies) {
+        email.setEmailFrom(update.getEmailFrom());
+        byte[] bodyHash = update.getEmailBody() == null ? null : EmailBodyDao.hashOf(update.getEmailBody());
+        if (!Arrays.equals(email.getBodyHash(), bodyHash)) {
+            email.setEmailBody(update.getEmailBody());
+            changedBodies.add(email);
+        }
+        email.setState(update.getState());
+        email.setRevision(email.getRevision() + 1);
+
+        List<EmailTo> requestedTo = update.getEmailTo();
+        List<EmailCC> requestedCC = update.getEmailCC();
+        if (recipientStorage == RecipientStorageEnum.ARRAY) {
+            email.setEmailToAddresses(addresses(requestedTo, EmailTo::getEmailAddress));
+            email.setEmailCCAddresses(addresses(requestedCC, EmailCC::getEmailAddress));
+            requestedTo = List.of();
+            requestedCC = List.of();
+        } else {
+            email.setEmailToAddresses(null);
+            email.setEmailCCAddresses(null);
+        }
+
+        email.setEmailTo(diffRecipients(email.getEmailTo(), requestedTo, EmailTo::getEmailAddress,
+                EmailTo::getToId, emailTo -> emailTo.setEmail(email), removedToIds));
+        email.setEmailCC(diffRecipients(email.getEmailCC(), requestedCC, EmailCC::getEmailAddress,
+                EmailCC::getCcId, emailCC -> emailCC.setEmail(email), removedCCIds));
+    }
+
+    /**
+     * <p>Moves the recipients of a new email into its address arrays when the array storage mode is
+     * configured, so no "email_to" and "email_cc" rows are inserted for it.</p>
+     *
+     * @param email The email to create.
+     */
+    private void applyRecipientStorage(Email email) {
+        if (recipientStorage != RecipientStorageEnum.ARRAY) {
+            return;
+        }
+        email.setEmailToAddresses(addresses(email.getEmailTo(), EmailTo::getEmailAddress));
+        email.setEmailCCAddresses(addresses(email.getEmailCC(), EmailCC::getEmailAddress));
+        email.setEmailTo(new ArrayList<>());
+        email.setEmailCC(new ArrayList<>());
+    }
+
+    /**
+     * <p>Extracts the addresses of recipients.</p>
+     *
+     * @param recipients The recipients, may be null.
+     * @param address Returns the address of a recipient.
+     * @param <T> The recipient type.
+     * @return The addresses, in recipient order.
+     */
+    private <T> List<String> addresses(List<T> recipients, Function<T, String> address) {
+        if (recipients == null) {
+            return new ArrayList<>();
+        }
+        return recipients.stream()
+                .map(address)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * <p>Computes the new recipient list of an email from the stored and the requested recipients.</p>
+     * <p>Addresses are matched as a multiset: every requested address reuses an unmatched stored recipient
+     * with the same address if there is one, and is attached as a new recipient otherwise. Stored recipients
+     * left unmatched are reported as removed.</p>
+     *
+     * @param stored The stored recipients, may be null.
+     * @param requested The requested recipients.
+     * @param address Returns the address of a recipient.
+     * @param id Returns the ID of a stored recipient.
+     * @param attach Links a new recipient to its email.
+     * @param removedIds Receives the IDs of the removed stored recipients.
+     * @param <T> The recipient type.
+     * @return The kept stored recipients followed by the new ones.
+     */
+    private <T> List<T> diffRecipients(List<T> stored, List<T> requested, Function<T, String> address,
+                                       Function<T, Long> id, Consumer<T> attach, List<Long> removedIds) {
+        Map<String, Deque<T>> unmatched = new HashMap<>();
+        if (stored != null) {
+            stored.forEach(recipient -> unmatched
+                    .computeIfAbsent(address.apply(recipient), key -> new ArrayDeque<>())
+                    .add(recipient));
+        }
+
+        List<T> kept = new ArrayList<>();
+        List<T> added = new ArrayList<>();
+        for (T recipient : requested) {
+            Deque<T> sameAddress = unmatched.get(address.apply(recipient));
+            if (sameAddress != null && !sameAddress.isEmpty()) {
+                kept.add(sameAddress.poll());
+            } else {
+                attach.accept(recipient);
+                added.add(recipient);
+            }
+        }
+        unmatched.values().forEach(recipients -> recipients.forEach(recipient -> removedIds.add(id.apply(recipient))));
+
+        kept.addAll(added);
+        return kept;
+    }
+
+    /**
+     * <p>Deletes recipients by ID with one statement per table and chunk.</p>
+     *
+     * @param toIds The IDs of the "To" recipients to delete.
+     * @param ccIds The IDs of the CC recipients to delete.
+     */
+    private void deleteRecipients(List<Long> toIds, List<Long> ccIds) {
+        chunks(toIds, BATCH_CHUNK_SIZE).forEach(emailToDao::deleteAllByIdInBatch);
+        chunks(ccIds, BATCH_CHUNK_SIZE).forEach(emailCCDao::deleteAllByIdInBatch);
+    }
+
+    /**
+     * <p>Splits a list of IDs into chunks.</p>
+     *
+     * @param ids The IDs to split.
+     * @param chunkSize The maximum number of IDs per chunk.
+     * @return The chunks.
+     */
+    private List<List<Long>> chunks(List<Long> ids, int chunkSize) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * <p>Retrieves a page of emails in ID order.</p>
+     *
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with an ID greater than {@code afterId}.
+     */
+    @Transactional(readOnly = true)
+    public List<Email> getAllEmails(long afterId, int limit) {
+        return emailDao.findByEmailIdGreaterThanOrderByEmailIdAsc(afterId, Limit.of(limit));
+    }
+
+    /**
+     * <p>Streams emails to a consumer, optionally filtered by state, with constant memory.</p>
+     * <p>Rows are read through a server-side cursor and the persistence context is cleared every
+     * {@code email.export.clear-interval} emails, so already consumed emails can be garbage collected. An
+     * interval of zero or less disables the clearing.</p>
+     *
+     * @param state The state of the emails to stream, or null to stream all emails.
+     * @param consumer The consumer receiving each email, in ID order.
+     */
+    @Transactional(readOnly = true)
+    public void streamEmails(EmailStateEnum state, Consumer<Email> consumer) {
+        try (Stream<Email> emails = state == null
+                ? emailDao.streamAllByOrderByEmailIdAsc()
+                : emailDao.streamByStateOrderByEmailIdAsc(state)) {
+            int[] streamed = {0};
+            emails.forEach(email -> {
+                consumer.accept(email);
+                if (exportClearInterval > 0 && ++streamed[0] % exportClearInterval == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
     }
 
     /**
@@ -149,38 +452,85 @@ public class EmailServiceImpl {
      */
     public void deleteEmail(Long emailId) {
         emailDao.deleteById(emailId);
+        emailCache.invalidate(List.of(emailId));
     }
 
     /**
      * <p>Deletes multiple emails in batch.</p>
+     * <p>One {@code DELETE ... WHERE email_id = ANY(?)} statement is issued per chunk of {@value #DELETE_CHUNK_SIZE}
+     * IDs; the recipients are removed by the database cascade. IDs that do not exist are ignored.</p>
      *
      * @param emailIds List of email IDs to delete.
+     * @return The number of deleted emails.
      */
-    public void deleteEmails(List<Long> emailIds) {
-        emailDao.deleteAllById(emailIds);
+    public int deleteEmails(List<Long> emailIds) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(emailIds, DELETE_CHUNK_SIZE)) {
+            deleted += emailBulkDao.deleteByIds(chunk);
+            emailCache.invalidate(chunk);
+        }
+        return deleted;
     }
 
     /**
-     * <p>Retrieves emails filtered by their state.</p>
+     * <p>Retrieves a page of emails filtered by their state, in ID order.</p>
      *
      * @param state The state of the emails to retrieve.
-     * @return List of emails with the specified state.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with the specified state and an ID greater than {@code afterId}.
+     */
+    @Transactional(readOnly = true)
+    public List<Email> getEmailsByState(EmailStateEnum state, long afterId, int limit) {
+        return emailDao.findByStateAndEmailIdGreaterThanOrderByEmailIdAsc(state, afterId, Limit.of(limit));
+    }
+
+    /**
+     * <p>Retrieves a page of emails last updated within {@code [from, to)}, in ID order.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails updated within the range with an ID greater than {@code afterId}.
      */
-    public List<Email> getEmailsByState(EmailStateEnum state) {
-        return emailDao.findByState(state);
+    @Transactional(readOnly = true)
+    public List<Email> getEmailsUpdatedBetween(LocalDateTime from, LocalDateTime to, long afterId, int limit) {
+        return emailDao.findUpdatedBetween(from, to, afterId, Limit.of(limit));
     }
 
     /**
-     * <p>Marks emails from a specific sender as spam.</p>
-     * <p>This is a scheduled task that runs at 10:00 AM every day.</p>
+     * <p>Marks the emails of the configured spam senders as spam.</p>
+     * <p>This is a scheduled task that runs at 10:00 AM every day. The sweep runs outside of a surrounding
+     * transaction as repeated {@code UPDATE} statements of at most {@code email.spam.chunk-size} rows, each
+     * committed on its own. The chunks first skip the rows locked by concurrent writers, until one comes back
+     * short; the sweep then repeats chunks that wait for those locks until one marks nothing. Once it returns,
+     * every email of a spam sender that existed when its last chunk ran is marked, at the cost of waiting for
+     * the writers still holding such rows. The number of marked emails and the duration of
+     * the run are recorded as metrics. The sweep does not tell which emails it marked, so the whole email cache
+     * is invalidated when any was.</p>
      */
     @Scheduled(cron = "0 0 10 * * ?") // 10:00 AM
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void markEmailsAsSpam() {
-        List<Email> emails = emailDao.findByEmailFrom("carl@gbtec.com");
-        emails.forEach(email -> {
-            email.setState(EmailStateEnum.SPAM);
-            email.setUpdatedAt(LocalDateTime.now());
-        });
-        emailDao.saveAll(emails);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int marked = 0;
+        int updated;
+        do {
+            updated = emailBulkDao.markAsSpam(spamSenders, spamChunkSize, true);
+            marked += updated;
+        } while (updated == spamChunkSize);
+        // the rows skipped because they were locked, and any that matched again since
+        do {
+            updated = emailBulkDao.markAsSpam(spamSenders, spamChunkSize, false);
+            marked += updated;
+        } while (updated > 0);
+        if (marked > 0) {
+            emailCache.invalidateAll();
+        }
+
+        sample.stop(meterRegistry.timer("email.spam.sweep.duration"));
+        meterRegistry.counter("email.spam.sweep.rows").increment(marked);
+        LOGGER.info(String.format("Spam sweep finished -> %d emails marked as spam", marked));
     }
 }
@@ -0,0 +1,56 @@
+package com.example.email.service;
+
+import com.example.email.entity.Email;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>Outcome of updating a single email as part of a batch update.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailUpdateResult {
+
+    /**
+     * <p>The possible outcomes of an update.</p>
+     */
+    public enum Status {
+
+        /**
+         * <p>The email was updated.</p>
+         */
+        UPDATED,
+
+        /**
+         * <p>No email exists with the requested ID.</p>
+         */
+        NOT_FOUND,
+
+        /**
+         * <p>The email is not a draft and cannot be updated.</p>
+         */
+        INVALID_STATE
+    }
+
+    /**
+     * <p>The ID of the email the update was requested for.</p>
+     */
+    private Long emailId;
+
+    /**
+     * <p>The outcome of the update.</p>
+     */
+    private Status status;
+
+    /**
+     * <p>The reason why the email was not updated, or null if it was.</p>
+     */
+    private String message;
+
+    /**
+     * <p>The updated email, or null if it was not updated.</p>
+     */
+    private Email email;
+}
@@ -0,0 +1,164 @@
+package com.example.email.spam;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>Immutable Aho-Corasick automaton that tells whether a text contains any of a set of phrases.</p>
+ * <p>Matching is case-insensitive and runs in a single pass over the text, independently of the number of
+ * phrases. After compilation the transitions of every state are stored as sorted arrays, so the automaton
+ * is compact and safe to share between threads.</p>
+ */
+public final class AhoCorasick {
+
+    private static final AhoCorasick EMPTY = new AhoCorasick(
+            new char[][]{new char[0]}, new int[][]{new int[0]}, new int[]{0}, new boolean[]{false});
+
+    private final char[][] labels;
+
+    private final int[][] targets;
+
+    private final int[] failure;
+
+    private final boolean[] accepting;
+
+    private AhoCorasick(char[][] labels, int[][] targets, int[] failure, boolean[] accepting) {
+        this.labels = labels;
+        this.targets = targets;
+        this.failure = failure;
+        this.accepting = accepting;
+    }
+
+    /**
+     * <p>Compiles an automaton matching any of the given phrases. Blank phrases are ignored.</p>
+     *
+     * @param phrases The phrases to match.
+     * @return The compiled automaton.
+     */
+    public static AhoCorasick compile(Collection<String> phrases) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminal.add(false);
+
+        for (String phrase : phrases) {
+            if (phrase == null || phrase.isBlank()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < phrase.length(); i++) {
+                char c = Character.toLowerCase(phrase.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new TreeMap<>());
+                    terminal.add(false);
+                }
+                state = next;
+            }
+            terminal.set(state, true);
+        }
+
+        if (trie.size() == 1) {
+            return EMPTY;
+        }
+
+        int size = trie.size();
+        char[][] labels = new char[size][];
+        int[][] targets = new int[size][];
+        int[] failure = new int[size];
+        boolean[] accepting = new boolean[size];
+        for (int state = 0; state < size; state++) {
+            Map<Character, Integer> edges = trie.get(state);
+            labels[state] = new char[edges.size()];
+            targets[state] = new int[edges.size()];
+            int index = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                labels[state][index] = edge.getKey();
+                targets[state][index] = edge.getValue();
+                index++;
+            }
+            accepting[state] = terminal.get(state);
+        }
+
+        AhoCorasick automaton = new AhoCorasick(labels, targets, failure, accepting);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < labels[state].length; i++) {
+                char c = labels[state][i];
+                int child = targets[state][i];
+                int fallback = failure[state];
+                int next;
+                while ((next = automaton.transition(fallback, c)) < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = next < 0 ? 0 : next;
+                accepting[child] |= accepting[failure[child]];
+                queue.add(child);
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * <p>Tells whether the text contains at least one of the phrases.</p>
+     *
+     * @param text The text to scan, may be null.
+     * @return True if a phrase occurs in the text.
+     */
+    public boolean matches(CharSequence text) {
+        if (text == null || labels.length == 1) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = next < 0 ? 0 : next;
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>Returns the number of states of the automaton.</p>
+     *
+     * @return The number of states.
+     */
+    public int size() {
+        return labels.length;
+    }
+
+    private int transition(int state, char c) {
+        char[] stateLabels = labels[state];
+        int low = 0;
+        int high = stateLabels.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char label = stateLabels[middle];
+            if (label < c) {
+                low = middle + 1;
+            } else if (label > c) {
+                high = middle - 1;
+            } else {
+                return targets[state][middle];
+            }
+        }
+        return -1;
+    }
+}
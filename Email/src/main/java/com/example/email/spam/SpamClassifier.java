@@ -0,0 +1,67 @@
+package com.example.email.spam;
+
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.repositories.SpamRuleDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Classifies emails as spam at ingest time using the rules stored in the "spam_rules" table.</p>
+ * <p>The rules are compiled into an immutable {@link SpamRuleSet} and reloaded periodically. A reload builds
+ * the new set off to the side and publishes it with a single volatile write, so classification never waits
+ * for a reload.</p>
+ */
+@Component
+public class SpamClassifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpamClassifier.class);
+
+    @Autowired
+    private SpamRuleDao spamRuleDao;
+
+    /**
+     * The rule set currently in use.
+     */
+    private volatile SpamRuleSet ruleSet = SpamRuleSet.EMPTY;
+
+    /**
+     * <p>Loads and compiles the enabled rules, then replaces the rule set in use.</p>
+     * <p>Runs at startup and every {@code email.spam.rules.reload-interval} milliseconds. If the rules
+     * cannot be loaded, the previous rule set stays in use.</p>
+     */
+    @Scheduled(fixedDelayString = "${email.spam.rules.reload-interval:60000}")
+    public void reloadRules() {
+        try {
+            SpamRuleSet compiled = SpamRuleSet.compile(spamRuleDao.findByEnabledTrue());
+            ruleSet = compiled;
+            LOGGER.debug(String.format("Spam rules reloaded -> %d rules", compiled.size()));
+        } catch (RuntimeException e) {
+            LOGGER.error("Spam rules could not be reloaded, keeping the previous rules", e);
+        }
+    }
+
+    /**
+     * <p>Tells whether an email matches any spam rule.</p>
+     *
+     * @param email The email to classify.
+     * @return True if the email is spam.
+     */
+    public boolean isSpam(Email email) {
+        return ruleSet.isSpam(email.getEmailFrom(), email.getEmailBody());
+    }
+
+    /**
+     * <p>Sets the state of an email to {@link EmailStateEnum#SPAM} if it matches any spam rule.</p>
+     *
+     * @param email The email to classify.
+     */
+    public void markIfSpam(Email email) {
+        if (isSpam(email)) {
+            email.setState(EmailStateEnum.SPAM);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.email.spam;
+
+import com.example.email.entity.SpamRule;
+import com.example.email.entity.SpamRuleTypeEnum;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <p>Immutable, compiled snapshot of the enabled spam rules.</p>
+ * <p>Sender and domain rules are kept in hash sets and phrase rules are compiled into a single
+ * {@link AhoCorasick} automaton, so classifying an email costs two hash lookups per domain level plus one
+ * pass over the body, whatever the number of rules.</p>
+ */
+public final class SpamRuleSet {
+
+    /**
+     * <p>A rule set without rules, which never classifies an email as spam.</p>
+     */
+    public static final SpamRuleSet EMPTY = compile(List.of());
+
+    private final Set<String> senders;
+
+    private final Set<String> domains;
+
+    private final AhoCorasick phrases;
+
+    private final int ruleCount;
+
+    private SpamRuleSet(Set<String> senders, Set<String> domains, AhoCorasick phrases, int ruleCount) {
+        this.senders = senders;
+        this.domains = domains;
+        this.phrases = phrases;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * <p>Compiles a rule set from the given rules. Disabled rules are ignored.</p>
+     *
+     * @param rules The rules to compile.
+     * @return The compiled rule set.
+     */
+    public static SpamRuleSet compile(Collection<SpamRule> rules) {
+        Set<String> senders = new HashSet<>();
+        Set<String> domains = new HashSet<>();
+        List<String> phrases = new ArrayList<>();
+        int ruleCount = 0;
+
+        for (SpamRule rule : rules) {
+            if (!rule.isEnabled() || rule.getPattern() == null || rule.getPattern().isBlank()) {
+                continue;
+            }
+            String pattern = rule.getPattern().trim().toLowerCase(Locale.ROOT);
+            if (rule.getRuleType() == SpamRuleTypeEnum.SENDER) {
+                senders.add(pattern);
+            } else if (rule.getRuleType() == SpamRuleTypeEnum.DOMAIN) {
+                domains.add(pattern.startsWith("@") ? pattern.substring(1) : pattern);
+            } else {
+                phrases.add(pattern);
+            }
+            ruleCount++;
+        }
+
+        return new SpamRuleSet(Set.copyOf(senders), Set.copyOf(domains), AhoCorasick.compile(phrases), ruleCount);
+    }
+
+    /**
+     * <p>Tells whether an email matches any rule.</p>
+     *
+     * @param emailFrom The sender address.
+     * @param emailBody The body of the email.
+     * @return True if the email is spam.
+     */
+    public boolean isSpam(String emailFrom, String emailBody) {
+        if (emailFrom != null) {
+            String sender = emailFrom.trim().toLowerCase(Locale.ROOT);
+            if (senders.contains(sender) || matchesDomain(sender)) {
+                return true;
+            }
+        }
+        return phrases.matches(emailBody);
+    }
+
+    /**
+     * <p>Returns the number of rules compiled into this set.</p>
+     *
+     * @return The number of rules.
+     */
+    public int size() {
+        return ruleCount;
+    }
+
+    /**
+     * <p>Checks the domain of the sender and each of its parent domains against the domain rules.</p>
+     *
+     * @param sender The lower-case sender address.
+     * @return True if a domain rule matches.
+     */
+    private boolean matchesDomain(String sender) {
+        if (domains.isEmpty()) {
+            return false;
+        }
+        int at = sender.lastIndexOf('@');
+        String domain = at < 0 ? sender : sender.substring(at + 1);
+        while (!domain.isEmpty()) {
+            if (domains.contains(domain)) {
+                return true;
+            }
+            int dot = domain.indexOf('.');
+            if (dot < 0) {
+                return false;
+            }
+            domain = domain.substring(dot + 1);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+-- Content-addressed bodies: every distinct body is stored once, keyed by the SHA-256 hash of its UTF-8
+-- bytes and encoded by EmailBodyCodec. ref_count is the number of emails referencing the body; references
+-- are added by EmailBodyDao when emails are written and released by the triggers below.
+CREATE TABLE email_bodies (
+    body_hash BYTEA PRIMARY KEY,
+    body_data BYTEA NOT NULL,
+    ref_count INT NOT NULL DEFAULT 0
+);
+ALTER TABLE email_bodies ALTER COLUMN body_data SET STORAGE EXTERNAL;
+
+-- Bodies without references, deleted by EmailBodyGarbageCollector
+CREATE INDEX idx_email_bodies_unreferenced ON email_bodies (body_hash) WHERE ref_count <= 0;
+
+-- No foreign key: the reference counts make the check redundant, and it would need an index on
+-- emails.body_hash to delete unreferenced bodies.
+ALTER TABLE emails ADD COLUMN body_hash BYTEA;
+
+-- Rows whose body is still stored on the email row (email_body or email_body_data) are moved to
+-- email_bodies by EmailBodyMigration.
+DROP INDEX idx_emails_body_unmigrated;
+CREATE INDEX idx_emails_body_unmigrated ON emails (email_id) WHERE body_hash IS NULL;
+
+-- Returns the encoded body of a hash. Used by the read transformer of Email.emailBody.
+CREATE FUNCTION email_body_of(p_body_hash BYTEA) RETURNS BYTEA AS $$
+    SELECT body_data FROM email_bodies WHERE body_hash = p_body_hash
+$$ LANGUAGE sql STABLE;
+
+-- Releases the references of deleted emails, once per statement, so bulk deletes update every body once.
+CREATE FUNCTION release_deleted_email_bodies() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE email_bodies b SET ref_count = b.ref_count - r.refs
+    FROM (SELECT body_hash, count(*) AS refs FROM old_rows
+          WHERE body_hash IS NOT NULL GROUP BY body_hash) r
+    WHERE b.body_hash = r.body_hash;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Releases the references of emails whose body was replaced.
+CREATE FUNCTION release_replaced_email_bodies() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE email_bodies b SET ref_count = b.ref_count - r.refs
+    FROM (SELECT o.body_hash, count(*) AS refs FROM old_rows o JOIN new_rows n ON n.email_id = o.email_id
+          WHERE o.body_hash IS NOT NULL AND o.body_hash IS DISTINCT FROM n.body_hash GROUP BY o.body_hash) r
+    WHERE b.body_hash = r.body_hash;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER emails_release_deleted_bodies AFTER DELETE ON emails
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE release_deleted_email_bodies();
+
+CREATE TRIGGER emails_release_replaced_bodies AFTER UPDATE ON emails
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE PROCEDURE release_replaced_email_bodies();
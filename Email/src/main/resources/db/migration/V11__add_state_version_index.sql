@@ -0,0 +1,5 @@
+-- Adds updated_at to the keyset index of GET /emails/state/{state}, so the version-only query answering
+-- If-None-Match (SELECT email_id, updated_at ... WHERE state = ? AND email_id > ? ORDER BY email_id) is an
+-- index-only scan. The index still serves the page queries, which only use its first two columns.
+DROP INDEX idx_emails_state_email_id;
+CREATE INDEX idx_emails_state_email_id ON emails (state, email_id, updated_at);
@@ -0,0 +1,35 @@
+-- Asynchronous batch jobs of POST /emails/jobs and PUT /emails/jobs. The items of a job are stored with it and
+-- processed in chunks by EmailJobRunner; next_item is advanced in the transaction of each chunk, so a job
+-- interrupted by a restart is resumed by any node from its first unprocessed item.
+CREATE TABLE email_jobs (
+    job_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    job_type VARCHAR(16) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    total_items INT NOT NULL,
+    next_item INT NOT NULL DEFAULT 0,
+    succeeded_items INT NOT NULL DEFAULT 0,
+    failed_items INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    heartbeat_at TIMESTAMP
+);
+
+-- Jobs waiting for a worker, or whose worker stopped sending heartbeats
+CREATE INDEX idx_email_jobs_unfinished ON email_jobs (job_id) WHERE status IN ('QUEUED', 'RUNNING');
+
+-- The request of each item as JSON; deleted once its chunk is committed
+CREATE TABLE email_job_items (
+    job_id BIGINT NOT NULL REFERENCES email_jobs (job_id) ON DELETE CASCADE,
+    item_index INT NOT NULL,
+    payload TEXT NOT NULL,
+    PRIMARY KEY (job_id, item_index)
+);
+
+CREATE TABLE email_job_failures (
+    job_id BIGINT NOT NULL REFERENCES email_jobs (job_id) ON DELETE CASCADE,
+    item_index INT NOT NULL,
+    email_id BIGINT,
+    message TEXT,
+    PRIMARY KEY (job_id, item_index)
+);
@@ -0,0 +1,5 @@
+-- Counts the updates of each email. Every update increments it, so an update that only changes recipient rows
+-- still writes the email row and renews its updated_at (and ETag) when the email is flushed, without the
+-- service setting updated_at before the new recipient rows copy it. Adding a column with a constant default
+-- does not rewrite the table.
+ALTER TABLE emails ADD COLUMN revision INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,17 @@
+-- Replaces the identity columns with sequences so Hibernate can pre-allocate ids
+-- (pooled optimizer, increment 50) and batch the inserts of all three tables.
+
+ALTER TABLE emails ALTER COLUMN email_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE emails_seq INCREMENT BY 50 OWNED BY emails.email_id;
+SELECT setval('emails_seq', COALESCE((SELECT MAX(email_id) FROM emails), 0) + 50, false);
+ALTER TABLE emails ALTER COLUMN email_id SET DEFAULT nextval('emails_seq');
+
+ALTER TABLE email_to ALTER COLUMN to_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE email_to_seq INCREMENT BY 50 OWNED BY email_to.to_id;
+SELECT setval('email_to_seq', COALESCE((SELECT MAX(to_id) FROM email_to), 0) + 50, false);
+ALTER TABLE email_to ALTER COLUMN to_id SET DEFAULT nextval('email_to_seq');
+
+ALTER TABLE email_cc ALTER COLUMN cc_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE email_cc_seq INCREMENT BY 50 OWNED BY email_cc.cc_id;
+SELECT setval('email_cc_seq', COALESCE((SELECT MAX(cc_id) FROM email_cc), 0) + 50, false);
+ALTER TABLE email_cc ALTER COLUMN cc_id SET DEFAULT nextval('email_cc_seq');
@@ -0,0 +1,2 @@
+-- Supports keyset pagination of GET /emails/state/{state}: WHERE state = ? AND email_id > ? ORDER BY email_id
+CREATE INDEX idx_emails_state_email_id ON emails (state, email_id);
@@ -0,0 +1,8 @@
+CREATE TABLE spam_rules (
+    rule_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    rule_type VARCHAR(16) NOT NULL CHECK (rule_type IN ('SENDER', 'DOMAIN', 'PHRASE')),
+    pattern VARCHAR(1024) NOT NULL,
+    enabled BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+INSERT INTO spam_rules (rule_type, pattern) VALUES ('SENDER', 'carl@gbtec.com');
@@ -0,0 +1,6 @@
+-- findByEmailFrom and the spam sweep (email_from = ANY(?))
+CREATE INDEX idx_emails_email_from ON emails (email_from);
+
+-- recipient collection loads (email_id IN / = ANY) and the ON DELETE CASCADE lookups from emails
+CREATE INDEX idx_email_to_email_id ON email_to (email_id);
+CREATE INDEX idx_email_cc_email_id ON email_cc (email_id);
@@ -0,0 +1,10 @@
+-- Recipients carry the updated_at of their email so the partitioned schema (db/partitioning) can
+-- co-partition them with emails. In the regular schema the column is informational.
+ALTER TABLE email_to ADD COLUMN updated_at TIMESTAMP;
+ALTER TABLE email_cc ADD COLUMN updated_at TIMESTAMP;
+
+UPDATE email_to t SET updated_at = e.updated_at FROM emails e WHERE e.email_id = t.email_id;
+UPDATE email_cc c SET updated_at = e.updated_at FROM emails e WHERE e.email_id = c.email_id;
+
+-- time-bounded listing (GET /emails/updated)
+CREATE INDEX idx_emails_updated_at ON emails (updated_at);
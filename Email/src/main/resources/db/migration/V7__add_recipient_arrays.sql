@@ -0,0 +1,7 @@
+-- Array storage mode of the recipients (email.recipients.storage=array). NULL means the recipients of
+-- the email are stored as rows of email_to and email_cc.
+ALTER TABLE emails ADD COLUMN email_to_addresses TEXT[];
+ALTER TABLE emails ADD COLUMN email_cc_addresses TEXT[];
+
+-- "emails sent to X" lookups (email_to_addresses @> ARRAY[X])
+CREATE INDEX idx_emails_email_to_addresses ON emails USING GIN (email_to_addresses);
@@ -0,0 +1,50 @@
+-- Every distinct address is stored once; email_to and email_cc reference it by id instead of repeating
+-- the full VARCHAR(255) in every recipient row.
+CREATE TABLE addresses (
+    address_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    address VARCHAR(255) NOT NULL UNIQUE
+);
+
+INSERT INTO addresses (address)
+SELECT email FROM email_to
+UNION
+SELECT email FROM email_cc;
+
+ALTER TABLE email_to ADD COLUMN address_id BIGINT REFERENCES addresses (address_id);
+ALTER TABLE email_cc ADD COLUMN address_id BIGINT REFERENCES addresses (address_id);
+
+UPDATE email_to t SET address_id = a.address_id FROM addresses a WHERE a.address = t.email;
+UPDATE email_cc c SET address_id = a.address_id FROM addresses a WHERE a.address = c.email;
+
+ALTER TABLE email_to ALTER COLUMN address_id SET NOT NULL;
+ALTER TABLE email_cc ALTER COLUMN address_id SET NOT NULL;
+ALTER TABLE email_to DROP COLUMN email;
+ALTER TABLE email_cc DROP COLUMN email;
+
+-- "emails sent to X" lookups in the table storage mode
+CREATE INDEX idx_email_to_address_id ON email_to (address_id);
+
+-- Returns the id of an address, adding it to the dictionary first if needed. Used by the write
+-- transformer of EmailTo and EmailCC.
+CREATE FUNCTION address_id_of(p_address VARCHAR) RETURNS BIGINT AS $$
+DECLARE
+    result BIGINT;
+BEGIN
+    SELECT address_id INTO result FROM addresses WHERE address = p_address;
+    IF result IS NULL THEN
+        INSERT INTO addresses (address) VALUES (p_address)
+        ON CONFLICT (address) DO NOTHING
+        RETURNING address_id INTO result;
+        -- inserted concurrently by another transaction
+        IF result IS NULL THEN
+            SELECT address_id INTO result FROM addresses WHERE address = p_address;
+        END IF;
+    END IF;
+    RETURN result;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Returns the address of an id. Used by the read transformer of EmailTo and EmailCC.
+CREATE FUNCTION address_of(p_address_id BIGINT) RETURNS VARCHAR AS $$
+    SELECT address FROM addresses WHERE address_id = p_address_id
+$$ LANGUAGE sql STABLE;
@@ -0,0 +1,13 @@
+-- Bodies are written by EmailBodyCodec into email_body_data: a one-byte format header followed by the
+-- UTF-8 body, DEFLATE-compressed above email.body.compression-threshold. The codec compresses the large
+-- bodies itself, so PostgreSQL is told not to try again when the value is moved out of line.
+ALTER TABLE emails ADD COLUMN email_body_data BYTEA;
+ALTER TABLE emails ALTER COLUMN email_body_data SET STORAGE EXTERNAL;
+
+-- The snippet of the list endpoints can no longer be computed from a compressed body, so it is stored.
+ALTER TABLE emails ADD COLUMN email_snippet VARCHAR(200);
+
+-- Existing rows keep their text body until EmailBodyMigration moves it to email_body_data; reads fall back
+-- to email_body meanwhile. The partial index lets the migration find the remaining rows without a scan.
+ALTER TABLE emails ALTER COLUMN email_body DROP NOT NULL;
+CREATE INDEX idx_emails_body_unmigrated ON emails (email_id) WHERE email_body IS NOT NULL;
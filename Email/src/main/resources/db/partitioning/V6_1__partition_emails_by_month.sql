@@ -0,0 +1,102 @@
+-- Optional schema mode, applied only when email.schema.partitioned=true.
+-- Fresh installs only: the tables are rebuilt as they are at V6, so PartitioningConfig refuses to start on a
+-- database already migrated past V6 without this migration.
+-- Range-partitions emails by month of updated_at and co-partitions email_to and email_cc on the same key.
+-- Requires PostgreSQL 15 or later, so that moving an email to another partition (an update of updated_at)
+-- cascades to its recipients through ON UPDATE CASCADE instead of deleting them.
+
+CREATE FUNCTION create_email_partitions(from_date DATE, to_date DATE) RETURNS void AS $$
+DECLARE
+    lower_bound DATE := date_trunc('month', from_date);
+    upper_bound DATE;
+    suffix TEXT;
+BEGIN
+    WHILE lower_bound <= to_date LOOP
+        upper_bound := lower_bound + INTERVAL '1 month';
+        suffix := to_char(lower_bound, 'YYYYMM');
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF emails FOR VALUES FROM (%L) TO (%L)',
+                       'emails_p' || suffix, lower_bound, upper_bound);
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF email_to FOR VALUES FROM (%L) TO (%L)',
+                       'email_to_p' || suffix, lower_bound, upper_bound);
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF email_cc FOR VALUES FROM (%L) TO (%L)',
+                       'email_cc_p' || suffix, lower_bound, upper_bound);
+        lower_bound := upper_bound;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- keep the sequences when the old tables are dropped
+ALTER SEQUENCE emails_seq OWNED BY NONE;
+ALTER SEQUENCE email_to_seq OWNED BY NONE;
+ALTER SEQUENCE email_cc_seq OWNED BY NONE;
+
+ALTER TABLE email_to RENAME TO email_to_unpartitioned;
+ALTER TABLE email_cc RENAME TO email_cc_unpartitioned;
+ALTER TABLE emails RENAME TO emails_unpartitioned;
+ALTER TABLE emails_unpartitioned RENAME CONSTRAINT emails_pkey TO emails_unpartitioned_pkey;
+ALTER TABLE email_to_unpartitioned RENAME CONSTRAINT email_to_pkey TO email_to_unpartitioned_pkey;
+ALTER TABLE email_cc_unpartitioned RENAME CONSTRAINT email_cc_pkey TO email_cc_unpartitioned_pkey;
+DROP INDEX idx_emails_state_email_id, idx_emails_email_from, idx_emails_updated_at,
+    idx_email_to_email_id, idx_email_cc_email_id;
+
+CREATE TABLE emails (
+    email_id BIGINT NOT NULL DEFAULT nextval('emails_seq'),
+    email_from VARCHAR(255) NOT NULL,
+    email_body TEXT NOT NULL,
+    state state_enum,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (email_id, updated_at)
+) PARTITION BY RANGE (updated_at);
+
+CREATE TABLE email_to (
+    to_id BIGINT NOT NULL DEFAULT nextval('email_to_seq'),
+    email_id BIGINT NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (to_id, updated_at),
+    FOREIGN KEY (email_id, updated_at) REFERENCES emails (email_id, updated_at)
+        ON DELETE CASCADE ON UPDATE CASCADE
+) PARTITION BY RANGE (updated_at);
+
+CREATE TABLE email_cc (
+    cc_id BIGINT NOT NULL DEFAULT nextval('email_cc_seq'),
+    email_id BIGINT NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (cc_id, updated_at),
+    FOREIGN KEY (email_id, updated_at) REFERENCES emails (email_id, updated_at)
+        ON DELETE CASCADE ON UPDATE CASCADE
+) PARTITION BY RANGE (updated_at);
+
+-- rows outside of the created months
+CREATE TABLE emails_default PARTITION OF emails DEFAULT;
+CREATE TABLE email_to_default PARTITION OF email_to DEFAULT;
+CREATE TABLE email_cc_default PARTITION OF email_cc DEFAULT;
+
+SELECT create_email_partitions(
+    COALESCE((SELECT MIN(updated_at) FROM emails_unpartitioned), CURRENT_TIMESTAMP)::date,
+    (CURRENT_DATE + INTERVAL '3 months')::date);
+
+INSERT INTO emails (email_id, email_from, email_body, state, updated_at)
+SELECT email_id, email_from, email_body, state, COALESCE(updated_at, CURRENT_TIMESTAMP)
+FROM emails_unpartitioned;
+
+INSERT INTO email_to (to_id, email_id, email, updated_at)
+SELECT t.to_id, t.email_id, t.email, e.updated_at
+FROM email_to_unpartitioned t JOIN emails e ON e.email_id = t.email_id;
+
+INSERT INTO email_cc (cc_id, email_id, email, updated_at)
+SELECT c.cc_id, c.email_id, c.email, e.updated_at
+FROM email_cc_unpartitioned c JOIN emails e ON e.email_id = c.email_id;
+
+DROP TABLE email_to_unpartitioned, email_cc_unpartitioned, emails_unpartitioned;
+
+ALTER SEQUENCE emails_seq OWNED BY emails.email_id;
+ALTER SEQUENCE email_to_seq OWNED BY email_to.to_id;
+ALTER SEQUENCE email_cc_seq OWNED BY email_cc.cc_id;
+
+CREATE INDEX idx_emails_state_email_id ON emails (state, email_id);
+CREATE INDEX idx_emails_email_from ON emails (email_from);
+CREATE INDEX idx_emails_updated_at ON emails (updated_at);
+CREATE INDEX idx_email_to_email_id ON email_to (email_id, updated_at);
+CREATE INDEX idx_email_cc_email_id ON email_cc (email_id, updated_at);
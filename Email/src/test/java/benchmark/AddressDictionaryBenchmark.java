@@ -0,0 +1,223 @@
+package benchmark;
+
+import com.example.email.EmailApplication;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.converter.AddressInterner;
+import com.example.email.converter.EmailRequestConverter;
+import com.example.email.dto.EmailAddressDTO;
+import com.example.email.dto.EmailRequestDTO;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailTo;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailCopyDao;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Reports the storage saved by the "addresses" dictionary, the time taken by recipient loads resolving the
+ * addresses per row or with a join, and the heap saved by the {@link AddressInterner} for emails with 3 To and
+ * 1 CC recipients drawn from 2000 distinct addresses.
+ * Run with {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({EmailCopyDao.class, EmailBodyDao.class, AddressInterner.class, EmailBodyCodec.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AddressDictionaryBenchmark {
+
+    private static final int EMAILS = 200_000;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final int CONVERTED_EMAILS = 100_000;
+
+    private static final int LOADED_EMAILS = 50_000;
+
+    @Autowired
+    EmailCopyDao emailCopyDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    AddressInterner addressInterner;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @Test
+    void reportStorage() throws Exception {
+        seed();
+
+        // the previous layout, with the address repeated in every recipient row
+        jdbcTemplate.execute("""
+                CREATE TABLE email_to_inline AS
+                SELECT t.to_id, t.email_id, a.address AS email, t.updated_at
+                FROM email_to t JOIN addresses a ON a.address_id = t.address_id
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE email_cc_inline AS
+                SELECT c.cc_id, c.email_id, a.address AS email, c.updated_at
+                FROM email_cc c JOIN addresses a ON a.address_id = c.address_id
+                """);
+        jdbcTemplate.execute("ALTER TABLE email_to_inline ADD PRIMARY KEY (to_id)");
+        jdbcTemplate.execute("ALTER TABLE email_cc_inline ADD PRIMARY KEY (cc_id)");
+        jdbcTemplate.execute("CREATE INDEX ON email_to_inline (email_id)");
+        jdbcTemplate.execute("CREATE INDEX ON email_cc_inline (email_id)");
+        jdbcTemplate.execute("VACUUM ANALYZE");
+
+        long dictionary = size("email_to") + size("email_cc") + size("addresses");
+        long inline = size("email_to_inline") + size("email_cc_inline");
+        System.out.println(String.format("recipient storage: dictionary=%dKB inline=%dKB saved=%.1f%%",
+                dictionary / 1024, inline / 1024, 100.0 * (inline - dictionary) / inline));
+        jdbcTemplate.execute("DROP TABLE email_to_inline, email_cc_inline");
+    }
+
+    @Test
+    void reportRecipientLoad() throws Exception {
+        seed();
+        List<Long> emailIds = jdbcTemplate.queryForList("SELECT email_id FROM emails ORDER BY email_id LIMIT ?",
+                Long.class, LOADED_EMAILS);
+
+        // the recipient batch load of Hibernate, with the previous address_of read transformer and with the
+        // joined dictionary entry
+        String perRow = "SELECT t.to_id, address_of(t.address_id) FROM email_to t WHERE t.email_id = ANY(?)";
+        String joined = "SELECT t.to_id, a.address FROM email_to t "
+                + "LEFT JOIN addresses a ON a.address_id = t.address_id WHERE t.email_id = ANY(?)";
+        loadRecipients(perRow, emailIds);
+        loadRecipients(joined, emailIds);
+
+        System.out.println(String.format("recipient load of %d emails in batches of %d: address_of=%dms join=%dms",
+                emailIds.size(), Email.RECIPIENT_BATCH_SIZE, loadRecipients(perRow, emailIds),
+                loadRecipients(joined, emailIds)));
+    }
+
+    @Test
+    void reportHeap() {
+        EmailRequestConverter interning = new EmailRequestConverter();
+        ReflectionTestUtils.setField(interning, "addressInterner", addressInterner);
+        EmailRequestConverter nonInterning = new EmailRequestConverter();
+        ReflectionTestUtils.setField(nonInterning, "addressInterner", new AddressInterner(1) {
+            @Override
+            public String intern(String address) {
+                return address;
+            }
+        });
+
+        System.out.println("interned:     " + retainedAddresses(interning));
+        System.out.println("not interned: " + retainedAddresses(nonInterning));
+    }
+
+    private void seed() throws Exception {
+        if (jdbcTemplate.queryForObject("SELECT count(*) FROM emails", Long.class) >= EMAILS) {
+            return;
+        }
+        for (int from = 0; from < EMAILS; from += CHUNK_SIZE) {
+            List<Email> emails = new ArrayList<>(CHUNK_SIZE);
+            for (int i = from; i < from + CHUNK_SIZE; i++) {
+                Email email = Email.builder()
+                        .emailFrom("sender" + (i % 5000) + "@gbtec.com")
+                        .emailBody("Body of email " + i)
+                        .state(EmailStateEnum.SENT)
+                        .build();
+                email.setEmailTo(new ArrayList<>(List.of(new EmailTo(email, address("to", i)),
+                        new EmailTo(email, address("to", i + 1)), new EmailTo(email, address("to", i + 2)))));
+                email.setEmailCC(new ArrayList<>(List.of(new EmailCC(email, address("cc", i)))));
+                emails.add(email);
+            }
+            emailCopyDao.copyEmails(emails);
+        }
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    /**
+     * Loads the "To" addresses of emails with a recipient query, {@value Email#RECIPIENT_BATCH_SIZE} emails at a
+     * time like the batch loads of Hibernate, and returns the elapsed time in milliseconds.
+     */
+    private long loadRecipients(String sql, List<Long> emailIds) {
+        long start = System.nanoTime();
+        for (int from = 0; from < emailIds.size(); from += Email.RECIPIENT_BATCH_SIZE) {
+            Long[] batch = emailIds.subList(from, Math.min(from + Email.RECIPIENT_BATCH_SIZE, emailIds.size()))
+                    .toArray(new Long[0]);
+            jdbcTemplate.query(sql, statement -> statement.setArray(1,
+                    statement.getConnection().createArrayOf("int8", batch)), resultSet -> {
+            });
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private String retainedAddresses(EmailRequestConverter converter) {
+        Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        for (int i = 0; i < CONVERTED_EMAILS; i++) {
+            // every parsed request carries its own String instances, as Jackson creates them
+            EmailRequestDTO request = new EmailRequestDTO(null, "sender@gbtec.com", "Body", 1,
+                    List.of(new EmailAddressDTO(new String(address("to", i))),
+                            new EmailAddressDTO(new String(address("to", i + 1))),
+                            new EmailAddressDTO(new String(address("to", i + 2)))),
+                    List.of(new EmailAddressDTO(new String(address("cc", i)))));
+            Email email = converter.convert(request);
+            for (EmailTo emailTo : email.getEmailTo()) {
+                if (instances.add(emailTo.getEmailAddress())) {
+                    bytes += stringBytes(emailTo.getEmailAddress());
+                }
+            }
+            for (EmailCC emailCC : email.getEmailCC()) {
+                if (instances.add(emailCC.getEmailAddress())) {
+                    bytes += stringBytes(emailCC.getEmailAddress());
+                }
+            }
+        }
+        return String.format("%d address instances, ~%dKB", instances.size(), bytes / 1024);
+    }
+
+    /**
+     * Approximate retained size of a Latin-1 string with compressed oops: 24 bytes of String object plus
+     * a 16-byte array header and the characters, padded to 8 bytes.
+     */
+    private long stringBytes(String value) {
+        return 24 + ((16 + value.length() + 7) / 8) * 8L;
+    }
+
+    private String address(String prefix, int i) {
+        return prefix + (i % 1000) + "@gbtec.com";
+    }
+
+    private long size(String table) {
+        return jdbcTemplate.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, table);
+    }
+}
@@ -0,0 +1,198 @@
+package benchmark;
+
+import com.example.email.EmailApplication;
+import com.example.email.compression.EmailBodyCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Weighs the CPU cost of the {@link EmailBodyCodec} against the storage and I/O it saves, for three
+ * corpora: short plain-text emails, transactional HTML emails (~10KB) and marketing HTML emails (~200KB).
+ * Run with {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailBodyCompressionBenchmark {
+
+    private static final int BODIES = 50;
+
+    private static final int ITERATIONS = 20;
+
+    private static final int STORED_BODIES = 200;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @Test
+    void reportCpu() {
+        Map<String, List<String>> corpora = corpora(BODIES);
+        for (Map.Entry<String, List<String>> corpus : corpora.entrySet()) {
+            for (int level : new int[]{1, Deflater.DEFAULT_COMPRESSION, 9}) {
+                EmailBodyCodec codec = new EmailBodyCodec(EmailBodyCodec.DEFAULT_THRESHOLD, level);
+                long plainBytes = 0;
+                long encodedBytes = 0;
+                List<byte[]> encoded = new ArrayList<>();
+                for (String body : corpus.getValue()) {
+                    byte[] data = codec.encode(body);
+                    plainBytes += body.getBytes(StandardCharsets.UTF_8).length;
+                    encodedBytes += data.length;
+                    encoded.add(data);
+                }
+
+                long encodeNanos = median(() -> corpus.getValue().forEach(codec::encode));
+                long decodeNanos = median(() -> encoded.forEach(codec::decode));
+                System.out.println(String.format(
+                        "%-13s level=%2d ratio=%5.2f encode=%7.1fus/body (%6.1fMB/s) "
+                                + "decode=%6.1fus/body (%6.1fMB/s)",
+                        corpus.getKey(), level, (double) plainBytes / encodedBytes,
+                        encodeNanos / 1000.0 / BODIES, megabytesPerSecond(plainBytes, encodeNanos),
+                        decodeNanos / 1000.0 / BODIES, megabytesPerSecond(plainBytes, decodeNanos)));
+            }
+        }
+    }
+
+    @Test
+    void reportStorageAndReads() {
+        EmailBodyCodec codec = new EmailBodyCodec();
+        EmailBodyCodec plainCodec = new EmailBodyCodec(Integer.MAX_VALUE, Deflater.DEFAULT_COMPRESSION);
+        List<String> bodies = corpora(STORED_BODIES).get("marketing");
+
+        // the previous layout: text compressed by PostgreSQL (pglz) when moved out of line
+        jdbcTemplate.execute("CREATE TABLE bodies_text (id INT PRIMARY KEY, body TEXT)");
+        jdbcTemplate.execute("CREATE TABLE bodies_plain (id INT PRIMARY KEY, body BYTEA)");
+        jdbcTemplate.execute("ALTER TABLE bodies_plain ALTER COLUMN body SET STORAGE EXTERNAL");
+        jdbcTemplate.execute("CREATE TABLE bodies_codec (id INT PRIMARY KEY, body BYTEA)");
+        jdbcTemplate.execute("ALTER TABLE bodies_codec ALTER COLUMN body SET STORAGE EXTERNAL");
+        for (int i = 0; i < bodies.size(); i++) {
+            jdbcTemplate.update("INSERT INTO bodies_text VALUES (?, ?)", i, bodies.get(i));
+            jdbcTemplate.update("INSERT INTO bodies_plain VALUES (?, ?)", i, plainCodec.encode(bodies.get(i)));
+            jdbcTemplate.update("INSERT INTO bodies_codec VALUES (?, ?)", i, codec.encode(bodies.get(i)));
+        }
+        jdbcTemplate.execute("VACUUM ANALYZE bodies_text, bodies_plain, bodies_codec");
+
+        for (String table : List.of("bodies_text", "bodies_plain", "bodies_codec")) {
+            boolean text = table.equals("bodies_text");
+            long nanos = median(() -> {
+                List<String> read = jdbcTemplate.query("SELECT body FROM " + table + " ORDER BY id",
+                        (resultSet, rowNum) -> text ? resultSet.getString(1) : codec.decode(resultSet.getBytes(1)));
+                assertEquals(STORED_BODIES, read.size());
+            });
+            long transferred = jdbcTemplate.queryForObject(
+                    "SELECT sum(octet_length(body)) FROM " + table, Long.class);
+            System.out.println(String.format("%-12s size=%6dKB transferred=%6dKB read+decode=%6.1fms",
+                    table, size(table) / 1024, transferred / 1024, nanos / 1_000_000.0));
+        }
+        jdbcTemplate.execute("DROP TABLE bodies_text, bodies_plain, bodies_codec");
+    }
+
+    private long median(Runnable run) {
+        run.run();
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[ITERATIONS / 2];
+    }
+
+    private double megabytesPerSecond(long bytes, long nanos) {
+        return bytes / 1024.0 / 1024.0 / (nanos / 1_000_000_000.0);
+    }
+
+    private long size(String table) {
+        return jdbcTemplate.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, table);
+    }
+
+    private Map<String, List<String>> corpora(int count) {
+        Random random = new Random(42);
+        Map<String, List<String>> corpora = new LinkedHashMap<>();
+        corpora.put("plain", new ArrayList<>());
+        corpora.put("transactional", new ArrayList<>());
+        corpora.put("marketing", new ArrayList<>());
+        for (int i = 0; i < count; i++) {
+            corpora.get("plain").add(plainText(random));
+            corpora.get("transactional").add(html(random, 20));
+            corpora.get("marketing").add(html(random, 400));
+        }
+        return corpora;
+    }
+
+    private String plainText(Random random) {
+        StringBuilder body = new StringBuilder("Hi ").append(word(random)).append(",\n\n");
+        for (int i = 0; i < 60; i++) {
+            body.append(word(random)).append(i % 12 == 11 ? ".\n" : " ");
+        }
+        return body.append("\nRegards").toString();
+    }
+
+    /**
+     * Inline-styled table rows with tracking links, the bulk of real newsletters.
+     */
+    private String html(Random random, int rows) {
+        StringBuilder body = new StringBuilder("""
+                <!DOCTYPE html><html><head><meta charset="utf-8"><style>
+                body{margin:0;padding:0;font-family:Arial,Helvetica,sans-serif;background:#f4f4f4}
+                .product td{padding:12px 16px;border-bottom:1px solid #e0e0e0;color:#333333}
+                </style></head><body><table width="100%" cellpadding="0" cellspacing="0" role="presentation">
+                """);
+        for (int i = 0; i < rows; i++) {
+            body.append("<tr class=\"product\"><td style=\"padding:12px 16px;font-size:14px;color:#333333\">")
+                    .append("<a href=\"https://shop.gbtec.com/p/").append(random.nextInt(100_000))
+                    .append("?utm_source=newsletter&utm_medium=email&utm_campaign=")
+                    .append(HexFormat.of().toHexDigits(random.nextLong()))
+                    .append("\" style=\"color:#0066cc;text-decoration:none\">")
+                    .append(word(random)).append(' ').append(word(random))
+                    .append("</a></td><td style=\"padding:12px 16px;text-align:right;font-weight:bold\">")
+                    .append(random.nextInt(500)).append('.').append(random.nextInt(90) + 10)
+                    .append(" &euro;</td></tr>\n");
+        }
+        return body.append("</table></body></html>").toString();
+    }
+
+    private String word(Random random) {
+        String[] words = {"offer", "spring", "collection", "delivery", "order", "discount", "exclusive", "members",
+                "weekend", "shipping", "invoice", "account", "product", "update", "summer", "limited"};
+        return words[random.nextInt(words.length)];
+    }
+}
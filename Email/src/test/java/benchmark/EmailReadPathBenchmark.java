@@ -0,0 +1,153 @@
+package benchmark;
+
+import com.example.email.EmailApplication;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.converter.AddressInterner;
+import com.example.email.converter.EmailHeaderConverter;
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.entity.EmailTo;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailDao;
+import com.example.email.repositories.EmailQueryDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Compares the entity read path (hydrate {@link Email}, then convert) with the JDBC projection of
+ * {@link EmailQueryDao} for a page of 500 emails. Run with {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({EmailQueryDao.class, EmailBodyDao.class, AddressInterner.class, EmailBodyCodec.class})
+class EmailReadPathBenchmark {
+
+    private static final int EMAILS = 500;
+
+    private static final int WARMUP = 50;
+
+    private static final int ITERATIONS = 300;
+
+    @Autowired
+    EmailDao emailDao;
+
+    @Autowired
+    EmailQueryDao emailQueryDao;
+
+    @Autowired
+    EmailBodyDao emailBodyDao;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    AddressInterner addressInterner;
+
+    private final EmailHeaderConverter emailHeaderConverter = new EmailHeaderConverter();
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(emailHeaderConverter, "addressInterner", addressInterner);
+        List<Email> emails = new ArrayList<>();
+        for (int i = 0; i < EMAILS; i++) {
+            Email email = Email.builder()
+                    .emailFrom("sender" + i + "@gbtec.com")
+                    .emailBody("Body of email " + i)
+                    .state(EmailStateEnum.SENT)
+                    .build();
+            email.setEmailTo(List.of(new EmailTo(email, "marcus@gbtec.com"), new EmailTo(email, "alex@gbtec.com"),
+                    new EmailTo(email, "laura@gbtec.com")));
+            email.setEmailCC(List.of(new EmailCC(email, "daniel@gbtec.com")));
+            emails.add(email);
+        }
+        emailBodyDao.storeBodies(emails);
+        emails.forEach(testEntityManager::persist);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void compareReadPaths() {
+        Result entity = measure("entity", () -> {
+            List<EmailHeaderDTO> page = emailDao.findByEmailIdGreaterThanOrderByEmailIdAsc(0L, Limit.of(EMAILS))
+                    .stream()
+                    .map(emailHeaderConverter::convert)
+                    .collect(Collectors.toList());
+            testEntityManager.clear();
+            return page;
+        });
+        Result projection = measure("projection", () -> emailQueryDao.findPage(0L, EMAILS));
+
+        System.out.println(entity);
+        System.out.println(projection);
+    }
+
+    private Result measure(String name, Supplier<List<EmailHeaderDTO>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(EMAILS, read.get().size());
+        }
+
+        long[] latencies = new long[ITERATIONS];
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            read.get();
+            latencies[i] = System.nanoTime() - start;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Arrays.sort(latencies);
+        return new Result(name, latencies[ITERATIONS / 2], latencies[ITERATIONS * 99 / 100], allocated / ITERATIONS);
+    }
+
+    private record Result(String name, long p50Nanos, long p99Nanos, long bytesPerPage) {
+
+        @Override
+        public String toString() {
+            return String.format("%-10s p50=%.2fms p99=%.2fms allocated=%dKB/page",
+                    name, p50Nanos / 1e6, p99Nanos / 1e6, bytesPerPage / 1024);
+        }
+    }
+}
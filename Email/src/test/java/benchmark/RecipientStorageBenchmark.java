@@ -0,0 +1,132 @@
+package benchmark;
+
+import com.example.email.EmailApplication;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.converter.AddressInterner;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.entity.EmailTo;
+import com.example.email.entity.RecipientStorageEnum;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailCopyDao;
+import com.example.email.repositories.EmailQueryDao;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Compares the join-table and the array-column storage of recipients: write throughput of the COPY import,
+ * read throughput of a page of 500 emails, "emails sent to X" lookups and the size on disk.
+ * Run with {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({EmailCopyDao.class, EmailBodyDao.class, EmailQueryDao.class, AddressInterner.class, EmailBodyCodec.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RecipientStorageBenchmark {
+
+    private static final int EMAILS = 200_000;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final int PAGE_SIZE = 500;
+
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    EmailCopyDao emailCopyDao;
+
+    @Autowired
+    EmailQueryDao emailQueryDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @Test
+    void compareStorageModes() throws Exception {
+        for (RecipientStorageEnum storage : RecipientStorageEnum.values()) {
+            jdbcTemplate.execute("TRUNCATE emails, email_to, email_cc, addresses, email_bodies");
+            ReflectionTestUtils.setField(emailCopyDao, "recipientStorage", storage);
+            ReflectionTestUtils.setField(emailQueryDao, "recipientStorage", storage);
+
+            long writeStart = System.nanoTime();
+            for (int from = 0; from < EMAILS; from += CHUNK_SIZE) {
+                emailCopyDao.copyEmails(emails(from, CHUNK_SIZE));
+            }
+            long writeNanos = System.nanoTime() - writeStart;
+            jdbcTemplate.execute("VACUUM ANALYZE emails");
+            jdbcTemplate.execute("VACUUM ANALYZE email_to");
+            jdbcTemplate.execute("VACUUM ANALYZE email_cc");
+
+            long readNanos = measure(() -> assertEquals(PAGE_SIZE, emailQueryDao.findPage(0L, PAGE_SIZE).size()));
+            long lookupNanos = measure(() -> emailQueryDao.findPageByRecipient("to42@gbtec.com", 0L, PAGE_SIZE));
+            Long bytes = jdbcTemplate.queryForObject("SELECT pg_total_relation_size('emails') "
+                    + "+ pg_total_relation_size('email_to') + pg_total_relation_size('email_cc')", Long.class);
+
+            System.out.println(String.format(
+                    "%-6s writes=%.0f emails/s page=%.0f pages/s lookup=%.0f lookups/s size=%dMB", storage, EMAILS / (writeNanos / 1e9), 1e9 / readNanos, 1e9 / lookupNanos,
+                    bytes / (1024 * 1024)));
+        }
+    }
+
+    private long measure(Runnable read) {
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            read.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.run();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private List<Email> emails(int from, int count) {
+        List<Email> emails = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            Email email = Email.builder()
+                    .emailFrom("sender" + (i % 5000) + "@gbtec.com")
+                    .emailBody("Body of email " + i)
+                    .state(EmailStateEnum.SENT)
+                    .build();
+            email.setEmailTo(new ArrayList<>(List.of(new EmailTo(email, "to" + (i % 1000) + "@gbtec.com"),
+                    new EmailTo(email, "to" + ((i + 1) % 1000) + "@gbtec.com"),
+                    new EmailTo(email, "to" + ((i + 2) % 1000) + "@gbtec.com"))));
+            email.setEmailCC(new ArrayList<>(List.of(new EmailCC(email, "cc" + (i % 1000) + "@gbtec.com"))));
+            emails.add(email);
+        }
+        return emails;
+    }
+}
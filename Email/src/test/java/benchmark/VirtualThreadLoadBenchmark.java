@@ -0,0 +1,142 @@
+package benchmark;
+
+import com.example.email.EmailApplication;
+import com.example.email.entity.EmailStateEnum;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * <p>Compares the throughput and the latency of the REST layer on platform threads and on virtual threads with
+ * {@value #CONNECTIONS} concurrent connections. Each mode starts the application on a random port against the
+ * same Postgres and RabbitMQ containers and keeps {@value #CONNECTIONS} requests in flight, alternating
+ * {@code POST /email}, which inserts an email and publishes its ID synchronously, and
+ * {@code GET /emails/state/{state}} pages. Run with {@code mvn test -Pbenchmark,virtual-threads} on Java 21;
+ * the client and the server each hold {@value #CONNECTIONS} sockets, so the limit of open files must be raised
+ * above 12000.</p>
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmark {
+
+    private static final int CONNECTIONS = 5000;
+
+    private static final int WARMUP = 10_000;
+
+    private static final int REQUESTS = 50_000;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    private static GenericContainer<?> rabbitContainer = new GenericContainer<>("rabbitmq:3.13-alpine")
+            .withExposedPorts(5672);
+
+    @BeforeAll
+    static void startContainers() {
+        // checked before the containers are started, so the benchmark is skipped rather than failed on Java 17
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require Java 21");
+        sqlContainer.start();
+        rabbitContainer.start();
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    @Test
+    void compareThreadModels() throws Exception {
+        Result platform = run("platform", false);
+        Result virtual = run("virtual", true);
+
+        System.out.println(platform);
+        System.out.println(virtual);
+    }
+
+    private Result run(String name, boolean virtualThreads) throws InterruptedException {
+        // command line arguments, so the mode is not overridden by the system property of the profile
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EmailApplication.class).run(
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.port=0",
+                "--server.tomcat.accept-count=" + CONNECTIONS,
+                "--spring.datasource.url=" + sqlContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + sqlContainer.getUsername(),
+                "--spring.datasource.password=" + sqlContainer.getPassword(),
+                "--spring.datasource.hikari.maximum-pool-size=50",
+                "--spring.rabbitmq.host=" + rabbitContainer.getHost(),
+                "--spring.rabbitmq.port=" + rabbitContainer.getMappedPort(5672),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.example.email=WARN")) {
+            URI baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            send(name, baseUri, WARMUP);
+            return send(name, baseUri, REQUESTS);
+        }
+    }
+
+    private Result send(String name, URI baseUri, int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore connections = new Semaphore(CONNECTIONS);
+        CountDownLatch completed = new CountDownLatch(requests);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            connections.acquire();
+            int request = i;
+            long sent = System.nanoTime();
+            httpClient.sendAsync(request(baseUri, i), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[request] = System.nanoTime() - sent;
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                        connections.release();
+                        completed.countDown();
+                    });
+        }
+        completed.await();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(name, requests * 1e9 / elapsed, latencies[requests / 2], latencies[requests * 99 / 100],
+                errors.get());
+    }
+
+    private HttpRequest request(URI baseUri, int i) {
+        int state = EmailStateEnum.SENT.getStateCode();
+        if (i % 2 == 1) {
+            return HttpRequest.newBuilder(baseUri.resolve("/emails/state/" + state + "?limit=20")).GET().build();
+        }
+        String body = """
+                {"emailFrom": "sender%d@gbtec.com", "emailBody": "Body of email %d", "state": %d,
+                 "emailTo": [{"email": "marcus@gbtec.com"}], "emailCC": [{"email": "daniel@gbtec.com"}]}
+                """.formatted(i, i, state);
+        return HttpRequest.newBuilder(baseUri.resolve("/email"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private record Result(String name, double requestsPerSecond, long p50Nanos, long p99Nanos, int errors) {
+
+        @Override
+        public String toString() {
+            return String.format("%-8s throughput=%.0freq/s p50=%.2fms p99=%.2fms errors=%d",
+                    name, requestsPerSecond, p50Nanos / 1e6, p99Nanos / 1e6, errors);
+        }
+    }
+}
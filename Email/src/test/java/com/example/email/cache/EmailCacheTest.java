@@ -0,0 +1,144 @@
+package com.example.email.cache;
+
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.rabbitmq.EmailCacheInvalidationPublisher;
+import com.example.email.service.exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class EmailCacheTest {
+
+    private final EmailCacheInvalidationPublisher publisher = mock(EmailCacheInvalidationPublisher.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private EmailCache emailCache;
+
+    @BeforeEach
+    void setUp() {
+        emailCache = new EmailCache(1024 * 1024, 60_000);
+        ReflectionTestUtils.setField(emailCache, "invalidationPublisher", publisher);
+        emailCache.bindTo(meterRegistry);
+    }
+
+    @Test
+    void testLoadsOnlyOnMiss() {
+        EmailResponseDTO first = emailCache.get(1L, this::load);
+        EmailResponseDTO second = emailCache.get(1L, this::load);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", EmailCache.NAME).tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", EmailCache.NAME).tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testDoesNotCacheMissingEmails() {
+        assertThrows(ResourceNotFoundException.class, () -> emailCache.get(1L, id -> {
+            loads.incrementAndGet();
+            throw new ResourceNotFoundException("Email with emailId " + id + " was not found");
+        }));
+
+        emailCache.get(1L, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testDoesNotCacheLoadsInvalidatedWhileRunning() {
+        emailCache.get(1L, id -> {
+            emailCache.evict(List.of(id));
+            return load(id);
+        });
+
+        emailCache.get(1L, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testInvalidatesAndBroadcastsOutsideOfTransaction() {
+        emailCache.get(1L, this::load);
+        emailCache.get(2L, this::load);
+
+        emailCache.invalidate(List.of(1L));
+        emailCache.get(1L, this::load);
+        emailCache.get(2L, this::load);
+
+        assertEquals(3, loads.get());
+        verify(publisher).publish(List.of(1L));
+    }
+
+    @Test
+    void testInvalidatesAgainAndBroadcastsAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            emailCache.invalidate(List.of(1L));
+            // a read racing with the write caches the version not committed yet
+            emailCache.get(1L, this::load);
+            verify(publisher, never()).publish(List.of(1L));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        emailCache.get(1L, this::load);
+        assertEquals(2, loads.get());
+        verify(publisher).publish(List.of(1L));
+    }
+
+    @Test
+    void testDoesNotBroadcastRolledBackChanges() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            emailCache.invalidateAll();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(publisher, never()).publishAll();
+    }
+
+    @Test
+    void testWeighsBodies() {
+        EmailResponseDTO small = load(1L);
+        EmailResponseDTO large = load(2L);
+        large.setEmailBody("x".repeat(100_000));
+
+        assertEquals(EmailCache.weigh(2L, large) - EmailCache.weigh(1L, small),
+                100_000 - small.getEmailBody().length());
+    }
+
+    private EmailResponseDTO load(Long emailId) {
+        loads.incrementAndGet();
+        return EmailResponseDTO.builder()
+                .emailId(emailId)
+                .emailFrom("sender@gbtec.com")
+                .emailBody("Body of email " + emailId)
+                .state(1)
+                .emailTo(List.of())
+                .emailCC(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.email.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailBodyCodecTest {
+
+    private final EmailBodyCodec codec = new EmailBodyCodec(100, -1);
+
+    @Test
+    void testStoresSmallBodiesPlain() {
+        byte[] data = codec.encode("Hello Grüße");
+
+        assertEquals(EmailBodyCodec.FORMAT_PLAIN, data[0]);
+        assertFalse(EmailBodyCodec.isCompressed(data));
+        assertEquals("Hello Grüße", codec.decode(data));
+    }
+
+    @Test
+    void testCompressesLargeBodies() {
+        String body = "<tr><td class=\"product\">Offer of the week – 20% off</td></tr>\n".repeat(500);
+
+        byte[] data = codec.encode(body);
+
+        assertTrue(EmailBodyCodec.isCompressed(data));
+        assertTrue(data.length < body.length() / 10);
+        assertEquals(body, codec.decode(data));
+    }
+
+    @Test
+    void testDecodesRegardlessOfThreshold() {
+        String body = "Weekly newsletter ".repeat(100);
+        byte[] compressed = codec.encode(body);
+
+        EmailBodyCodec plainCodec = new EmailBodyCodec(Integer.MAX_VALUE, -1);
+
+        assertEquals(body, plainCodec.decode(compressed));
+        assertArrayEquals(body.getBytes(StandardCharsets.UTF_8),
+                Arrays.copyOfRange(plainCodec.encode(body), 1, body.length() + 1));
+    }
+
+    @Test
+    void testRejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[]{7, 'a'}));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[0]));
+    }
+}
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.*;
@@ -27,6 +28,9 @@ public class EmailConverterTest {
     @Mock
     private EmailRequestDTO emailRequestDTO;
 
+    @Spy
+    private AddressInterner addressInterner = new AddressInterner();
+
     @InjectMocks
     private EmailRequestConverter emailRequestConverter;
 
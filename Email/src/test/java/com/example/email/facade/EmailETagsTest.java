@@ -0,0 +1,55 @@
+package com.example.email.facade;
+
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.dto.EmailPageDTO;
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.dto.EmailVersionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailETagsTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+
+    @Test
+    void testEmailETagMatchesItsVersion() {
+        EmailResponseDTO email = EmailResponseDTO.builder().emailId(1L).emailBody("Body").updatedAt(UPDATED_AT)
+                .build();
+
+        assertEquals(EmailETags.of(new EmailVersionDTO(1L, UPDATED_AT)), EmailETags.of(email));
+        assertNotEquals(EmailETags.of(new EmailVersionDTO(1L, UPDATED_AT.plusNanos(1_000))), EmailETags.of(email));
+    }
+
+    @Test
+    void testPageETagMatchesItsVersions() {
+        EmailPageDTO page = new EmailPageDTO(List.of(header(1L, UPDATED_AT), header(2L, UPDATED_AT)), "cursor");
+        List<EmailVersionDTO> versions = List.of(new EmailVersionDTO(1L, UPDATED_AT),
+                new EmailVersionDTO(2L, UPDATED_AT));
+
+        assertEquals(EmailETags.ofPage(versions, true), EmailETags.of(page));
+        assertNotEquals(EmailETags.ofPage(versions, false), EmailETags.of(page));
+        assertNotEquals(EmailETags.ofPage(List.of(new EmailVersionDTO(1L, UPDATED_AT),
+                new EmailVersionDTO(2L, UPDATED_AT.plusSeconds(1))), true), EmailETags.of(page));
+    }
+
+    @Test
+    void testMatchesIfNoneMatch() {
+        String eTag = EmailETags.of(new EmailVersionDTO(1L, UPDATED_AT));
+
+        assertTrue(EmailETags.matches(eTag, eTag));
+        assertTrue(EmailETags.matches("\"other\", W/" + eTag, eTag));
+        assertTrue(EmailETags.matches("*", eTag));
+        assertFalse(EmailETags.matches("\"other\"", eTag));
+    }
+
+    private static EmailHeaderDTO header(Long emailId, LocalDateTime updatedAt) {
+        return EmailHeaderDTO.builder().emailId(emailId).updatedAt(updatedAt).build();
+    }
+}
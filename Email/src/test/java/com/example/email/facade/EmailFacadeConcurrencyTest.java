@@ -0,0 +1,145 @@
+package com.example.email.facade;
+
+import com.example.email.cache.EmailCache;
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.dto.EmailPageDTO;
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.service.EmailQueryServiceImpl;
+import com.example.email.service.EmailServiceImpl;
+import com.example.email.service.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>Fires concurrent reads of the same key at the {@link EmailFacade} while the first load is held in
+ * flight, and checks on the mocked services that they share one load.</p>
+ */
+@ExtendWith(MockitoExtension.class)
+class EmailFacadeConcurrencyTest {
+
+    private static final int REQUESTS = 64;
+
+    @Mock
+    private EmailQueryServiceImpl emailQueryService;
+
+    @Mock
+    private EmailServiceImpl emailService;
+
+    @InjectMocks
+    private EmailFacade emailFacade;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(REQUESTS, task -> {
+        Thread thread = new Thread(task);
+        threads.add(thread);
+        return thread;
+    });
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(emailFacade, "emailCache", new EmailCache(1024 * 1024, 60_000));
+        ReflectionTestUtils.setField(emailFacade, "projectionReads", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentReadsOfAnEmailShareOneLoad() throws Exception {
+        EmailResponseDTO email = EmailResponseDTO.builder().emailId(1L).emailBody("Popular email").build();
+        when(emailQueryService.getEmailById(1L)).thenAnswer(invocation -> {
+            release.await();
+            return email;
+        });
+
+        List<EmailResponseDTO> responses = runConcurrently(() -> emailFacade.getEmailById(1L));
+
+        responses.forEach(response -> assertSame(email, response));
+        verify(emailQueryService, times(1)).getEmailById(1L);
+    }
+
+    @Test
+    void testConcurrentReadsOfAPageShareOneQuery() throws Exception {
+        List<EmailHeaderDTO> emails = List.of(EmailHeaderDTO.builder().emailId(1L).build());
+        when(emailQueryService.getEmailsByState(EmailStateEnum.DRAFT, 0L, 51)).thenAnswer(invocation -> {
+            release.await();
+            return emails;
+        });
+
+        List<EmailPageDTO> pages = runConcurrently(
+                () -> emailFacade.getEmailsByState(EmailStateEnum.DRAFT.getStateCode(), null, 50));
+
+        pages.forEach(page -> assertSame(pages.get(0), page));
+        verify(emailQueryService, times(1)).getEmailsByState(EmailStateEnum.DRAFT, 0L, 51);
+    }
+
+    @Test
+    void testConcurrentReadsShareTheFailure() throws Exception {
+        when(emailQueryService.getEmailById(2L)).thenAnswer(invocation -> {
+            release.await();
+            throw new ResourceNotFoundException("Email with emailId 2 was not found");
+        });
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> runConcurrently(() -> emailFacade.getEmailById(2L)));
+
+        assertInstanceOf(ResourceNotFoundException.class, failure.getCause());
+        verify(emailQueryService, times(1)).getEmailById(2L);
+    }
+
+    /**
+     * <p>Starts {@value #REQUESTS} concurrent reads, each on its own thread, and releases the load once every
+     * read is blocked: the first in the load, the others waiting for it.</p>
+     */
+    private <T> List<T> runConcurrently(Supplier<T> read) throws Exception {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            futures.add(executor.submit(read::get));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (threads.size() < REQUESTS
+                || !threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            assertTrue(System.nanoTime() < deadline, "The reads did not all block on the load");
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.email.service;
+
+import com.example.email.converter.AddressInterner;
+import com.example.email.converter.EmailRequestConverter;
+import com.example.email.dto.EmailImportErrorDTO;
+import com.example.email.dto.EmailImportResultDTO;
+import com.example.email.entity.Email;
+import com.example.email.repositories.EmailCopyDao;
+import com.example.email.spam.SpamClassifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EmailImportServiceTest {
+
+    @Mock
+    private EmailCopyDao emailCopyDao;
+
+    @Mock
+    private SpamClassifier spamClassifier;
+
+    @Spy
+    private EmailRequestConverter emailRequestConverter = new EmailRequestConverter();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private EmailImportServiceImpl emailImportService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(emailRequestConverter, "addressInterner", new AddressInterner());
+        ReflectionTestUtils.setField(emailImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(emailImportService, "maxReportedErrors", 10);
+    }
+
+    @Test
+    void testImportEmailsInChunks() throws Exception {
+        String ndjson = """
+                {"emailFrom":"a@gbtec.com","emailBody":"Body 1","state":2,"emailTo":[{"email":"to@gbtec.com"}]}
+                {"emailFrom":"b@gbtec.com","emailBody":"Body 2","state":1}
+
+                not json
+                {"emailFrom":"c@gbtec.com","emailBody":"Body 3","state":9}
+                {"emailFrom":"d@gbtec.com","emailBody":"Body 4","state":2,"emailCC":[{"email":"cc@gbtec.com"}]}
+                """;
+
+        List<Integer> chunkSizes = new ArrayList<>();
+        doAnswer(invocation -> chunkSizes.add(invocation.<List<Email>>getArgument(0).size()))
+                .when(emailCopyDao).copyEmails(anyList());
+
+        EmailImportResultDTO result = emailImportService.importEmails(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(5, result.getProcessed());
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(4, result.getErrors().get(0).getLine());
+        assertEquals(5, result.getErrors().get(1).getLine());
+        assertEquals(List.of(2, 1), chunkSizes);
+        verify(emailCopyDao, times(2)).copyEmails(anyList());
+    }
+
+    @Test
+    void testReportsLinesWithNullRecipients() throws Exception {
+        String ndjson = """
+                {"emailFrom":"a@gbtec.com","emailBody":"Body 1","state":2,"emailTo":[null]}
+                {"emailFrom":"b@gbtec.com","emailBody":"Body 2","state":2,"emailCC":[{"email":null}]}
+                {"emailFrom":"c@gbtec.com","emailBody":"Body 3","state":2,"emailTo":[{"email":"to@gbtec.com"}]}
+                """;
+
+        EmailImportResultDTO result = emailImportService.importEmails(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.getProcessed());
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of(1L, 2L), result.getErrors().stream().map(EmailImportErrorDTO::getLine).toList());
+        verify(emailCopyDao).copyEmails(anyList());
+    }
+}
@@ -1,20 +1,31 @@
 package com.example.email.service;
 
+import com.example.email.cache.EmailCache;
 import com.example.email.entity.*;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailBulkDao;
 import com.example.email.repositories.EmailCCDao;
 import com.example.email.repositories.EmailDao;
 import com.example.email.repositories.EmailToDao;
 import com.example.email.service.exceptions.InvalidEmailStateException;
 import com.example.email.service.exceptions.ResourceNotFoundException;
+import com.example.email.spam.SpamClassifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,6 +42,23 @@ class EmailServiceTest {
     @Mock
     private EmailCCDao emailCCDao;
 
+    @Mock
+    private EmailBulkDao emailBulkDao;
+
+    @Mock
+    private EmailBodyDao emailBodyDao;
+
+    @Mock
+    private EmailCache emailCache;
+
+    @Mock
+    private SpamClassifier spamClassifier;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private EmailServiceImpl emailService;
 
@@ -100,6 +128,7 @@ class EmailServiceTest {
         assertEquals("sender1@gbtec.com", createdEmails.get(0).getEmailFrom());
         assertEquals("sender2@gbtec.com", createdEmails.get(1).getEmailFrom());
 
+        verify(emailBodyDao).storeBodies(emails);
         verify(emailDao).saveAll(anyList());
     }
 
@@ -141,6 +170,7 @@ class EmailServiceTest {
         emailService.deleteEmail(1L);
 
         verify(emailDao).deleteById(1L);
+        verify(emailCache).invalidate(List.of(1L));
     }
 
     @Test
@@ -169,16 +199,16 @@ class EmailServiceTest {
 
         List<Email> emailList = Arrays.asList(email1, email2);
 
-        when(emailDao.findAll()).thenReturn(emailList);
+        when(emailDao.findByEmailIdGreaterThanOrderByEmailIdAsc(0L, Limit.of(10))).thenReturn(emailList);
 
-        List<Email> result = emailService.getAllEmails();
+        List<Email> result = emailService.getAllEmails(0L, 10);
 
         assertNotNull(result);
         assertEquals(2, result.size());
         assertEquals("sender1@example.com", result.get(0).getEmailFrom());
         assertEquals("sender2@example.com", result.get(1).getEmailFrom());
 
-        verify(emailDao, times(1)).findAll();
+        verify(emailDao, times(1)).findByEmailIdGreaterThanOrderByEmailIdAsc(0L, Limit.of(10));
     }
 
     @Test
@@ -204,6 +234,7 @@ class EmailServiceTest {
 
         verify(emailDao).findById(1L);
         verify(emailDao).save(any(Email.class));
+        verify(emailCache).invalidate(List.of(1L));
     }
 
     @Test
@@ -249,17 +280,13 @@ class EmailServiceTest {
                 .emailFrom("sender1@gbtec.com")
                 .emailBody("Original body email 1")
                 .state(EmailStateEnum.DRAFT)
-                .emailTo(emailToList)
-                .emailCC(emailCCList)
                 .build();
 
         Email email2 = Email.builder()
                 .emailId(2L)
                 .emailFrom("sender2@gbtec.com")
                 .emailBody("Original body email 2")
-                .state(EmailStateEnum.DRAFT)
-                .emailTo(emailToList)
-                .emailCC(emailCCList)
+                .state(EmailStateEnum.SENT)
                 .build();
 
         Email email1updated = Email.builder()
@@ -280,20 +307,92 @@ class EmailServiceTest {
                 .emailCC(emailCCList)
                 .build();
 
+        Email email3updated = Email.builder()
+                .emailId(3L)
+                .emailFrom("sender3@gbtec.com")
+                .emailBody("Updated body email 3")
+                .state(EmailStateEnum.DRAFT)
+                .emailTo(emailToList)
+                .emailCC(emailCCList)
+                .build();
+
+        when(emailDao.findAllById(List.of(1L, 2L, 3L))).thenReturn(Arrays.asList(email1, email2));
+
+        List<EmailUpdateResult> results = emailService.updateEmails(
+                Arrays.asList(email1updated, email2updated, email3updated));
+
+        assertEquals(3, results.size());
+        assertEquals(EmailUpdateResult.Status.UPDATED, results.get(0).getStatus());
+        assertEquals("Update body email 1", results.get(0).getEmail().getEmailBody());
+        assertEquals(2, results.get(0).getEmail().getEmailTo().size());
+        assertEquals(EmailUpdateResult.Status.INVALID_STATE, results.get(1).getStatus());
+        assertEquals("Original body email 2", email2.getEmailBody());
+        assertEquals(EmailUpdateResult.Status.NOT_FOUND, results.get(2).getStatus());
+
+        verify(emailDao, times(1)).findAllById(anyList());
+        verify(emailToDao, never()).deleteAllByIdInBatch(anyList());
+        verify(emailCCDao, never()).deleteAllByIdInBatch(anyList());
+        verify(emailDao, never()).findById(any());
+    }
+
+    @Test
+    void testUpdateEmailOnlyWritesChangedRecipients() {
+        EmailTo storedTo1 = new EmailTo(10L, null, "recipient1@gbtec.com");
+        EmailTo storedTo2 = new EmailTo(11L, null, "old@gbtec.com");
+        EmailCC storedCC1 = new EmailCC(20L, null, "cc1@gbtec.com");
+        EmailCC storedCC2 = new EmailCC(21L, null, "cc2@gbtec.com");
+
+        Email existingEmail = Email.builder()
+                .emailId(1L)
+                .emailFrom("test@gbtec.com")
+                .emailBody("Test email body")
+                .state(EmailStateEnum.DRAFT)
+                .emailTo(Arrays.asList(storedTo1, storedTo2))
+                .emailCC(Arrays.asList(storedCC1, storedCC2))
+                .build();
+
+        when(emailDao.findById(1L)).thenReturn(Optional.of(existingEmail));
+        when(emailDao.save(any(Email.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Email updatedEmail = emailService.updateEmail(1L, "test@gbtec.com", "Test email body",
+                EmailStateEnum.DRAFT.getStateCode(), emailToList, emailCCList);
+
+        assertEquals(2, updatedEmail.getEmailTo().size());
+        assertSame(storedTo1, updatedEmail.getEmailTo().get(0));
+        assertNull(updatedEmail.getEmailTo().get(1).getToId());
+        assertEquals("recipient2@gbtec.com", updatedEmail.getEmailTo().get(1).getEmailAddress());
+        assertSame(storedCC1, updatedEmail.getEmailCC().get(0));
+        assertSame(storedCC2, updatedEmail.getEmailCC().get(1));
 
-        when(emailDao.save(email1)).thenReturn(email1);
-        when(emailDao.save(email2)).thenReturn(email2);
-        when(emailDao.findById(1L)).thenReturn(Optional.of(email1));
-        when(emailDao.findById(2L)).thenReturn(Optional.of(email2));
+        verify(emailToDao).deleteAllByIdInBatch(List.of(11L));
+        verify(emailCCDao, never()).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    void testUpdateEmailMovesRecipientsToArrayStorage() {
+        ReflectionTestUtils.setField(emailService, "recipientStorage", RecipientStorageEnum.ARRAY);
 
-        List<Email> emailsList = Arrays.asList(email1updated, email2updated);
+        Email existingEmail = Email.builder()
+                .emailId(1L)
+                .emailFrom("test@gbtec.com")
+                .emailBody("Test email body")
+                .state(EmailStateEnum.DRAFT)
+                .emailTo(Arrays.asList(new EmailTo(10L, null, "recipient1@gbtec.com")))
+                .emailCC(Arrays.asList(new EmailCC(20L, null, "cc1@gbtec.com")))
+                .build();
 
-        List<Email> emailsUpdated = emailService.updateEmails(emailsList);
+        when(emailDao.findById(1L)).thenReturn(Optional.of(existingEmail));
+        when(emailDao.save(any(Email.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        assertNotNull(emailsUpdated);
-        assertEquals(emailsUpdated.get(0), email1updated);
-        assertEquals(emailsUpdated.get(1), email2updated);
+        Email updatedEmail = emailService.updateEmail(1L, "test@gbtec.com", "Test email body",
+                EmailStateEnum.DRAFT.getStateCode(), emailToList, emailCCList);
 
+        assertEquals(List.of("recipient1@gbtec.com", "recipient2@gbtec.com"), updatedEmail.getEmailToAddresses());
+        assertEquals(List.of("cc1@gbtec.com", "cc2@gbtec.com"), updatedEmail.getEmailCCAddresses());
+        assertTrue(updatedEmail.getEmailTo().isEmpty());
+        assertTrue(updatedEmail.getEmailCC().isEmpty());
+        verify(emailToDao).deleteAllByIdInBatch(List.of(10L));
+        verify(emailCCDao).deleteAllByIdInBatch(List.of(20L));
     }
 
     @Test
@@ -315,16 +414,17 @@ class EmailServiceTest {
 
         List<Email> emails = Arrays.asList(email1, email2);
 
-        when(emailDao.findByState(EmailStateEnum.DRAFT)).thenReturn(emails);
+        when(emailDao.findByStateAndEmailIdGreaterThanOrderByEmailIdAsc(EmailStateEnum.DRAFT, 0L, Limit.of(10)))
+                .thenReturn(emails);
 
-        List<Email> result = emailService.getEmailsByState(EmailStateEnum.DRAFT);
+        List<Email> result = emailService.getEmailsByState(EmailStateEnum.DRAFT, 0L, 10);
 
         assertNotNull(result);
         assertEquals(2, result.size());
         assertEquals(EmailStateEnum.DRAFT.getStateCode(), result.get(0).getState().getStateCode());
         assertEquals(EmailStateEnum.DRAFT.getStateCode(), result.get(1).getState().getStateCode());
 
-        verify(emailDao).findByState(EmailStateEnum.DRAFT);
+        verify(emailDao).findByStateAndEmailIdGreaterThanOrderByEmailIdAsc(EmailStateEnum.DRAFT, 0L, Limit.of(10));
     }
 
     @Test
@@ -335,40 +435,61 @@ class EmailServiceTest {
 
         List<Long> emailIds = Arrays.asList(1L, 2L);
 
-        emailService.deleteEmails(emailIds);
+        when(emailBulkDao.deleteByIds(emailIds)).thenReturn(2);
 
-        verify(emailDao).deleteAllById(emailIds);
+        int deleted = emailService.deleteEmails(emailIds);
+
+        assertEquals(2, deleted);
+        verify(emailBulkDao).deleteByIds(emailIds);
+        verify(emailDao, never()).deleteAllById(anyList());
+        verify(emailCache).invalidate(emailIds);
     }
 
     @Test
     void testMarkEmailsAsSpam() {
+        ReflectionTestUtils.setField(emailService, "spamSenders", List.of("carl@gbtec.com"));
+        ReflectionTestUtils.setField(emailService, "spamChunkSize", 2);
+        ReflectionTestUtils.setField(emailService, "meterRegistry", meterRegistry);
 
-        List<Email> emails = Arrays.asList(
-                Email.builder()
-                        .emailId(1L)
-                        .emailFrom("carl@gbtec.com")
-                        .state(EmailStateEnum.DRAFT)
-                        .build(),
-                Email.builder()
-                        .emailId(2L)
-                        .emailFrom("carl@gbtec.com")
-                        .state(EmailStateEnum.SENT)
-                        .build()
-        );
-
-        when(emailDao.findByEmailFrom("carl@gbtec.com")).thenReturn(emails);
+        when(emailBulkDao.markAsSpam(List.of("carl@gbtec.com"), 2, true)).thenReturn(2, 2, 1);
+        // a locked row skipped by the chunks above, marked once its writer commits
+        when(emailBulkDao.markAsSpam(List.of("carl@gbtec.com"), 2, false)).thenReturn(1, 0);
 
         emailService.markEmailsAsSpam();
 
-        assertEquals(EmailStateEnum.SPAM, emails.get(0).getState());
-        assertEquals(EmailStateEnum.SPAM, emails.get(1).getState());
-        assertNotNull(emails.get(0).getUpdatedAt());
-        assertNotNull(emails.get(1).getUpdatedAt());
+        verify(emailBulkDao, times(3)).markAsSpam(List.of("carl@gbtec.com"), 2, true);
+        verify(emailBulkDao, times(2)).markAsSpam(List.of("carl@gbtec.com"), 2, false);
+        verify(emailDao, never()).saveAll(anyList());
+        assertEquals(6, meterRegistry.counter("email.spam.sweep.rows").count());
+        assertEquals(1, meterRegistry.timer("email.spam.sweep.duration").count());
+        verify(emailCache).invalidateAll();
     }
 
-}
+    @Test
+    void testStreamEmailsClearsEveryInterval() {
+        ReflectionTestUtils.setField(emailService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(emailService, "exportClearInterval", 2);
+        List<Email> emails = List.of(new Email(), new Email(), new Email(), new Email(), new Email());
+        when(emailDao.streamAllByOrderByEmailIdAsc()).thenReturn(emails.stream());
 
+        List<Email> streamed = new ArrayList<>();
+        emailService.streamEmails(null, streamed::add);
 
+        assertEquals(emails, streamed);
+        verify(entityManager, times(2)).clear();
+    }
 
+    @Test
+    void testStreamEmailsNeverClearsWithoutInterval() {
+        ReflectionTestUtils.setField(emailService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(emailService, "exportClearInterval", 0);
+        when(emailDao.streamByStateOrderByEmailIdAsc(EmailStateEnum.SENT))
+                .thenReturn(Stream.of(new Email(), new Email()));
 
+        List<Email> streamed = new ArrayList<>();
+        emailService.streamEmails(EmailStateEnum.SENT, streamed::add);
 
+        assertEquals(2, streamed.size());
+        verify(entityManager, never()).clear();
+    }
+}
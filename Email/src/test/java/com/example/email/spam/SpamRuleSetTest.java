@@ -0,0 +1,50 @@
+package com.example.email.spam;
+
+import com.example.email.entity.SpamRule;
+import com.example.email.entity.SpamRuleTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpamRuleSetTest {
+
+    private final SpamRuleSet ruleSet = SpamRuleSet.compile(List.of(
+            new SpamRule(1L, SpamRuleTypeEnum.SENDER, "carl@gbtec.com", true),
+            new SpamRule(2L, SpamRuleTypeEnum.DOMAIN, "spam.example", true),
+            new SpamRule(3L, SpamRuleTypeEnum.PHRASE, "free money", true),
+            new SpamRule(4L, SpamRuleTypeEnum.PHRASE, "winner", true),
+            new SpamRule(5L, SpamRuleTypeEnum.PHRASE, "disabled phrase", false)
+    ));
+
+    @Test
+    void testMatchesSender() {
+        assertTrue(ruleSet.isSpam("Carl@GBTEC.com", "Hello"));
+        assertFalse(ruleSet.isSpam("carla@gbtec.com", "Hello"));
+    }
+
+    @Test
+    void testMatchesDomainAndSubdomains() {
+        assertTrue(ruleSet.isSpam("someone@spam.example", "Hello"));
+        assertTrue(ruleSet.isSpam("someone@mail.spam.example", "Hello"));
+        assertFalse(ruleSet.isSpam("someone@notspam.example", "Hello"));
+    }
+
+    @Test
+    void testMatchesPhrases() {
+        assertTrue(ruleSet.isSpam("naim@gbtec.com", "Get your FREE MONEY now"));
+        assertTrue(ruleSet.isSpam("naim@gbtec.com", "You are a winner!"));
+        assertTrue(ruleSet.isSpam("naim@gbtec.com", "free free money"));
+        assertFalse(ruleSet.isSpam("naim@gbtec.com", "Free lunch, no money"));
+        assertFalse(ruleSet.isSpam("naim@gbtec.com", "This is a disabled phrase"));
+    }
+
+    @Test
+    void testIgnoresDisabledRules() {
+        assertEquals(4, ruleSet.size());
+        assertFalse(SpamRuleSet.EMPTY.isSpam("carl@gbtec.com", "free money"));
+    }
+}
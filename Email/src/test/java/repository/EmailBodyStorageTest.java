@@ -0,0 +1,206 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.bodies.EmailBodyGarbageCollector;
+import com.example.email.bodies.EmailBodyMigration;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Checks the content-addressed "email_bodies" table: deduplication of written bodies, release of the
+ * references by the triggers of "emails", garbage collection, and the migration of the bodies stored on the
+ * email rows.</p>
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({EmailBodyDao.class, EmailBodyCodec.class, EmailBodyMigration.class, EmailBodyGarbageCollector.class})
+class EmailBodyStorageTest {
+
+    private static final String LARGE_BODY = "<tr><td>Offer of the week</td><td>20% off</td></tr>\n".repeat(2000);
+
+    @Autowired
+    EmailBodyDao emailBodyDao;
+
+    @Autowired
+    EmailBodyMigration emailBodyMigration;
+
+    @Autowired
+    EmailBodyGarbageCollector emailBodyGarbageCollector;
+
+    @Autowired
+    EmailDao emailDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @Test
+    void testStoresEachDistinctBodyOnce() {
+        List<Email> emails = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            emails.add(email(i % 10 == 0 ? "Personal note " + i : LARGE_BODY));
+        }
+        emailBodyDao.storeBodies(emails);
+        emailDao.saveAll(emails);
+        emailDao.flush();
+
+        assertEquals(11, count("SELECT count(*) FROM email_bodies"));
+        assertEquals(90, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf(LARGE_BODY)));
+
+        // a later batch reuses the stored body
+        Email reused = email(LARGE_BODY);
+        emailBodyDao.storeBodies(List.of(reused));
+        emailDao.saveAndFlush(reused);
+        assertEquals(91, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf(LARGE_BODY)));
+        testEntityManager.clear();
+
+        assertEquals(LARGE_BODY, emailDao.findById(reused.getEmailId()).orElseThrow().getEmailBody());
+    }
+
+    @Test
+    void testStoresBodiesOfPlainSaves() {
+        Email email = emailDao.saveAndFlush(email("Saved without the DAO"));
+        assertEquals(1, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf("Saved without the DAO")));
+
+        email.setEmailBody("Edited without the DAO");
+        emailDao.saveAndFlush(email);
+        assertEquals(0, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf("Saved without the DAO")));
+        assertEquals(1, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf("Edited without the DAO")));
+        testEntityManager.clear();
+
+        assertEquals("Edited without the DAO", emailDao.findById(email.getEmailId()).orElseThrow().getEmailBody());
+    }
+
+    @Test
+    void testStoresBodyTailEditsOfPlainSaves() {
+        Email email = emailDao.saveAndFlush(email(LARGE_BODY));
+        testEntityManager.clear();
+        String edited = LARGE_BODY + "<p>Offer ends on Sunday</p>";
+
+        Email managed = emailDao.findById(email.getEmailId()).orElseThrow();
+        managed.setEmailBody(edited);
+        emailDao.saveAndFlush(managed);
+        testEntityManager.clear();
+
+        assertEquals(0, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf(LARGE_BODY)));
+        assertEquals(1, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf(edited)));
+        assertEquals(edited, emailDao.findById(email.getEmailId()).orElseThrow().getEmailBody());
+
+        // setting the stored body again neither stores it nor adds a reference
+        Email unchanged = emailDao.findById(email.getEmailId()).orElseThrow();
+        unchanged.setEmailBody(edited);
+        emailDao.saveAndFlush(unchanged);
+        assertEquals(1, count("SELECT ref_count FROM email_bodies WHERE body_hash = ?",
+                EmailBodyDao.hashOf(edited)));
+    }
+
+    @Test
+    void testCollectsUnreferencedBodies() {
+        Email first = email("Newsletter");
+        Email second = email("Newsletter");
+        emailBodyDao.storeBodies(List.of(first, second));
+        emailDao.saveAllAndFlush(List.of(first, second));
+
+        jdbcTemplate.update("DELETE FROM emails WHERE email_id = ?", first.getEmailId());
+        assertEquals(0, emailBodyGarbageCollector.collectGarbage());
+
+        jdbcTemplate.update("DELETE FROM emails WHERE email_id = ?", second.getEmailId());
+        assertEquals(1, emailBodyGarbageCollector.collectGarbage());
+        assertEquals(0, count("SELECT count(*) FROM email_bodies"));
+    }
+
+    @Test
+    void testMigratesBodiesStoredOnEmailRows() {
+        Long firstId = insertLegacy(LARGE_BODY);
+        Long secondId = insertLegacy(LARGE_BODY);
+        Long smallId = insertLegacy("Short body");
+
+        Email legacy = emailDao.findById(firstId).orElseThrow();
+        assertEquals(LARGE_BODY, legacy.getEmailBody());
+        assertEquals(Email.snippetOf(LARGE_BODY), legacy.getEmailSnippet());
+        testEntityManager.clear();
+
+        assertEquals(3, emailBodyMigration.migrateBodies());
+        assertEquals(0, emailBodyMigration.migrateBodies());
+
+        assertNull(jdbcTemplate.queryForObject("SELECT email_body FROM emails WHERE email_id = ?", String.class,
+                secondId));
+        assertEquals(2, count("SELECT count(*) FROM email_bodies"));
+        byte[] data = jdbcTemplate.queryForObject("SELECT body_data FROM email_bodies WHERE body_hash = ?",
+                byte[].class, (Object) EmailBodyDao.hashOf(LARGE_BODY));
+        assertTrue(EmailBodyCodec.isCompressed(data));
+        assertTrue(data.length < LARGE_BODY.length() / 10);
+
+        assertEquals(LARGE_BODY, emailDao.findById(secondId).orElseThrow().getEmailBody());
+        Email small = emailDao.findById(smallId).orElseThrow();
+        assertEquals("Short body", small.getEmailBody());
+        assertEquals("Short body", small.getEmailSnippet());
+    }
+
+    private Email email(String body) {
+        Email email = Email.builder()
+                .emailFrom("sender@gbtec.com")
+                .state(EmailStateEnum.SENT)
+                .emailTo(new ArrayList<>())
+                .emailCC(new ArrayList<>())
+                .build();
+        email.setEmailBody(body);
+        return email;
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+
+    private Long insertLegacy(String body) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO emails (email_id, email_from, email_body, state, updated_at)
+                VALUES (nextval('emails_seq'), 'sender@gbtec.com', ?, 'SENT', now()) RETURNING email_id
+                """, Long.class, body);
+    }
+}
@@ -0,0 +1,95 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.entity.EmailTo;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailDao;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({EmailBodyDao.class, EmailBodyCodec.class})
+class EmailBulkInsertTest {
+
+    private static final int EMAILS = 500;
+
+    @Autowired
+    EmailDao emailDao;
+
+    @Autowired
+    EmailBodyDao emailBodyDao;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testSaveAllBatchesInserts() {
+        List<Email> emails = new ArrayList<>();
+        for (int i = 0; i < EMAILS; i++) {
+            Email email = Email.builder()
+                    .emailFrom("sender" + i + "@gbtec.com")
+                    .emailBody("Body of email " + i)
+                    .state(EmailStateEnum.DRAFT)
+                    .build();
+            email.setEmailTo(List.of(new EmailTo(email, "marcus@gbtec.com"), new EmailTo(email, "alex@gbtec.com")));
+            email.setEmailCC(List.of(new EmailCC(email, "daniel@gbtec.com")));
+            emails.add(email);
+        }
+
+        // written with JDBC, outside of the Hibernate statistics
+        emailBodyDao.storeBodies(emails);
+        emailDao.saveAll(emails);
+        emailDao.flush();
+
+        long rows = EMAILS * 4L;
+        assertEquals(rows, statistics.getEntityInsertCount());
+        // one statement per batch of 50 inserts plus one nextval per 50 allocated ids
+        assertTrue(statistics.getPrepareStatementCount() <= rows / 20,
+                "Expected batched inserts but " + statistics.getPrepareStatementCount() + " statements were prepared");
+    }
+}
@@ -0,0 +1,226 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.converter.AddressInterner;
+import com.example.email.converter.EmailRequestConverter;
+import com.example.email.dto.EmailJobDTO;
+import com.example.email.dto.EmailJobFailureDTO;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailJobTypeEnum;
+import com.example.email.jobs.EmailJobRunner;
+import com.example.email.repositories.EmailJobDao;
+import com.example.email.service.EmailServiceImpl;
+import com.example.email.service.EmailUpdateResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>Runs batch jobs against the job tables, with the email writes mocked, and checks the chunking, the
+ * reported failures, the retries, the resumption of a job abandoned by its worker and the requeueing of a job
+ * claimed during shutdown.</p>
+ */
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "email.jobs.chunk-size=2",
+        "email.jobs.poll-interval=3600000", "email.jobs.retry-backoff=1"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({EmailJobRunner.class, EmailJobDao.class, EmailRequestConverter.class, AddressInterner.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailJobTest {
+
+    @Autowired
+    EmailJobRunner emailJobRunner;
+
+    @Autowired
+    EmailJobDao emailJobDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    EmailServiceImpl emailService;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("TRUNCATE email_jobs CASCADE");
+    }
+
+    @Test
+    void testProcessesJobInChunks() {
+        long jobId = emailJobDao.createJob(EmailJobTypeEnum.CREATE, List.of(
+                item(null, "a@gbtec.com", 2),
+                "{\"emailFrom\":\"b@gbtec.com\",\"state\":2}",
+                item(null, "c@gbtec.com", 1),
+                item(null, "d@gbtec.com", 9),
+                item(null, "e@gbtec.com", 2)));
+
+        assertEquals(Optional.of(jobId), emailJobDao.claimJob(60000));
+        emailJobRunner.runJob(jobId);
+
+        EmailJobDTO job = emailJobDao.findById(jobId).orElseThrow();
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(5, job.getProcessed());
+        assertEquals(3, job.getSucceeded());
+        assertEquals(2, job.getFailed());
+        assertNotNull(job.getFinishedAt());
+        assertEquals(List.of(1, 3), emailJobDao.findFailures(jobId, -1, 10).stream()
+                .map(EmailJobFailureDTO::getItem)
+                .toList());
+        // one transaction per chunk of 2 items
+        verify(emailService, times(3)).createEmails(anyList());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM email_job_items", Integer.class));
+    }
+
+    @Test
+    void testReportsRejectedUpdatesAndIsolatesFailedItems() {
+        when(emailService.updateEmails(anyList())).thenAnswer(invocation -> {
+            List<Email> emails = invocation.getArgument(0);
+            if (emails.stream().anyMatch(email -> email.getEmailId() == 4L)) {
+                throw new DataIntegrityViolationException("Email 4 rejected");
+            }
+            return emails.stream()
+                    .map(email -> email.getEmailId() == 2L
+                            ? new EmailUpdateResult(2L, EmailUpdateResult.Status.NOT_FOUND,
+                                    "Email with emailId 2 was not found", null)
+                            : new EmailUpdateResult(email.getEmailId(), EmailUpdateResult.Status.UPDATED, null, null))
+                    .toList();
+        });
+        long jobId = emailJobDao.createJob(EmailJobTypeEnum.UPDATE, List.of(
+                item(1L, "a@gbtec.com", 2), item(2L, "b@gbtec.com", 2),
+                item(3L, "c@gbtec.com", 2), item(4L, "d@gbtec.com", 2)));
+
+        emailJobDao.claimJob(60000);
+        emailJobRunner.runJob(jobId);
+
+        EmailJobDTO job = emailJobDao.findById(jobId).orElseThrow();
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(2, job.getSucceeded());
+        assertEquals(2, job.getFailed());
+        List<EmailJobFailureDTO> failures = emailJobDao.findFailures(jobId, -1, 10);
+        assertEquals(List.of(2L, 4L), failures.stream().map(EmailJobFailureDTO::getEmailId).toList());
+        assertEquals("Email 4 rejected", failures.get(1).getMessage());
+        // the rejected chunk of items 3 and 4 is split, and item 3 is written on its own
+        verify(emailService, times(4)).updateEmails(anyList());
+    }
+
+    @Test
+    void testRetriesTransientFailures() {
+        when(emailService.updateEmails(anyList()))
+                .thenThrow(new CannotAcquireLockException("Deadlock detected"))
+                .thenReturn(List.of(
+                        new EmailUpdateResult(1L, EmailUpdateResult.Status.UPDATED, null, null),
+                        new EmailUpdateResult(2L, EmailUpdateResult.Status.UPDATED, null, null)));
+        long jobId = emailJobDao.createJob(EmailJobTypeEnum.UPDATE, List.of(
+                item(1L, "a@gbtec.com", 2), item(2L, "b@gbtec.com", 2)));
+
+        emailJobDao.claimJob(60000);
+        emailJobRunner.runJob(jobId);
+
+        EmailJobDTO job = emailJobDao.findById(jobId).orElseThrow();
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(2, job.getSucceeded());
+        assertEquals(0, job.getFailed());
+        verify(emailService, times(2)).updateEmails(anyList());
+    }
+
+    @Test
+    void testLeavesJobRunningWhenTransientFailuresPersist() {
+        when(emailService.updateEmails(anyList())).thenThrow(new CannotAcquireLockException("Deadlock detected"));
+        long jobId = emailJobDao.createJob(EmailJobTypeEnum.UPDATE, List.of(
+                item(1L, "a@gbtec.com", 2), item(2L, "b@gbtec.com", 2)));
+
+        emailJobDao.claimJob(60000);
+        emailJobRunner.runJob(jobId);
+
+        EmailJobDTO job = emailJobDao.findById(jobId).orElseThrow();
+        assertEquals("RUNNING", job.getStatus());
+        assertEquals(0, job.getProcessed());
+        assertEquals(0, job.getFailed());
+        verify(emailService, times(3)).updateEmails(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testResumesAbandonedJobAtItsNextChunk() {
+        long jobId = emailJobDao.createJob(EmailJobTypeEnum.CREATE, List.of(
+                item(null, "a@gbtec.com", 2), item(null, "b@gbtec.com", 2), item(null, "c@gbtec.com", 2)));
+        emailJobDao.claimJob(60000);
+        // the first chunk was committed by a worker that stopped afterwards
+        emailJobDao.completeChunk(jobId, 2, 2, List.of());
+
+        assertTrue(emailJobDao.claimJob(60000).isEmpty());
+        jdbcTemplate.update("UPDATE email_jobs SET heartbeat_at = now() - interval '1 hour' WHERE job_id = ?", jobId);
+        assertEquals(Optional.of(jobId), emailJobDao.claimJob(60000));
+        emailJobRunner.runJob(jobId);
+
+        ArgumentCaptor<List<Email>> emails = ArgumentCaptor.forClass(List.class);
+        verify(emailService).createEmails(emails.capture());
+        assertEquals(List.of("c@gbtec.com"), emails.getValue().stream().map(Email::getEmailFrom).toList());
+        EmailJobDTO job = emailJobDao.findById(jobId).orElseThrow();
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(3, job.getSucceeded());
+    }
+
+    @Test
+    @DirtiesContext
+    void testRequeuesJobClaimedWhileShuttingDown() throws Exception {
+        long jobId = emailJobDao.createJob(EmailJobTypeEnum.CREATE, List.of(item(null, "a@gbtec.com", 2)));
+        emailJobRunner.close();
+        // claimed by a dispatch that started before the shutdown
+        ReflectionTestUtils.setField(emailJobRunner, "stopping", false);
+
+        emailJobRunner.dispatch();
+
+        assertEquals("QUEUED", emailJobDao.findById(jobId).orElseThrow().getStatus());
+        assertEquals(Optional.of(jobId), emailJobDao.claimJob(60000));
+    }
+
+    private static String item(Long emailId, String emailFrom, int state) {
+        return String.format("{\"emailId\":%s,\"emailFrom\":\"%s\",\"emailBody\":\"Body\",\"state\":%d,"
+                + "\"emailTo\":[{\"email\":\"marcus@gbtec.com\"}]}", emailId, emailFrom, state);
+    }
+}
@@ -0,0 +1,198 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.cache.EmailCache;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.entity.EmailTo;
+import com.example.email.partitioning.EmailPartitionMaintenance;
+import com.example.email.partitioning.PartitioningConfig;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailBulkDao;
+import com.example.email.service.EmailServiceImpl;
+import com.example.email.spam.SpamClassifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+/**
+ * <p>Runs the migrations with {@code email.schema.partitioned=true} and checks partition pruning of the
+ * time-bounded queries, the detachment of expired months, the updates moving an email and its recipients to
+ * another month and the refusal of a database migrated without
+ * partitioning.</p>
+ */
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "email.schema.partitioned=true"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({PartitioningConfig.class, EmailPartitionMaintenance.class, EmailServiceImpl.class, EmailBulkDao.class,
+        EmailBodyDao.class, EmailBodyCodec.class})
+class EmailPartitioningTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EmailPartitionMaintenance emailPartitionMaintenance;
+
+    @Autowired
+    EmailServiceImpl emailService;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @MockBean
+    EmailCache emailCache;
+
+    @MockBean
+    SpamClassifier spamClassifier;
+
+    @MockBean
+    MeterRegistry meterRegistry;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @Test
+    void testTimeBoundedQueryPrunesPartitions() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        emailPartitionMaintenance.createPartitions(month.minusMonths(2), month);
+        seed(month.minusMonths(2));
+        seed(month.minusMonths(1));
+        seed(month);
+
+        List<String> plan = jdbcTemplate.queryForList("""
+                EXPLAIN SELECT * FROM emails
+                WHERE updated_at >= '%s' AND updated_at < '%s' AND email_id > 0 ORDER BY email_id LIMIT 101
+                """.formatted(month.atStartOfDay(), month.plusMonths(1).atStartOfDay()), String.class);
+
+        String planText = String.join("\n", plan);
+        assertTrue(planText.contains("emails_p" + month.format(SUFFIX)), planText);
+        assertFalse(planText.contains("emails_p" + month.minusMonths(1).format(SUFFIX)), planText);
+        assertFalse(planText.contains("emails_default"), planText);
+    }
+
+    @Test
+    void testDetachPartitionsBefore() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        emailPartitionMaintenance.createPartitions(month.minusMonths(2), month);
+        seed(month.minusMonths(2));
+        seed(month.minusMonths(1));
+        seed(month);
+
+        int detached = emailPartitionMaintenance.detachPartitionsBefore(month.minusMonths(1));
+
+        assertEquals(1, detached);
+        assertEquals(20, jdbcTemplate.queryForObject("SELECT count(*) FROM emails", Integer.class));
+        assertEquals(20, jdbcTemplate.queryForObject("SELECT count(*) FROM email_to", Integer.class));
+        assertEquals(10, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM emails_p" + month.minusMonths(2).format(SUFFIX), Integer.class));
+        verify(emailCache).invalidateAll();
+    }
+
+    @Test
+    void testUpdateAddingRecipientsMovesThemWithTheEmail() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        emailPartitionMaintenance.createPartitions(month.minusMonths(1), month);
+        LocalDateTime updatedAt = month.minusMonths(1).atStartOfDay().plusDays(1);
+        Long emailId = jdbcTemplate.queryForObject("""
+                INSERT INTO emails (email_from, email_body, state, updated_at)
+                VALUES ('sender@gbtec.com', 'Draft', 'DRAFT', ?) RETURNING email_id
+                """, Long.class, updatedAt);
+        jdbcTemplate.update("INSERT INTO email_to (email_id, address_id, updated_at) "
+                + "VALUES (?, address_id_of('marcus@gbtec.com'), ?)", emailId, updatedAt);
+
+        emailService.updateEmail(emailId, "sender@gbtec.com", "Draft", EmailStateEnum.DRAFT.getStateCode(),
+                List.of(new EmailTo(null, "marcus@gbtec.com"), new EmailTo(null, "alex@gbtec.com")),
+                List.of(new EmailCC(null, "daniel@gbtec.com")));
+        testEntityManager.flush();
+
+        LocalDateTime renewed = jdbcTemplate.queryForObject("SELECT updated_at FROM emails WHERE email_id = ?",
+                LocalDateTime.class, emailId);
+        assertTrue(renewed.isAfter(updatedAt));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM emails_p" + month.format(SUFFIX)
+                + " WHERE email_id = ?", Integer.class, emailId));
+        assertEquals(List.of(2, 1), List.of(
+                recipientsAt("email_to", emailId, renewed), recipientsAt("email_cc", emailId, renewed)));
+    }
+
+    @Test
+    void testRefusesDatabaseMigratedWithoutPartitioning() throws SQLException {
+        try (Connection connection = sqlContainer.createConnection("");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE unpartitioned");
+        }
+        String url = "jdbc:postgresql://" + sqlContainer.getHost() + ":"
+                + sqlContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/unpartitioned";
+        Flyway.configure()
+                .dataSource(url, sqlContainer.getUsername(), sqlContainer.getPassword())
+                .load()
+                .migrate();
+        Flyway partitioned = Flyway.configure()
+                .dataSource(url, sqlContainer.getUsername(), sqlContainer.getPassword())
+                .locations("classpath:db/migration", PartitioningConfig.PARTITIONING_LOCATION)
+                .load();
+
+        assertThrows(IllegalStateException.class,
+                () -> new PartitioningConfig().partitioningMigrationStrategy().migrate(partitioned));
+        assertTrue(Arrays.stream(partitioned.info().applied())
+                .noneMatch(migration -> PartitioningConfig.PARTITIONING_VERSION.equals(migration.getVersion())));
+    }
+
+    private int recipientsAt(String table, Long emailId, LocalDateTime updatedAt) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE email_id = ? AND updated_at = ?",
+                Integer.class, emailId, updatedAt);
+    }
+
+    private void seed(LocalDate month) {
+        LocalDateTime updatedAt = month.atStartOfDay().plusDays(1);
+        jdbcTemplate.update("""
+                INSERT INTO emails (email_from, email_body, state, updated_at)
+                SELECT 'sender' || g || '@gbtec.com', 'Body of email ' || g, 'SENT', ?
+                FROM generate_series(1, 10) g
+                """, updatedAt);
+        jdbcTemplate.update("""
+                INSERT INTO email_to (email_id, address_id, updated_at)
+                SELECT email_id, address_id_of('to@gbtec.com'), updated_at FROM emails WHERE updated_at = ?
+                """, updatedAt);
+    }
+}
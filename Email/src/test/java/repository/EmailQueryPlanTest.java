@@ -0,0 +1,206 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.bodies.EmailBodyGarbageCollector;
+import com.example.email.bodies.EmailBodyMigration;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.converter.AddressInterner;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailBulkDao;
+import com.example.email.repositories.EmailDao;
+import com.example.email.repositories.EmailQueryDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * <p>Fails if any access path of the {@code EmailDao}, {@code EmailQueryDao} and {@code EmailBulkDao} queries
+ * falls back to a sequential scan on a table seeded with 1M emails.</p>
+ * <p>Each access path is called, and the statements it actually sent, recorded by the {@link StatementRecorder}
+ * with their parameters, are replayed under {@code EXPLAIN}.</p>
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({StatementRecorder.class, EmailQueryDao.class, EmailBulkDao.class, EmailBodyDao.class, EmailBodyCodec.class,
+        AddressInterner.class, EmailBodyMigration.class, EmailBodyGarbageCollector.class})
+class EmailQueryPlanTest {
+
+    private static final int EMAILS = 1_000_000;
+
+    /**
+     * <p>The statements that can be explained; the others, such as {@code nextval} calls, are skipped.</p>
+     */
+    private static final Pattern EXPLAINABLE = Pattern.compile("\\s*(select|insert|update|delete|with)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    StatementRecorder statementRecorder;
+
+    @Autowired
+    EmailDao emailDao;
+
+    @Autowired
+    EmailQueryDao emailQueryDao;
+
+    @Autowired
+    EmailBulkDao emailBulkDao;
+
+    @Autowired
+    EmailBodyMigration emailBodyMigration;
+
+    @Autowired
+    EmailBodyGarbageCollector emailBodyGarbageCollector;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @Test
+    void testQueriesUseIndexes() {
+        seed();
+
+        List<Long> emailIds = LongStream.range(500_000, 500_010).boxed().toList();
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Runnable> accessPaths = new LinkedHashMap<>();
+        accessPaths.put("EmailDao.findById", () -> emailDao.findById(500_000L));
+        accessPaths.put("EmailDao.findByEmailFrom", () -> emailDao.findByEmailFrom("sender42@gbtec.com"));
+        accessPaths.put("EmailDao.findByState", () -> emailDao.findByState(EmailStateEnum.DRAFT));
+        accessPaths.put("EmailDao.findByEmailIdGreaterThanOrderByEmailIdAsc",
+                () -> emailDao.findByEmailIdGreaterThanOrderByEmailIdAsc(500_000L, Limit.of(101)));
+        accessPaths.put("EmailDao.findByStateAndEmailIdGreaterThanOrderByEmailIdAsc",
+                () -> emailDao.findByStateAndEmailIdGreaterThanOrderByEmailIdAsc(EmailStateEnum.DRAFT, 500_000L,
+                        Limit.of(101)));
+        accessPaths.put("EmailDao.findUpdatedBetween",
+                () -> emailDao.findUpdatedBetween(now.minusDays(1), now, 0L, Limit.of(101)));
+        accessPaths.put("Email lazy body and recipient batch load", () -> {
+            Email email = emailDao.findByEmailIdGreaterThanOrderByEmailIdAsc(500_000L, Limit.of(10)).get(0);
+            email.getEmailBody();
+            email.getEmailTo().size();
+            email.getEmailCC().size();
+        });
+        accessPaths.put("EmailQueryDao.findById", () -> emailQueryDao.findById(500_000L));
+        accessPaths.put("EmailQueryDao.findVersion", () -> emailQueryDao.findVersion(500_000L));
+        accessPaths.put("EmailQueryDao.findPageVersionsByState",
+                () -> emailQueryDao.findPageVersionsByState(EmailStateEnum.DRAFT, 500_000L, 101));
+        accessPaths.put("EmailQueryDao.findPage", () -> emailQueryDao.findPage(500_000L, 101));
+        accessPaths.put("EmailQueryDao.findPageByState",
+                () -> emailQueryDao.findPageByState(EmailStateEnum.DRAFT, 500_000L, 101));
+        accessPaths.put("EmailQueryDao.findPageUpdatedBetween",
+                () -> emailQueryDao.findPageUpdatedBetween(now.minusDays(1), now, 0L, 101));
+        accessPaths.put("EmailQueryDao.findPageByRecipient",
+                () -> emailQueryDao.findPageByRecipient("to42@gbtec.com", 0L, 101));
+        accessPaths.put("EmailBodyMigration.migrateChunk", () -> emailBodyMigration.migrateChunk());
+        accessPaths.put("EmailBodyGarbageCollector.collectGarbage", () -> emailBodyGarbageCollector.collectGarbage());
+        accessPaths.put("EmailBulkDao.deleteByIds", () -> emailBulkDao.deleteByIds(emailIds));
+        accessPaths.put("EmailBulkDao.markAsSpam",
+                () -> emailBulkDao.markAsSpam(List.of("carl@gbtec.com"), 1000, true));
+
+        accessPaths.forEach((name, accessPath) -> {
+            statementRecorder.clear();
+            accessPath.run();
+            testEntityManager.flush();
+            testEntityManager.clear();
+            List<StatementRecorder.RecordedStatement> statements = statementRecorder.statements();
+            assertFalse(statements.isEmpty(), name + " sent no statement");
+            statements.stream()
+                    .filter(statement -> EXPLAINABLE.matcher(statement.sql()).lookingAt())
+                    .forEach(statement -> assertIndexed(name, explain(statement)));
+        });
+
+        // run by PostgreSQL itself: the ON DELETE CASCADE of the recipients and the release of the bodies
+        assertIndexed("email_to cascade delete", explain(new StatementRecorder.RecordedStatement(
+                "SELECT 1 FROM email_to WHERE email_id = 500000", List.of())));
+        assertIndexed("email_cc cascade delete", explain(new StatementRecorder.RecordedStatement(
+                "SELECT 1 FROM email_cc WHERE email_id = 500000", List.of())));
+        assertIndexed("email_bodies release trigger", explain(new StatementRecorder.RecordedStatement(
+                "SELECT 1 FROM email_bodies WHERE body_hash = ANY(ARRAY[decode(md5('42'), 'hex')])", List.of())));
+    }
+
+    private List<String> explain(StatementRecorder.RecordedStatement statement) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql());
+            statement.bind(explain);
+            return explain;
+        }, (resultSet, rowNum) -> resultSet.getString(1));
+    }
+
+    private static void assertIndexed(String name, List<String> plan) {
+        assertFalse(plan.stream().anyMatch(line -> line.contains("Seq Scan")),
+                name + " uses a sequential scan:\n" + String.join("\n", plan));
+    }
+
+    private void seed() {
+        jdbcTemplate.update("""
+                INSERT INTO emails (email_id, email_from, email_body, state, updated_at)
+                SELECT g, 'sender' || (g % 5000) || '@gbtec.com', 'Body of email ' || g,
+                       CASE WHEN g % 100 = 0 THEN 'DRAFT' WHEN g % 100 = 1 THEN 'SPAM' ELSE 'SENT' END::state_enum,
+                       now() - g * interval '1 minute'
+                FROM generate_series(1, ?) g
+                """, EMAILS);
+        jdbcTemplate.update("""
+                INSERT INTO addresses (address)
+                SELECT 'to' || g || '@gbtec.com' FROM generate_series(0, 999) g
+                UNION ALL
+                SELECT 'cc' || g || '@gbtec.com' FROM generate_series(0, 999) g
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO email_to (to_id, email_id, address_id)
+                SELECT g, (g + 1) / 2, a.address_id FROM generate_series(1, ? * 2) g
+                JOIN addresses a ON a.address = 'to' || (g % 1000) || '@gbtec.com'
+                """, EMAILS);
+        jdbcTemplate.update("""
+                INSERT INTO email_cc (cc_id, email_id, address_id)
+                SELECT g, g, a.address_id FROM generate_series(1, ?) g
+                JOIN addresses a ON a.address = 'cc' || (g % 1000) || '@gbtec.com'
+                """, EMAILS);
+        jdbcTemplate.update("""
+                INSERT INTO email_bodies (body_hash, body_data, ref_count)
+                SELECT decode(md5(g::text), 'hex'), convert_to('Body of email ' || g, 'UTF8'),
+                       CASE WHEN g % 1000 = 0 THEN 0 ELSE 1 END
+                FROM generate_series(1, ?) g
+                """, EMAILS);
+        jdbcTemplate.execute("ANALYZE emails");
+        jdbcTemplate.execute("ANALYZE email_bodies");
+        jdbcTemplate.execute("ANALYZE addresses");
+        jdbcTemplate.execute("ANALYZE email_to");
+        jdbcTemplate.execute("ANALYZE email_cc");
+    }
+}
@@ -0,0 +1,179 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.cache.EmailCache;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.converter.AddressInterner;
+import com.example.email.converter.EmailHeaderConverter;
+import com.example.email.converter.EmailRequestConverter;
+import com.example.email.converter.EmailResponseConverter;
+import com.example.email.dto.EmailPageDTO;
+import com.example.email.dto.EmailResponseDTO;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.entity.EmailTo;
+import com.example.email.facade.EmailFacade;
+import com.example.email.rabbitmq.EmailCacheInvalidationPublisher;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailBulkDao;
+import com.example.email.repositories.EmailQueryDao;
+import com.example.email.service.EmailImportServiceImpl;
+import com.example.email.service.EmailJobServiceImpl;
+import com.example.email.service.EmailQueryServiceImpl;
+import com.example.email.service.EmailServiceImpl;
+import com.example.email.spam.SpamClassifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Counts the statements sent to the database by the read endpoints of the {@link EmailFacade}, on the JDBC
+ * projection and on the entity read path, so loading the recipients of a page never costs one query per
+ * email.</p>
+ * <p>The statements are counted at the {@code DataSource} by the {@link StatementRecorder}, which sees the
+ * {@code JdbcTemplate} projection as well as Hibernate.</p>
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({StatementRecorder.class, EmailFacade.class, EmailServiceImpl.class, EmailQueryServiceImpl.class,
+        EmailQueryDao.class, EmailBulkDao.class, EmailBodyDao.class, EmailBodyCodec.class, EmailCache.class,
+        EmailRequestConverter.class, EmailResponseConverter.class, EmailHeaderConverter.class,
+        AddressInterner.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class EmailReadQueryCountTest {
+
+    private static final int EMAILS = 60;
+
+    @Autowired
+    EmailFacade emailFacade;
+
+    @Autowired
+    EmailBodyDao emailBodyDao;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    StatementRecorder statementRecorder;
+
+    @MockBean
+    EmailImportServiceImpl emailImportService;
+
+    @MockBean
+    EmailJobServiceImpl emailJobService;
+
+    @MockBean
+    EmailCacheInvalidationPublisher emailCacheInvalidationPublisher;
+
+    @MockBean
+    SpamClassifier spamClassifier;
+
+    @MockBean
+    MeterRegistry meterRegistry;
+
+    private Long firstEmailId;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        List<Email> emails = new ArrayList<>();
+        for (int i = 0; i < EMAILS; i++) {
+            Email email = Email.builder()
+                    .emailFrom("sender" + i + "@gbtec.com")
+                    .emailBody("Body of email " + i)
+                    .state(EmailStateEnum.DRAFT)
+                    .build();
+            email.setEmailTo(List.of(new EmailTo(email, "marcus@gbtec.com"), new EmailTo(email, "alex@gbtec.com")));
+            email.setEmailCC(List.of(new EmailCC(email, "daniel@gbtec.com")));
+            emails.add(email);
+        }
+        emailBodyDao.storeBodies(emails);
+        emails.forEach(testEntityManager::persist);
+        firstEmailId = emails.get(0).getEmailId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        statementRecorder.clear();
+    }
+
+    @ParameterizedTest(name = "projection reads: {0}")
+    @ValueSource(booleans = {true, false})
+    void testGetAllEmailsLoadsRecipientsInBatches(boolean projectionReads) {
+        ReflectionTestUtils.setField(emailFacade, "projectionReads", projectionReads);
+
+        EmailPageDTO page = emailFacade.getAllEmails(null, EMAILS);
+
+        assertEquals(EMAILS, page.getEmails().size());
+        assertEquals(2, page.getEmails().get(EMAILS - 1).getEmailTo().size());
+        assertEquals("Body of email " + (EMAILS - 1), page.getEmails().get(EMAILS - 1).getSnippet());
+        // the projection aggregates the recipients in its single query, the entities load them in two batches
+        assertStatementsAtMost(projectionReads ? 1 : 3);
+    }
+
+    @ParameterizedTest(name = "projection reads: {0}")
+    @ValueSource(booleans = {true, false})
+    void testGetEmailsByStateLoadsRecipientsInBatches(boolean projectionReads) {
+        ReflectionTestUtils.setField(emailFacade, "projectionReads", projectionReads);
+
+        EmailPageDTO page = emailFacade.getEmailsByState(EmailStateEnum.DRAFT.getStateCode(), null, EMAILS);
+
+        assertEquals(EMAILS, page.getEmails().size());
+        assertEquals(1, page.getEmails().get(EMAILS - 1).getEmailCC().size());
+        assertStatementsAtMost(projectionReads ? 1 : 3);
+    }
+
+    @ParameterizedTest(name = "projection reads: {0}")
+    @ValueSource(booleans = {true, false})
+    void testGetEmailByIdLoadsRecipientsOnce(boolean projectionReads) {
+        ReflectionTestUtils.setField(emailFacade, "projectionReads", projectionReads);
+
+        EmailResponseDTO email = emailFacade.getEmailById(firstEmailId);
+
+        assertEquals(2, email.getEmailTo().size());
+        assertEquals("Body of email 0", email.getEmailBody());
+        // the lazy body of the entity is loaded with its own statement
+        assertStatementsAtMost(projectionReads ? 1 : 4);
+    }
+
+    private void assertStatementsAtMost(int expected) {
+        List<StatementRecorder.RecordedStatement> statements = statementRecorder.statements();
+        assertTrue(statements.size() <= expected, "Expected at most " + expected + " statements but "
+                + statements.size() + " were sent:\n" + String.join("\n",
+                statements.stream().map(StatementRecorder.RecordedStatement::sql).toList()));
+    }
+}
@@ -0,0 +1,131 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.cache.EmailCache;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.entity.Email;
+import com.example.email.entity.EmailCC;
+import com.example.email.entity.EmailStateEnum;
+import com.example.email.entity.EmailTo;
+import com.example.email.repositories.EmailBodyDao;
+import com.example.email.repositories.EmailBulkDao;
+import com.example.email.service.EmailServiceImpl;
+import com.example.email.spam.SpamClassifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Counts the statements written by an update of an email, so its recipients are diffed against the stored
+ * rows instead of being deleted and inserted again.</p>
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({StatementRecorder.class, EmailServiceImpl.class, EmailBulkDao.class, EmailBodyDao.class,
+        EmailBodyCodec.class})
+class EmailUpdateStatementCountTest {
+
+    @Autowired
+    EmailServiceImpl emailService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    StatementRecorder statementRecorder;
+
+    @MockBean
+    EmailCache emailCache;
+
+    @MockBean
+    SpamClassifier spamClassifier;
+
+    @MockBean
+    MeterRegistry meterRegistry;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", sqlContainer::getUsername);
+        registry.add("spring.datasource.password", sqlContainer::getPassword);
+    }
+
+    @Test
+    void testUpdateWritesOnlyChangedRecipients() {
+        Email email = Email.builder()
+                .emailFrom("sender@gbtec.com")
+                .emailBody("Quarterly report")
+                .state(EmailStateEnum.DRAFT)
+                .build();
+        EmailTo kept = new EmailTo(email, "marcus@gbtec.com");
+        EmailTo removed = new EmailTo(email, "alex@gbtec.com");
+        email.setEmailTo(new ArrayList<>(List.of(kept, removed)));
+        email.setEmailCC(new ArrayList<>(List.of(new EmailCC(email, "daniel@gbtec.com"))));
+        testEntityManager.persist(email);
+        testEntityManager.flush();
+        testEntityManager.clear();
+        statementRecorder.clear();
+
+        emailService.updateEmail(email.getEmailId(), "sender@gbtec.com", "Quarterly report",
+                EmailStateEnum.DRAFT.getStateCode(),
+                List.of(new EmailTo(null, "marcus@gbtec.com"), new EmailTo(null, "laura@gbtec.com")),
+                List.of(new EmailCC(null, "daniel@gbtec.com")));
+        testEntityManager.flush();
+
+        List<StatementRecorder.RecordedStatement> deletes = statements("delete from email_to");
+        assertEquals(1, deletes.size(), describe());
+        assertTrue(deletes.get(0).bindings().stream()
+                .anyMatch(binding -> Arrays.asList(binding.args()).contains(removed.getToId())), describe());
+        assertEquals(1, statements("insert into email_to").size(), describe());
+        assertEquals(1, statements("update emails").size(), describe());
+        // neither the kept "To" recipient nor the unchanged CC recipient is written
+        assertEquals(0, statements("update email_to").size(), describe());
+        assertEquals(0, statements("delete from email_cc").size() + statements("insert into email_cc").size()
+                + statements("update email_cc").size(), describe());
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM email_to WHERE to_id = ?", Integer.class,
+                kept.getToId()));
+        assertEquals(List.of("laura@gbtec.com", "marcus@gbtec.com"), jdbcTemplate.queryForList("""
+                SELECT address_of(address_id) FROM email_to WHERE email_id = ? ORDER BY 1
+                """, String.class, email.getEmailId()));
+    }
+
+    private List<StatementRecorder.RecordedStatement> statements(String prefix) {
+        return statementRecorder.statements().stream()
+                .filter(statement -> statement.sql().strip().toLowerCase().startsWith(prefix))
+                .toList();
+    }
+
+    private String describe() {
+        return "Statements sent:\n" + String.join("\n",
+                statementRecorder.statements().stream().map(StatementRecorder.RecordedStatement::sql).toList());
+    }
+}
@@ -0,0 +1,143 @@
+package repository;
+
+import com.example.email.EmailApplication;
+import com.example.email.compression.EmailBodyCodec;
+import com.example.email.converter.AddressInterner;
+import com.example.email.dto.EmailHeaderDTO;
+import com.example.email.entity.Email;
+import com.example.email.replicas.ReplicaRoutingConfig;
+import com.example.email.replicas.ReplicaRoutingDataSource;
+import com.example.email.repositories.EmailDao;
+import com.example.email.repositories.EmailQueryDao;
+import com.example.email.service.EmailQueryServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Runs with {@code email.replicas.enabled=true} against two independent Postgres instances, the second one
+ * standing in for a replica, and checks which of them serves each transaction.</p>
+ */
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "email.replicas.enabled=true",
+        "email.replicas.lag-check-interval=3600000"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = EmailApplication.class)
+@Import({ReplicaRoutingConfig.class, EmailQueryServiceImpl.class, EmailQueryDao.class, AddressInterner.class,
+        EmailBodyCodec.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EmailQueryServiceImpl emailQueryService;
+
+    @Autowired
+    EmailDao emailDao;
+
+    @Autowired
+    ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private static PostgreSQLContainer primaryContainer = new PostgreSQLContainer("postgres:16");
+
+    private static PostgreSQLContainer replicaContainer = new PostgreSQLContainer("postgres:16");
+
+    private static JdbcTemplate replicaJdbcTemplate;
+
+    static {
+
+        primaryContainer.start();
+        replicaContainer.start();
+        DriverManagerDataSource replica = new DriverManagerDataSource(replicaContainer.getJdbcUrl(),
+                replicaContainer.getUsername(), replicaContainer.getPassword());
+        Flyway.configure().dataSource(replica).load().migrate();
+        replicaJdbcTemplate = new JdbcTemplate(replica);
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primaryContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", primaryContainer::getUsername);
+        registry.add("spring.datasource.password", primaryContainer::getPassword);
+        registry.add("email.replicas.urls", replicaContainer::getJdbcUrl);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("TRUNCATE emails CASCADE");
+        replicaJdbcTemplate.update("TRUNCATE emails CASCADE");
+        insertEmail(jdbcTemplate, "primary@gbtec.com");
+        insertEmail(replicaJdbcTemplate, "replica@gbtec.com");
+        replicaRoutingDataSource.checkLag();
+    }
+
+    @Test
+    void testReadOnlyTransactionsReadFromTheReplica() {
+        List<EmailHeaderDTO> emails = emailQueryService.getAllEmails(0, 10);
+
+        assertEquals(1, emails.size());
+        assertEquals("replica@gbtec.com", emails.get(0).getEmailFrom());
+        assertEquals("primary@gbtec.com", new TransactionTemplate(transactionManager).execute(status ->
+                jdbcTemplate.queryForObject("SELECT email_from FROM emails", String.class)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFallsBackToThePrimaryWhenTheReplicaLags() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        replicaRoutingDataSource.bindTo(meterRegistry);
+        Map<String, Long> lags = (Map<String, Long>) ReflectionTestUtils.getField(replicaRoutingDataSource, "lags");
+        lags.put("replica-1", 60_000L);
+
+        List<EmailHeaderDTO> emails = emailQueryService.getAllEmails(0, 10);
+
+        assertEquals("primary@gbtec.com", emails.get(0).getEmailFrom());
+        assertEquals(1, meterRegistry.get("email.replica.fallbacks").functionCounter().count());
+    }
+
+    @Test
+    void testReadOnlyTransactionsAreNotFlushed() {
+        Long emailId = replicaJdbcTemplate.queryForObject("SELECT email_id FROM emails", Long.class);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            Email email = emailDao.findById(emailId).orElseThrow();
+            email.setEmailFrom("changed@gbtec.com");
+        });
+
+        assertEquals("replica@gbtec.com",
+                replicaJdbcTemplate.queryForObject("SELECT email_from FROM emails", String.class));
+    }
+
+    private static void insertEmail(JdbcTemplate target, String emailFrom) {
+        target.update("INSERT INTO emails (email_from, email_body, state, updated_at) "
+                + "VALUES (?, 'Body', 'SENT', now())", emailFrom);
+    }
+}
@@ -0,0 +1,159 @@
+package repository;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>Records every statement sent through the application {@link DataSource}, whether by Hibernate or by a
+ * {@code JdbcTemplate}, with the calls that bound its parameters.</p>
+ * <p>Imported by the tests that count the statements of a code path or replay them under {@code EXPLAIN}. Only
+ * the {@code dataSource} bean is wrapped, so the tests must run without the read replicas.</p>
+ */
+@TestConfiguration
+public class StatementRecorder implements BeanPostProcessor {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "addBatch");
+
+    private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return recording(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return recording(super.getConnection(username, password));
+                }
+            };
+        }
+        return bean;
+    }
+
+    /**
+     * <p>Forgets the statements recorded so far.</p>
+     */
+    public void clear() {
+        statements.clear();
+    }
+
+    /**
+     * <p>Returns the statements recorded since the last {@link #clear()}, in execution order. Each execution
+     * and each batch entry is a statement.</p>
+     *
+     * @return The recorded statements.
+     */
+    public List<RecordedStatement> statements() {
+        return List.copyOf(statements);
+    }
+
+    private Connection recording(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = method.invoke(target, args);
+            if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                return recording(statement, (String) args[0]);
+            }
+            if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                return proxy(Statement.class, statement, (statementTarget, statementMethod, statementArgs) -> {
+                    if (EXECUTE_METHODS.contains(statementMethod.getName()) && statementArgs != null) {
+                        statements.add(new RecordedStatement((String) statementArgs[0], List.of()));
+                    }
+                    return statementMethod.invoke(statementTarget, statementArgs);
+                });
+            }
+            return result;
+        });
+    }
+
+    private PreparedStatement recording(PreparedStatement statement, String sql) {
+        List<Binding> bindings = new ArrayList<>();
+        return proxy(PreparedStatement.class, statement, (target, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bindings.add(new Binding(method, args.clone()));
+            } else if (name.equals("clearParameters")) {
+                bindings.clear();
+            } else if (EXECUTE_METHODS.contains(name) && args == null) {
+                statements.add(new RecordedStatement(sql, List.copyOf(bindings)));
+            }
+            return method.invoke(target, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Invocation invocation) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            try {
+                return invocation.invoke(target, method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * <p>A call that bound a parameter of a prepared statement, such as {@code setLong(1, 42)}.</p>
+     *
+     * @param setter The setter of {@link PreparedStatement}.
+     * @param args The arguments of the call.
+     */
+    public record Binding(Method setter, Object[] args) {
+    }
+
+    /**
+     * <p>A statement sent to the database.</p>
+     *
+     * @param sql The SQL of the statement.
+     * @param bindings The calls that bound its parameters, in call order.
+     */
+    public record RecordedStatement(String sql, List<Binding> bindings) {
+
+        /**
+         * <p>Binds the recorded parameters to another statement.</p>
+         *
+         * @param statement The statement, whose parameters must match the recorded SQL.
+         * @throws SQLException If a parameter cannot be bound.
+         */
+        public void bind(PreparedStatement statement) throws SQLException {
+            for (Binding binding : bindings) {
+                try {
+                    binding.setter().invoke(statement, binding.args());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof SQLException sqlException) {
+                        throw sqlException;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.email.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class EmailReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(EmailReactiveApplication.class, args);
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.example.email.reactive.compression;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Decodes the email bodies written by the {@code EmailBodyCodec} of the Email service into the "body_data"
+ * column of "email_bodies".</p>
+ * <p>Every encoded body starts with a one-byte format header:</p>
+ * <ul>
+ *     <li>{@link #FORMAT_PLAIN}, followed by the UTF-8 bytes of the body;</li>
+ *     <li>{@link #FORMAT_DEFLATE}, followed by the length of the UTF-8 body as a 4-byte integer and the
+ *     DEFLATE-compressed bytes.</li>
+ * </ul>
+ */
+@Component
+public class EmailBodyDecoder {
+
+    /**
+     * <p>Header of a body stored as plain UTF-8.</p>
+     */
+    public static final byte FORMAT_PLAIN = 0;
+
+    /**
+     * <p>Header of a body stored DEFLATE-compressed.</p>
+     */
+    public static final byte FORMAT_DEFLATE = 1;
+
+    private static final int DEFLATE_HEADER_LENGTH = 1 + Integer.BYTES;
+
+    /**
+     * <p>Decodes an encoded body.</p>
+     *
+     * @param data The encoded body.
+     * @return The body.
+     * @throws IllegalArgumentException If the header is unknown or the data is corrupt.
+     */
+    public String decode(byte[] data) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("Invalid email body: missing format header");
+        }
+        return switch (data[0]) {
+            case FORMAT_PLAIN -> new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case FORMAT_DEFLATE -> new String(inflate(data), StandardCharsets.UTF_8);
+            default -> throw new IllegalArgumentException("Invalid email body: unknown format " + data[0]);
+        };
+    }
+
+    /**
+     * <p>Decompresses a {@link #FORMAT_DEFLATE} body.</p>
+     *
+     * @param data The header followed by the compressed bytes.
+     * @return The UTF-8 bytes of the body.
+     */
+    private byte[] inflate(byte[] data) {
+        int length = ByteBuffer.wrap(data, 1, Integer.BYTES).getInt();
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, DEFLATE_HEADER_LENGTH, data.length - DEFLATE_HEADER_LENGTH);
+            byte[] utf8 = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int inflated = inflater.inflate(utf8, read, length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != length) {
+                throw new IllegalArgumentException("Invalid email body: truncated compressed data");
+            }
+            return utf8;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid email body: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
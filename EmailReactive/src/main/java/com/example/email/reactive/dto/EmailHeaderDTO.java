@@ -0,0 +1,50 @@
+package com.example.email.reactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * <p>Data Transfer Object (DTO) for an email in a list response.</p>
+ * <p>Serialized like the list entries of the Email service: the header fields and a snippet of the body; the
+ * full body is only returned by {@code GET /email/{id}} and the exports.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailHeaderDTO {
+
+    /**
+     * <p>The ID of the email.</p>
+     */
+    private Long emailId;
+
+    /**
+     * <p>The sender's email address.</p>
+     */
+    private String emailFrom;
+
+    /**
+     * <p>The beginning of the body content, at most {@code EmailReactiveDao.SNIPPET_LENGTH} characters.</p>
+     */
+    private String snippet;
+
+    /**
+     * <p>The state of the email (e.g., 1 for Sent, 2 for Draft, etc.).</p>
+     */
+    private int state;
+
+    /**
+     * <p>A list of recipients in the "To" field.</p>
+     */
+    private List<EmailAddressDTO> emailTo;
+
+    /**
+     * <p>A list of recipients in the "CC" field.</p>
+     */
+    private List<EmailAddressDTO> emailCC;
+}
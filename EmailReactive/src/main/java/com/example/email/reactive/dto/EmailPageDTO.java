@@ -0,0 +1,29 @@
+package com.example.email.reactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * <p>Data Transfer Object (DTO) for a page of emails.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailPageDTO {
+
+    /**
+     * <p>The emails of the page, in ascending ID order.</p>
+     */
+    private List<EmailHeaderDTO> emails;
+
+    /**
+     * <p>Opaque cursor to pass as {@code cursor} to get the next page, or null if this is the last page.
+     * Interchangeable with the cursors of the Email service.</p>
+     */
+    private String next;
+}
@@ -0,0 +1,181 @@
+package com.example.email.reactive.facade;
+
+import com.example.email.reactive.dto.EmailHeaderDTO;
+import com.example.email.reactive.dto.EmailPageDTO;
+import com.example.email.reactive.dto.EmailResponseDTO;
+import com.example.email.reactive.entity.EmailStateEnum;
+import com.example.email.reactive.service.EmailReactiveQueryServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * <p>Facade between the reactive controller and the query service.</p>
+ * <p>Pages and cursors follow the Email service: a cursor of one API can be passed to the other.</p>
+ */
+@Component
+public class EmailReactiveFacade {
+
+    /**
+     * <p>The maximum number of emails returned in a single page.</p>
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private EmailReactiveQueryServiceImpl emailReactiveQueryService;
+
+    /**
+     * <p>Retrieves an email by its ID.</p>
+     *
+     * @param emailId The ID of the email to retrieve.
+     * @return The email, including its full body.
+     */
+    public Mono<EmailResponseDTO> getEmailById(Long emailId) {
+        return emailReactiveQueryService.getEmailById(emailId);
+    }
+
+    /**
+     * <p>Retrieves a page of emails in ID order.</p>
+     *
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return The page of emails and the cursor of the next page, or an error with an
+     * {@link IllegalArgumentException} if the cursor is not valid.
+     */
+    public Mono<EmailPageDTO> getAllEmails(String cursor, int limit) {
+        return Mono.defer(() -> {
+            int pageSize = pageSize(limit);
+            return toPage(emailReactiveQueryService.getAllEmails(decodeCursor(cursor), pageSize + 1), pageSize);
+        });
+    }
+
+    /**
+     * <p>Retrieves a page of emails with a specific state in ID order.</p>
+     *
+     * @param state The state code of the emails to retrieve.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return The page of emails and the cursor of the next page, or an error with an
+     * {@link IllegalArgumentException} if the state or the cursor is not valid.
+     */
+    public Mono<EmailPageDTO> getEmailsByState(int state, String cursor, int limit) {
+        return Mono.defer(() -> {
+            int pageSize = pageSize(limit);
+            EmailStateEnum emailState = EmailStateEnum.fromStateCode(state);
+            return toPage(emailReactiveQueryService.getEmailsByState(emailState, decodeCursor(cursor),
+                    pageSize + 1), pageSize);
+        });
+    }
+
+    /**
+     * <p>Retrieves a page of the emails last updated within {@code [from, to)} in ID order.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return The page of emails and the cursor of the next page, or an error with an
+     * {@link IllegalArgumentException} if the range or the cursor is not valid.
+     */
+    public Mono<EmailPageDTO> getEmailsUpdatedBetween(LocalDateTime from, LocalDateTime to, String cursor,
+                                                      int limit) {
+        return Mono.defer(() -> {
+            if (!from.isBefore(to)) {
+                throw new IllegalArgumentException("Invalid range: from must be before to");
+            }
+            int pageSize = pageSize(limit);
+            return toPage(emailReactiveQueryService.getEmailsUpdatedBetween(from, to, decodeCursor(cursor),
+                    pageSize + 1), pageSize);
+        });
+    }
+
+    /**
+     * <p>Retrieves a page of the emails sent to an address in ID order.</p>
+     *
+     * @param address The "To" address.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit The maximum number of emails to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return The page of emails and the cursor of the next page, or an error with an
+     * {@link IllegalArgumentException} if the cursor is not valid.
+     */
+    public Mono<EmailPageDTO> getEmailsByRecipient(String address, String cursor, int limit) {
+        return Mono.defer(() -> {
+            int pageSize = pageSize(limit);
+            return toPage(emailReactiveQueryService.getEmailsByRecipient(address, decodeCursor(cursor),
+                    pageSize + 1), pageSize);
+        });
+    }
+
+    /**
+     * <p>Streams emails in ID order, including their full bodies.</p>
+     *
+     * @param state The state code of the emails to stream, or null to stream all emails.
+     * @return The emails, or an error with an {@link IllegalArgumentException} if the state code is unknown.
+     */
+    public Flux<EmailResponseDTO> streamEmails(Integer state) {
+        return Flux.defer(() -> emailReactiveQueryService.streamEmails(
+                state == null ? null : EmailStateEnum.fromStateCode(state)));
+    }
+
+    /**
+     * <p>Builds a page from the emails fetched with one more than the page size.</p>
+     *
+     * @param emails The emails, at most {@code pageSize + 1}.
+     * @param pageSize The page size.
+     * @return The page, with a cursor if there is a next page.
+     */
+    private Mono<EmailPageDTO> toPage(Flux<EmailHeaderDTO> emails, int pageSize) {
+        return emails.collectList().map(fetched -> {
+            boolean hasNext = fetched.size() > pageSize;
+            List<EmailHeaderDTO> page = hasNext ? fetched.subList(0, pageSize) : fetched;
+
+            String next = hasNext ? encodeCursor(page.get(page.size() - 1).getEmailId()) : null;
+            return new EmailPageDTO(page, next);
+        });
+    }
+
+    /**
+     * <p>Clamps the requested page size to {@code [1, MAX_PAGE_SIZE]}.</p>
+     *
+     * @param limit The requested page size.
+     * @return The page size to use.
+     */
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * <p>Encodes the last email ID of a page as an opaque cursor.</p>
+     *
+     * @param emailId The last email ID of the page.
+     * @return The cursor.
+     */
+    private String encodeCursor(long emailId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(emailId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * <p>Decodes a cursor created by {@link #encodeCursor(long)}.</p>
+     *
+     * @param cursor The cursor, or null for the first page.
+     * @return The last email ID of the previous page, or 0 for the first page.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    private long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
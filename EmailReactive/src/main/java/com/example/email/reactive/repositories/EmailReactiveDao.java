@@ -0,0 +1,237 @@
+package com.example.email.reactive.repositories;
+
+import com.example.email.reactive.compression.EmailBodyDecoder;
+import com.example.email.reactive.dto.EmailAddressDTO;
+import com.example.email.reactive.dto.EmailHeaderDTO;
+import com.example.email.reactive.dto.EmailResponseDTO;
+import com.example.email.reactive.entity.EmailStateEnum;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Non-blocking read queries of the emails, over R2DBC against the schema migrated by the Email service.</p>
+ * <p>The recipients are aggregated in SQL with {@code array_agg}, as the Email service does, so every email
+ * is read in a single row and a stream never needs a second query on its connection while its portal is open.
+ * Emails stored in the array storage mode return their array columns and skip the recipient tables. Pages only
+ * carry the stored snippet of the body; full bodies are read from "email_bodies" and decoded with the
+ * {@link EmailBodyDecoder}.</p>
+ */
+@Repository
+public class EmailReactiveDao {
+
+    /**
+     * <p>The maximum length of the snippet of a page entry, as stored by the Email service.</p>
+     */
+    public static final int SNIPPET_LENGTH = 200;
+
+    /**
+     * <p>The number of rows fetched per round trip when streaming.</p>
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String RECIPIENT_COLUMNS = """
+                   COALESCE(e.email_to_addresses, (SELECT array_agg(a.address ORDER BY t.to_id)::text[]
+                                                   FROM email_to t JOIN addresses a ON a.address_id = t.address_id
+                                                   WHERE t.email_id = e.email_id)) AS email_to,
+                   COALESCE(e.email_cc_addresses, (SELECT array_agg(a.address ORDER BY c.cc_id)::text[]
+                                                   FROM email_cc c JOIN addresses a ON a.address_id = c.address_id
+                                                   WHERE c.email_id = e.email_id)) AS email_cc
+            """;
+
+    private static final String SELECT_EMAILS = "SELECT e.email_id, e.email_from, e.state::text AS state,\n"
+            + "COALESCE(b.body_data, e.email_body_data) AS email_body_data, e.email_body,\n"
+            + RECIPIENT_COLUMNS + "FROM emails e LEFT JOIN email_bodies b ON b.body_hash = e.body_hash\n";
+
+    /**
+     * <p>Selects the list columns: only a snippet of the body is read, so large bodies are never transferred.</p>
+     */
+    private static final String SELECT_HEADERS = "SELECT e.email_id, e.email_from, e.state::text AS state,\n"
+            + "COALESCE(e.email_snippet, left(e.email_body, " + SNIPPET_LENGTH + ")) AS snippet,\n"
+            + RECIPIENT_COLUMNS + "FROM emails e\n";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private EmailBodyDecoder emailBodyDecoder;
+
+    /**
+     * <p>Finds an email by its ID.</p>
+     *
+     * @param emailId The ID of the email.
+     * @return The email, or an empty {@link Mono} if it does not exist.
+     */
+    public Mono<EmailResponseDTO> findById(Long emailId) {
+        return databaseClient.sql(SELECT_EMAILS + "WHERE e.email_id = $1")
+                .bind(0, emailId)
+                .map(this::mapEmail)
+                .one();
+    }
+
+    /**
+     * <p>Finds the next page of emails in ID order, starting after the given ID (keyset pagination).</p>
+     *
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public Flux<EmailHeaderDTO> findPage(long afterId, int limit) {
+        return databaseClient.sql(SELECT_HEADERS
+                        + "WHERE e.email_id > $1 ORDER BY e.email_id LIMIT $2")
+                .bind(0, afterId)
+                .bind(1, limit)
+                .map(this::mapHeader)
+                .all();
+    }
+
+    /**
+     * <p>Finds the next page of emails with a specific state in ID order, starting after the given ID
+     * (keyset pagination).</p>
+     *
+     * @param state The state of the emails to retrieve.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with the state and an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public Flux<EmailHeaderDTO> findPageByState(EmailStateEnum state, long afterId, int limit) {
+        return databaseClient.sql(SELECT_HEADERS
+                        + "WHERE e.state = $1::state_enum AND e.email_id > $2 ORDER BY e.email_id LIMIT $3")
+                .bind(0, state.name())
+                .bind(1, afterId)
+                .bind(2, limit)
+                .map(this::mapHeader)
+                .all();
+    }
+
+    /**
+     * <p>Finds the next page of emails last updated within {@code [from, to)}, in ID order, starting after
+     * the given ID (keyset pagination).</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails updated within the range with an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public Flux<EmailHeaderDTO> findPageUpdatedBetween(LocalDateTime from, LocalDateTime to, long afterId,
+                                                       int limit) {
+        return databaseClient.sql(SELECT_HEADERS
+                        + "WHERE e.updated_at >= $1 AND e.updated_at < $2 AND e.email_id > $3 "
+                        + "ORDER BY e.email_id LIMIT $4")
+                .bind(0, from)
+                .bind(1, to)
+                .bind(2, afterId)
+                .bind(3, limit)
+                .map(this::mapHeader)
+                .all();
+    }
+
+    /**
+     * <p>Finds the next page of emails sent to an address, in ID order, starting after the given ID
+     * (keyset pagination).</p>
+     * <p>Both recipient storage modes are searched, so emails stored before a change of mode are still found.</p>
+     *
+     * @param address The "To" address.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails sent to the address with an ID greater than {@code afterId}, in ascending ID order.
+     */
+    public Flux<EmailHeaderDTO> findPageByRecipient(String address, long afterId, int limit) {
+        return databaseClient.sql(SELECT_HEADERS + """
+                        WHERE (e.email_to_addresses @> ARRAY[$1]::text[]
+                               OR e.email_id = ANY(ARRAY(SELECT r.email_id FROM email_to r
+                                                         JOIN addresses a ON a.address_id = r.address_id
+                                                         WHERE a.address = $1)))
+                          AND e.email_id > $2 ORDER BY e.email_id LIMIT $3
+                        """)
+                .bind(0, address)
+                .bind(1, afterId)
+                .bind(2, limit)
+                .map(this::mapHeader)
+                .all();
+    }
+
+    /**
+     * <p>Streams emails in ID order, optionally filtered by state.</p>
+     * <p>Rows are fetched {@value #STREAM_FETCH_SIZE} at a time through a portal, and only when the subscriber
+     * requests more, so a slow consumer holds at most a few chunks in memory. The recipients come with each row:
+     * the connection runs one statement at a time, so a query sent while the portal is open would wait behind it.
+     * Must be subscribed inside a transaction.</p>
+     *
+     * @param state The state of the emails to stream, or null to stream all emails.
+     * @return The emails.
+     */
+    public Flux<EmailResponseDTO> streamEmails(EmailStateEnum state) {
+        DatabaseClient.GenericExecuteSpec query = state == null
+                ? databaseClient.sql(SELECT_EMAILS + "ORDER BY e.email_id")
+                : databaseClient.sql(SELECT_EMAILS + "WHERE e.state = $1::state_enum ORDER BY e.email_id")
+                        .bind(0, state.name());
+        return query
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(this::mapEmail)
+                .all();
+    }
+
+    /**
+     * <p>Maps a row of {@link #SELECT_EMAILS} to an {@link EmailResponseDTO}.</p>
+     *
+     * @param row The row.
+     * @return The email.
+     */
+    private EmailResponseDTO mapEmail(Readable row) {
+        EmailResponseDTO responseDTO = new EmailResponseDTO();
+        responseDTO.setEmailId(row.get("email_id", Long.class));
+        responseDTO.setEmailFrom(row.get("email_from", String.class));
+        byte[] bodyData = row.get("email_body_data", byte[].class);
+        // rows not migrated yet by the EmailBodyMigration still have their body on the email row
+        responseDTO.setEmailBody(bodyData != null
+                ? emailBodyDecoder.decode(bodyData)
+                : row.get("email_body", String.class));
+        responseDTO.setState(EmailStateEnum.valueOf(row.get("state", String.class)).getStateCode());
+        responseDTO.setEmailTo(toAddresses(row.get("email_to", String[].class)));
+        responseDTO.setEmailCC(toAddresses(row.get("email_cc", String[].class)));
+        return responseDTO;
+    }
+
+    /**
+     * <p>Maps a row of {@link #SELECT_HEADERS} to an {@link EmailHeaderDTO}.</p>
+     *
+     * @param row The row.
+     * @return The email header.
+     */
+    private EmailHeaderDTO mapHeader(Readable row) {
+        EmailHeaderDTO headerDTO = new EmailHeaderDTO();
+        headerDTO.setEmailId(row.get("email_id", Long.class));
+        headerDTO.setEmailFrom(row.get("email_from", String.class));
+        headerDTO.setSnippet(row.get("snippet", String.class));
+        headerDTO.setState(EmailStateEnum.valueOf(row.get("state", String.class)).getStateCode());
+        headerDTO.setEmailTo(toAddresses(row.get("email_to", String[].class)));
+        headerDTO.setEmailCC(toAddresses(row.get("email_cc", String[].class)));
+        return headerDTO;
+    }
+
+    /**
+     * <p>Converts an aggregated SQL array of addresses to {@link EmailAddressDTO} objects.</p>
+     *
+     * @param addresses The addresses, or null if the email has no recipients of that kind.
+     * @return The addresses, never null.
+     */
+    private List<EmailAddressDTO> toAddresses(String[] addresses) {
+        if (addresses == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(addresses)
+                .map(EmailAddressDTO::new)
+                .collect(Collectors.toList());
+    }
+}
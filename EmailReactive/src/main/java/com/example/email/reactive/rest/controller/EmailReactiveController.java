@@ -0,0 +1,121 @@
+package com.example.email.reactive.rest.controller;
+
+import com.example.email.reactive.dto.EmailPageDTO;
+import com.example.email.reactive.dto.EmailResponseDTO;
+import com.example.email.reactive.facade.EmailReactiveFacade;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Contains the read endpoints of the Email service, served without blocking a thread per request.</p>
+ */
+@RestController
+public class EmailReactiveController {
+
+    @Autowired
+    private EmailReactiveFacade emailReactiveFacade;
+
+    /**
+     * <p>Retrieves an email by its ID, including its full body.</p>
+     *
+     * @param id The ID of the email to retrieve.
+     * @return Mono<EmailResponseDTO> The email corresponding to the provided ID.
+     */
+    @GetMapping("/email/{id}")
+    public Mono<EmailResponseDTO> getEmailById(@PathVariable Long id) {
+        return emailReactiveFacade.getEmailById(id);
+    }
+
+    /**
+     * <p>Retrieves a page of emails, ordered by ID.</p>
+     *
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @return Mono<EmailPageDTO> The page of emails and the cursor of the next page.
+     */
+    @GetMapping("/emails")
+    public Mono<EmailPageDTO> getAllEmails(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "100") int limit) {
+        return emailReactiveFacade.getAllEmails(cursor, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of the emails last updated within a time range, ordered by ID.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp, as ISO date-time.
+     * @param to The exclusive upper bound of the update timestamp, as ISO date-time.
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @return Mono<EmailPageDTO> The page of emails and the cursor of the next page.
+     */
+    @GetMapping("/emails/updated")
+    public Mono<EmailPageDTO> getEmailsUpdatedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return emailReactiveFacade.getEmailsUpdatedBetween(from, to, cursor, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of the emails sent to an address, ordered by ID.</p>
+     *
+     * @param address The "To" address.
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @return Mono<EmailPageDTO> The page of emails and the cursor of the next page.
+     */
+    @GetMapping("/emails/recipient")
+    public Mono<EmailPageDTO> getEmailsByRecipient(@RequestParam String address,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "100") int limit) {
+        return emailReactiveFacade.getEmailsByRecipient(address, cursor, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of emails with a specific state, ordered by ID.</p>
+     *
+     * @param state The state of the emails to retrieve.
+     * @param cursor The {@code next} cursor of the previous page; omitted for the first page.
+     * @param limit The maximum number of emails in the page.
+     * @return Mono<EmailPageDTO> The page of emails and the cursor of the next page.
+     */
+    @GetMapping("/emails/state/{state}")
+    public Mono<EmailPageDTO> getEmailsByState(@PathVariable int state,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "100") int limit) {
+        return emailReactiveFacade.getEmailsByState(state, cursor, limit);
+    }
+
+    /**
+     * <p>Streams every stored email as newline-delimited JSON, ordered by ID.</p>
+     * <p>Rows are read from the database as the client consumes the response, so a slow client holds a
+     * connection but neither a thread nor the whole result.</p>
+     *
+     * @return Flux<EmailResponseDTO> The emails, one {@link EmailResponseDTO} per line.
+     */
+    @GetMapping(value = "/emails/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EmailResponseDTO> exportEmails() {
+        return emailReactiveFacade.streamEmails(null);
+    }
+
+    /**
+     * <p>Streams every email with a specific state as newline-delimited JSON, ordered by ID.</p>
+     *
+     * @param state The state of the emails to export.
+     * @return Flux<EmailResponseDTO> The emails, one {@link EmailResponseDTO} per line.
+     */
+    @GetMapping(value = "/emails/state/{state}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EmailResponseDTO> exportEmailsByState(@PathVariable int state) {
+        return emailReactiveFacade.streamEmails(state);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.email.reactive.rest.exceptionhandler;
+
+import com.example.email.reactive.service.exceptions.ResourceNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * <p>Global exception handler for handling various exceptions across the entire application.</p>
+ * <p>Maps the errors to the same responses as the Email service.</p>
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    /**
+     * <p>Handles {@link ResourceNotFoundException} and returns a 404 response with the error message.</p>
+     *
+     * @param ex The {@link ResourceNotFoundException} to handle.
+     * @return A {@link ResponseEntity} with a 404 status and the exception's message.
+     */
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<String> handleResourceNotFoundException(ResourceNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    /**
+     * <p>Handles {@link IllegalArgumentException}, such as an unknown state code or an invalid page cursor,
+     * and returns a 400 response with the error message.</p>
+     *
+     * @param ex The {@link IllegalArgumentException} to handle.
+     * @return A {@link ResponseEntity} with a 400 status and the exception's message.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.email.reactive.service;
+
+import com.example.email.reactive.dto.EmailHeaderDTO;
+import com.example.email.reactive.dto.EmailResponseDTO;
+import com.example.email.reactive.entity.EmailStateEnum;
+import com.example.email.reactive.repositories.EmailReactiveDao;
+import com.example.email.reactive.service.exceptions.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Non-blocking read-only service returning the same projections as the query service of the Email
+ * service.</p>
+ */
+@Service
+public class EmailReactiveQueryServiceImpl {
+
+    @Autowired
+    private EmailReactiveDao emailReactiveDao;
+
+    /**
+     * <p>Retrieves an email by its ID.</p>
+     *
+     * @param emailId The ID of the email to retrieve.
+     * @return The email with the specified ID, or an error with a {@link ResourceNotFoundException} if no email
+     * is found with the specified ID.
+     */
+    public Mono<EmailResponseDTO> getEmailById(Long emailId) {
+        return emailReactiveDao.findById(emailId)
+                .switchIfEmpty(Mono.error(() ->
+                        new ResourceNotFoundException("Email with emailId " + emailId + " was not found")));
+    }
+
+    /**
+     * <p>Retrieves a page of emails in ID order.</p>
+     *
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with an ID greater than {@code afterId}.
+     */
+    public Flux<EmailHeaderDTO> getAllEmails(long afterId, int limit) {
+        return emailReactiveDao.findPage(afterId, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of emails with a specific state in ID order.</p>
+     *
+     * @param state The state of the emails to retrieve.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails with the state and an ID greater than {@code afterId}.
+     */
+    public Flux<EmailHeaderDTO> getEmailsByState(EmailStateEnum state, long afterId, int limit) {
+        return emailReactiveDao.findPageByState(state, afterId, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of the emails last updated within {@code [from, to)} in ID order.</p>
+     *
+     * @param from The inclusive lower bound of the update timestamp.
+     * @param to The exclusive upper bound of the update timestamp.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails updated within the range with an ID greater than {@code afterId}.
+     */
+    public Flux<EmailHeaderDTO> getEmailsUpdatedBetween(LocalDateTime from, LocalDateTime to, long afterId,
+                                                        int limit) {
+        return emailReactiveDao.findPageUpdatedBetween(from, to, afterId, limit);
+    }
+
+    /**
+     * <p>Retrieves a page of the emails sent to an address in ID order.</p>
+     *
+     * @param address The "To" address.
+     * @param afterId The last ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of emails to return.
+     * @return The emails sent to the address with an ID greater than {@code afterId}.
+     */
+    public Flux<EmailHeaderDTO> getEmailsByRecipient(String address, long afterId, int limit) {
+        return emailReactiveDao.findPageByRecipient(address, afterId, limit);
+    }
+
+    /**
+     * <p>Streams emails in ID order, optionally filtered by state.</p>
+     * <p>Runs in a read-only transaction, which the portal of the streaming query requires; the transaction and
+     * its connection are held until the stream completes or is cancelled.</p>
+     *
+     * @param state The state of the emails to stream, or null to stream all emails.
+     * @return The emails.
+     */
+    @Transactional(readOnly = true)
+    public Flux<EmailResponseDTO> streamEmails(EmailStateEnum state) {
+        return emailReactiveDao.streamEmails(state);
+    }
+}
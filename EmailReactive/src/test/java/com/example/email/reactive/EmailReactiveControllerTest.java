@@ -0,0 +1,205 @@
+package com.example.email.reactive;
+
+import com.example.email.reactive.dto.EmailPageDTO;
+import com.example.email.reactive.dto.EmailResponseDTO;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * <p>Runs the reactive read API against a database migrated with the Flyway scripts of the Email service.</p>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class EmailReactiveControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    private static PostgreSQLContainer sqlContainer = new PostgreSQLContainer("postgres:16");
+
+    static {
+
+        sqlContainer.start();
+        Flyway.configure()
+                .dataSource(sqlContainer.getJdbcUrl(), sqlContainer.getUsername(), sqlContainer.getPassword())
+                .locations("filesystem:../Email/src/main/resources/db/migration")
+                .load()
+                .migrate();
+    }
+
+    @DynamicPropertySource
+    static void r2dbcProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + sqlContainer.getHost() + ":"
+                + sqlContainer.getFirstMappedPort() + "/" + sqlContainer.getDatabaseName());
+        registry.add("spring.r2dbc.username", sqlContainer::getUsername);
+        registry.add("spring.r2dbc.password", sqlContainer::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("""
+                TRUNCATE emails, email_bodies CASCADE;
+                INSERT INTO emails (email_id, email_from, email_body, email_snippet, state)
+                VALUES (1, 'marcus@gbtec.com', 'First body', 'First body', 'SENT');
+                INSERT INTO email_to (email_id, address_id) VALUES (1, address_id_of('daniel@gbtec.com'));
+                INSERT INTO email_to (email_id, address_id) VALUES (1, address_id_of('carl@gbtec.com'));
+                INSERT INTO email_cc (email_id, address_id) VALUES (1, address_id_of('anna@gbtec.com'));
+                INSERT INTO emails (email_id, email_from, email_body, state, email_to_addresses, email_cc_addresses)
+                VALUES (2, 'anna@gbtec.com', 'Draft body', 'DRAFT', ARRAY['marcus@gbtec.com'], ARRAY[]::text[]);
+                INSERT INTO email_bodies (body_hash, body_data, ref_count)
+                VALUES (decode(md5('x'), 'hex'), '\\x00'::bytea || convert_to('Stored body', 'UTF8'), 1);
+                INSERT INTO emails (email_id, email_from, email_snippet, state, body_hash)
+                VALUES (3, 'daniel@gbtec.com', 'Stored body', 'SENT', decode(md5('x'), 'hex'));
+                """)
+                .then()
+                .block();
+    }
+
+    @Test
+    void testGetEmailById() {
+        EmailResponseDTO email = webTestClient.get().uri("/email/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EmailResponseDTO.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(email);
+        assertEquals("First body", email.getEmailBody());
+        assertEquals(List.of("daniel@gbtec.com", "carl@gbtec.com"),
+                email.getEmailTo().stream().map(address -> address.getEmail()).toList());
+        assertEquals("anna@gbtec.com", email.getEmailCC().get(0).getEmail());
+    }
+
+    @Test
+    void testGetEmailByIdDecodesStoredBody() {
+        webTestClient.get().uri("/email/3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.emailBody").isEqualTo("Stored body")
+                .jsonPath("$.emailTo").isEmpty();
+    }
+
+    @Test
+    void testGetEmailByIdNotFound() {
+        webTestClient.get().uri("/email/42")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("Email with emailId 42 was not found");
+    }
+
+    @Test
+    void testGetEmailsByStateFollowsCursor() {
+        EmailPageDTO first = webTestClient.get().uri("/emails/state/1?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EmailPageDTO.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(first);
+        assertEquals(1L, first.getEmails().get(0).getEmailId());
+        assertNotNull(first.getNext());
+
+        EmailPageDTO second = webTestClient.get().uri("/emails/state/1?limit=1&cursor=" + first.getNext())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EmailPageDTO.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(second);
+        assertEquals(3L, second.getEmails().get(0).getEmailId());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    void testGetEmailsRejectsInvalidCursor() {
+        webTestClient.get().uri("/emails?cursor=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testGetEmailsReadsArrayRecipients() {
+        webTestClient.get().uri("/emails/state/2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.emails[0].emailTo[0].email").isEqualTo("marcus@gbtec.com")
+                .jsonPath("$.emails[0].snippet").isEqualTo("Draft body");
+    }
+
+    @Test
+    void testGetEmailsByRecipientSearchesBothStorageModes() {
+        databaseClient.sql("INSERT INTO email_to (email_id, address_id) VALUES (3, address_id_of('marcus@gbtec.com'))")
+                .then()
+                .block();
+
+        webTestClient.get().uri("/emails/recipient?address=marcus@gbtec.com")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.emails.length()").isEqualTo(2)
+                .jsonPath("$.emails[0].emailId").isEqualTo(2)
+                .jsonPath("$.emails[1].emailId").isEqualTo(3);
+    }
+
+    @Test
+    void testExportStreamsNewlineDelimitedJson() {
+        StepVerifier.create(webTestClient.get().uri("/emails/export")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .returnResult(EmailResponseDTO.class)
+                        .getResponseBody()
+                        .map(EmailResponseDTO::getEmailId))
+                .expectNext(1L, 2L, 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testExportStreamsMoreRowsThanOneFetch() {
+        // several fetches of the portal, with recipient rows to aggregate on every email
+        databaseClient.sql("""
+                INSERT INTO emails (email_id, email_from, email_body, state)
+                SELECT g, 'sender' || g || '@gbtec.com', 'Body ' || g, 'SENT' FROM generate_series(4, 1503) g;
+                INSERT INTO email_to (email_id, address_id)
+                SELECT g, a.address_id FROM generate_series(4, 1503) g,
+                       (SELECT address_id_of('daniel@gbtec.com') AS address_id) a;
+                """)
+                .then()
+                .block();
+
+        List<EmailResponseDTO> emails = webTestClient.get().uri("/emails/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(EmailResponseDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertNotNull(emails);
+        assertEquals(1503, emails.size());
+        assertEquals(1503L, emails.get(1502).getEmailId());
+        assertEquals("daniel@gbtec.com", emails.get(1502).getEmailTo().get(0).getEmail());
+    }
+}